@@ -1,6 +1,6 @@
 @echo off
 echo Compiling CaveLootChallenge.java and ItemRenderer.java...
-javac -cp . src\CaveLootChallenge.java src\ItemRenderer.java
+javac -cp src src\CaveLootChallenge.java src\ItemRenderer.java
 if %errorlevel% neq 0 (
     echo Compilation failed!
     pause
@@ -1,6 +1,6 @@
 @echo off
 echo Compiling SimpleMarioGame.java...
-javac -cp . src\SimpleMarioGame.java
+javac -cp src src\*.java
 
 if %errorlevel% neq 0 (
     echo Compilation failed!
@@ -0,0 +1,99 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Canvas that is drawn actively through a BufferStrategy instead of waiting
+ * for Swing to repaint it. The game loop calls {@link #renderFrame(double)}
+ * directly, which draws into the back buffer and flips it onto the screen.
+ */
+public class ActiveRenderCanvas extends Canvas {
+    /**
+     * Draws one frame of the game
+     */
+    public interface Scene {
+        /**
+         * @param g The graphics context of the back buffer
+         * @param width Width of the drawing area
+         * @param height Height of the drawing area
+         * @param alpha Interpolation factor between the last two ticks
+         */
+        void render(Graphics g, int width, int height, double alpha);
+    }
+
+    private final Scene scene;
+    private final int numBuffers;
+    private final FrameStats frameStats = new FrameStats("Active", 240);
+    private BufferStrategy strategy;
+
+    /**
+     * Creates the canvas
+     * @param scene The scene to draw
+     * @param numBuffers 2 for double buffering, 3 for triple buffering
+     */
+    public ActiveRenderCanvas(Scene scene, int numBuffers) {
+        this.scene = scene;
+        this.numBuffers = numBuffers;
+        // We draw ourselves; don't let AWT clear the canvas in between
+        setIgnoreRepaint(true);
+    }
+
+    /**
+     * Creates the buffer strategy, asking for page flipping first and falling
+     * back to blitting if the platform doesn't support it.
+     * Must be called once the canvas is displayable.
+     * @throws IllegalStateException If the canvas isn't displayable
+     */
+    public void createStrategy() {
+        try {
+            BufferCapabilities flipping = new BufferCapabilities(
+                new ImageCapabilities(true), new ImageCapabilities(true),
+                BufferCapabilities.FlipContents.UNDEFINED);
+            createBufferStrategy(numBuffers, flipping);
+        } catch (AWTException e) {
+            createBufferStrategy(numBuffers);
+        }
+        strategy = getBufferStrategy();
+
+        System.out.println("Active rendering: " + numBuffers + " buffers, page flipping: " + isPageFlipping());
+    }
+
+    /**
+     * Draws a frame and shows it. Called from the game loop thread.
+     * @param alpha Interpolation factor between the last two ticks
+     */
+    public void renderFrame(double alpha) {
+        if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0) return;
+        if (strategy == null) createStrategy();
+
+        long start = System.nanoTime();
+
+        // The contents of the buffers can be lost at any time (e.g. when the
+        // display mode changes), so redraw until a frame makes it to the screen
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    scene.render(g, getWidth(), getHeight(), alpha);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // Flush the frame to the screen right away on platforms that queue drawing
+        Toolkit.getDefaultToolkit().sync();
+
+        frameStats.record(System.nanoTime() - start);
+    }
+
+    /** @return Whether the buffer strategy flips pages instead of copying */
+    public boolean isPageFlipping() {
+        return strategy != null && strategy.getCapabilities().isPageFlipping();
+    }
+
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+}
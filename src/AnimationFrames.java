@@ -0,0 +1,48 @@
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+/**
+ * The frames of an AnimationSet laid out like its table: for every position
+ * the frame image shown there, in both facings. Drawing an animated entity
+ * is one array index with its position, whatever clip it is playing.
+ *
+ * Frames are sliced out of their sheets, mirrored and scaled to their
+ * character's size once, through a SpriteAtlas. A clip whose sheet is
+ * missing has no frames, and neither does NONE; the caller draws a
+ * placeholder for those.
+ */
+public class AnimationFrames {
+    private final BufferedImage[] right;
+    private final BufferedImage[] left;
+
+    /**
+     * @param animations The clips
+     * @param sheets The loaded sheets by path; a missing or null one leaves its clips without frames
+     */
+    public AnimationFrames(AnimationSet animations, Map<String, BufferedImage> sheets) {
+        right = new BufferedImage[animations.getTableSize()];
+        left = new BufferedImage[animations.getTableSize()];
+        SpriteAtlas atlas = new SpriteAtlas();
+        for (AnimationSet.Clip clip : animations.getClips()) {
+            SpriteAtlas.Animation animation = atlas.addSheet(clip.getCharacter() + "." + clip.getState(),
+                                                             sheets.get(clip.getSheet()), clip.getFrameCount(),
+                                                             animations.getScale(clip.getCharacter()));
+            if (animation == null) continue;
+            for (int position = clip.getStart(); position < clip.getEnd(); position++) {
+                int frame = animations.getFrame(position);
+                right[position] = animation.getFrame(frame, true);
+                left[position] = animation.getFrame(frame, false);
+            }
+        }
+    }
+
+    /**
+     * Gets a shared frame; callers must not draw into it
+     * @param position A position in the AnimationSet's table
+     * @param facingRight True for the frame as drawn in the sheet, false for the mirrored one
+     * @return The frame image, or null if there is none
+     */
+    public BufferedImage get(int position, boolean facingRight) {
+        return facingRight ? right[position] : left[position];
+    }
+}
@@ -0,0 +1,305 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * The animation clips of SimpleMarioGame's characters, read from
+ * animations.properties: for each character and state (idle, run, jump or
+ * death) the sprite sheet, its frame count and how many ticks each frame is
+ * shown.
+ *
+ * Every tick of every clip is laid out in one table. An animated entity
+ * keeps only its position in the table: advancing it a tick is
+ * {@code position = next[position]}, which wraps a looping clip and holds a
+ * clip played once on its last frame, and AnimationFrames draws the frame at
+ * that position. Neither needs to know which clip is playing, so an entity
+ * costs one array index per tick and one per frame drawn however its clip
+ * is timed. Only changing state looks the clip up.
+ *
+ * Position NONE is a still with no frame, for a character without a clip
+ * for a state.
+ */
+public class AnimationSet {
+    public static final String FILE = "animations.properties";
+
+    // States a character can be animated in
+    public static final int IDLE = 0;
+    public static final int RUN = 1;
+    public static final int JUMP = 2;
+    public static final int DEATH = 3;
+    public static final int STATE_COUNT = 4;
+    private static final String[] STATE_NAMES = {"idle", "run", "jump", "death"};
+
+    /** The position of the still without a frame */
+    public static final int NONE = 0;
+
+    /**
+     * One clip: a character's animation in one state
+     */
+    public static final class Clip {
+        private final String character;
+        private final int state;
+        private final String sheet;
+        private final int frameCount;
+        private final int ticksPerFrame;
+        private final int start;
+
+        Clip(String character, int state, String sheet, int frameCount, int ticksPerFrame, int start) {
+            this.character = character;
+            this.state = state;
+            this.sheet = sheet;
+            this.frameCount = frameCount;
+            this.ticksPerFrame = ticksPerFrame;
+            this.start = start;
+        }
+
+        public String getCharacter() {
+            return character;
+        }
+
+        public int getState() {
+            return state;
+        }
+
+        /** @return The sheet's path under the asset root, frames side by side */
+        public String getSheet() {
+            return sheet;
+        }
+
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        public int getTicksPerFrame() {
+            return ticksPerFrame;
+        }
+
+        /** @return The clip's first position in the table */
+        public int getStart() {
+            return start;
+        }
+
+        /** @return The position after the clip's last one */
+        public int getEnd() {
+            return start + frameCount * ticksPerFrame;
+        }
+    }
+
+    private final List<Clip> clips = new ArrayList<>();
+    private final Map<String, Integer> characterIds = new HashMap<>();
+    private int[] starts = new int[0]; // By character and state; -1 for no clip
+    private double[] scales = new double[0]; // By character
+    private int[] enemyCharacters = new int[0];
+
+    // The table: for each position the one a tick later, and the frame of its clip shown
+    int[] next = {NONE};
+    private int[] frames = {-1};
+    private int size = 1;
+
+    /**
+     * Reads the clips from a file
+     * @param file The file, in the format of animations.properties
+     * @return The clips
+     * @throws IOException If the file couldn't be read or a clip is malformed
+     */
+    public static AnimationSet load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+
+        AnimationSet animations = new AnimationSet();
+        // Sorted, so the same file always lays the table out the same way
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            String value = properties.getProperty(key).trim();
+            if (key.equals("enemies")) continue;
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IOException(file + ": unknown key " + key);
+            }
+            String character = key.substring(0, dot);
+            String property = key.substring(dot + 1);
+            try {
+                if (property.equals("scale")) {
+                    animations.setScale(character, Double.parseDouble(value));
+                    continue;
+                }
+                int state = Arrays.asList(STATE_NAMES).indexOf(property);
+                if (state < 0) {
+                    throw new IOException(file + ": unknown state in " + key);
+                }
+                String[] fields = value.split("\\s*,\\s*");
+                int frameCount = Integer.parseInt(fields[1]);
+                int ticksPerFrame = fields.length > 2 ? Integer.parseInt(fields[2]) : 1;
+                boolean loop = fields.length <= 3 || !fields[3].equals("once");
+                animations.addClip(character, state, fields[0], frameCount, ticksPerFrame, loop);
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException(file + ": malformed " + key + " = " + value, e);
+            }
+        }
+        String enemies = properties.getProperty("enemies", "").trim();
+        if (!enemies.isEmpty()) {
+            for (String character : enemies.split("\\s*,\\s*")) {
+                animations.addEnemyCharacter(character);
+            }
+        }
+        return animations;
+    }
+
+    /**
+     * Reads -Dcave.animations, or animations.properties in the asset root
+     * @return The clips, or a set without any if the file is missing or malformed
+     */
+    public static AnimationSet loadDefault() {
+        String configured = System.getProperty("cave.animations");
+        File file = configured != null ? new File(configured) : Assets.file(FILE);
+        if (file.isFile()) {
+            try {
+                return load(file);
+            } catch (IOException e) {
+                System.out.println("Could not read animations, drawing plain shapes instead: " + e.getMessage());
+            }
+        }
+        return new AnimationSet();
+    }
+
+    /**
+     * @return The id of a character, which is added if it is new
+     */
+    public int addCharacter(String name) {
+        Integer id = characterIds.get(name);
+        if (id != null) return id;
+
+        int character = characterIds.size();
+        characterIds.put(name, character);
+        starts = Arrays.copyOf(starts, (character + 1) * STATE_COUNT);
+        Arrays.fill(starts, character * STATE_COUNT, starts.length, -1);
+        scales = Arrays.copyOf(scales, character + 1);
+        scales[character] = 1;
+        return character;
+    }
+
+    /**
+     * Adds a character's clip for a state, replacing the one it had
+     * @param sheet Path of the sprite sheet under the asset root
+     * @param frameCount Number of frames laid out left to right
+     * @param ticksPerFrame How many ticks each frame is shown
+     * @param loop Whether the clip starts over after its last frame, or stays on it
+     */
+    public void addClip(String character, int state, String sheet, int frameCount, int ticksPerFrame, boolean loop) {
+        if (state < 0 || state >= STATE_COUNT || frameCount < 1 || ticksPerFrame < 1) {
+            throw new IllegalArgumentException("Bad clip for " + character + ": state " + state + ", "
+                                               + frameCount + " frames of " + ticksPerFrame + " ticks");
+        }
+        int id = addCharacter(character);
+        int start = size;
+        int length = frameCount * ticksPerFrame;
+        if (size + length > next.length) {
+            next = Arrays.copyOf(next, Math.max(size + length, next.length * 2));
+            frames = Arrays.copyOf(frames, next.length);
+        }
+        for (int tick = 0; tick < length; tick++) {
+            next[start + tick] = start + tick + 1;
+            frames[start + tick] = tick / ticksPerFrame;
+        }
+        next[start + length - 1] = loop ? start : start + length - 1;
+        size += length;
+
+        starts[id * STATE_COUNT + state] = start;
+        clips.removeIf(clip -> clip.character.equals(character) && clip.state == state);
+        clips.add(new Clip(character, state, sheet, frameCount, ticksPerFrame, start));
+    }
+
+    /**
+     * Sets the size a character's frames are drawn at
+     * @param scale Drawn size over the size in the sheet
+     */
+    public void setScale(String character, double scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Bad scale for " + character + ": " + scale);
+        }
+        scales[addCharacter(character)] = scale;
+    }
+
+    /**
+     * Adds a character to the ones the cave's enemies take turns being
+     */
+    public void addEnemyCharacter(String character) {
+        enemyCharacters = Arrays.copyOf(enemyCharacters, enemyCharacters.length + 1);
+        enemyCharacters[enemyCharacters.length - 1] = addCharacter(character);
+    }
+
+    /**
+     * @return The id of a character, or -1 if it has no clips
+     */
+    public int getCharacter(String name) {
+        Integer id = characterIds.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return The characters enemies are, in turn; none if the file names none
+     */
+    public int[] getEnemyCharacters() {
+        return enemyCharacters.clone();
+    }
+
+    /**
+     * Finds where a character's clip for a state starts. A missing jump clip
+     * falls back to the run one, idle and run fall back to each other, and
+     * a missing death clip is NONE, which draws nothing.
+     * @param character A character id, or -1 for none
+     * @return The position, or NONE if the character has no clip to show
+     */
+    public int getStart(int character, int state) {
+        if (character < 0) return NONE;
+        int base = character * STATE_COUNT;
+        int start = starts[base + state];
+        if (start < 0 && state == JUMP) {
+            start = starts[base + RUN];
+        }
+        if (start < 0 && state != DEATH) {
+            start = starts[base + (state == IDLE ? RUN : IDLE)];
+        }
+        return start < 0 ? NONE : start;
+    }
+
+    /**
+     * @return The position a tick after another
+     */
+    public int next(int position) {
+        return next[position];
+    }
+
+    /**
+     * @return The frame of its clip a position shows, or -1 for NONE
+     */
+    public int getFrame(int position) {
+        return frames[position];
+    }
+
+    /** @return Number of positions in the table */
+    public int getTableSize() {
+        return size;
+    }
+
+    public List<Clip> getClips() {
+        return Collections.unmodifiableList(clips);
+    }
+
+    public double getScale(String character) {
+        int id = getCharacter(character);
+        return id >= 0 ? scales[id] : 1;
+    }
+}
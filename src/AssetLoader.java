@@ -0,0 +1,152 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes images on a pool of worker threads so the window can show up
+ * straight away. Required images are loaded at once and tracked for a
+ * loading screen; optional ones are only loaded the first time they are
+ * asked for, and read as null until then so the caller can draw a placeholder.
+ *
+ * Images are named by their path under the asset root and come from the
+ * sprite atlas when there is one (see Assets). A failed load is reported once
+ * and yields null, like a missing file did when images were loaded one after
+ * another.
+ */
+public class AssetLoader {
+    private final ExecutorService pool;
+    private final List<CompletableFuture<BufferedImage>> required = new ArrayList<>();
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * An image that is loaded on first use
+     */
+    public class LazyImage {
+        private final String name;
+        private final String path;
+        private final boolean compatible;
+        private volatile CompletableFuture<BufferedImage> future;
+
+        LazyImage(String name, String path, boolean compatible) {
+            this.name = name;
+            this.path = path;
+            this.compatible = compatible;
+        }
+
+        /**
+         * Starts loading the image the first time it is called
+         * @return The image, or null while it is loading or if it couldn't be loaded
+         */
+        public BufferedImage get() {
+            CompletableFuture<BufferedImage> f = future;
+            if (f == null) {
+                synchronized (this) {
+                    if (future == null) {
+                        future = CompletableFuture.supplyAsync(() -> read(name, path, compatible), pool);
+                    }
+                    f = future;
+                }
+            }
+            return f.getNow(null);
+        }
+
+        public boolean isLoaded() {
+            CompletableFuture<BufferedImage> f = future;
+            return f != null && f.isDone();
+        }
+    }
+
+    /**
+     * @param threads Number of decoding threads
+     */
+    public AssetLoader(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "asset-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts loading an image the game can't start without
+     * @param name Name used in messages
+     * @param path The image's path under the asset root, with '/' separators
+     * @param compatible Whether to convert it to the screen's format
+     * @return Completes with the image, or null if it couldn't be loaded
+     */
+    public synchronized CompletableFuture<BufferedImage> load(String name, String path, boolean compatible) {
+        CompletableFuture<BufferedImage> future = CompletableFuture.supplyAsync(() -> {
+            BufferedImage image = read(name, path, compatible);
+            loaded.incrementAndGet();
+            return image;
+        }, pool);
+        required.add(future);
+        return future;
+    }
+
+    /**
+     * Registers an image that is only loaded when first asked for
+     * @param name Name used in messages
+     * @param path The image's path under the asset root, with '/' separators
+     * @param compatible Whether to convert it to the screen's format
+     * @return The lazily loaded image
+     */
+    public LazyImage lazy(String name, String path, boolean compatible) {
+        return new LazyImage(name, path, compatible);
+    }
+
+    /**
+     * @return Completes when every required image has finished loading
+     */
+    public synchronized CompletableFuture<Void> whenRequiredLoaded() {
+        return CompletableFuture.allOf(required.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return The worker pool, for work that follows the loading, such as
+     *         preparing what was loaded, off the EDT
+     */
+    public Executor getExecutor() {
+        return pool;
+    }
+
+    public int getLoadedCount() {
+        return loaded.get();
+    }
+
+    public synchronized int getRequiredCount() {
+        return required.size();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    private BufferedImage read(String name, String path, boolean compatible) {
+        try {
+            if (!Assets.contains(path)) {
+                System.out.println("Missing " + name + ": " + Assets.file(path).getAbsolutePath());
+                failed.incrementAndGet();
+                return null;
+            }
+            BufferedImage image = Assets.read(path);
+            if (image == null) {
+                System.out.println("Unreadable " + name + ": " + Assets.file(path).getAbsolutePath());
+                failed.incrementAndGet();
+                return null;
+            }
+            return compatible ? CompatibleImages.toCompatible(image) : image;
+        } catch (Exception e) {
+            System.out.println("Could not load " + name + ": " + e.getMessage());
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+}
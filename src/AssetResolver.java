@@ -0,0 +1,333 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Knows where every asset is, so looking one up is a map lookup instead of
+ * trying candidate paths on disk.
+ *
+ * The manifest maps each asset's path relative to its root, such as
+ * "Background/Background Complete.png", to a URL. It is built by walking the
+ * asset folders of the asset root directory and of the class path, both
+ * directories and jars. Earlier roots win when two have the same asset.
+ *
+ * The manifest is saved to assets.manifest in the asset root (or
+ * -Dcave.manifest) along with the modification time of every directory and
+ * jar it walked. The next start reuses it if none of those changed, which
+ * takes one stat per directory instead of listing every folder.
+ */
+public class AssetResolver {
+    private static final String MANIFEST_FILE = "assets.manifest";
+    private static final String MANIFEST_HEADER = "# Cave asset manifest v1";
+
+    private static final List<String> EXTENSIONS = Arrays.asList(".png", ".gif", ".jpg", ".jpeg", ".bmp");
+
+    private static volatile AssetResolver instance;
+
+    private final Map<String, URL> locations;
+    private final Map<String, String> byFileName;
+    private final boolean fromCache;
+    private final long buildNanos;
+
+    private AssetResolver(Map<String, URL> locations, boolean fromCache, long buildNanos) {
+        this.locations = locations;
+        this.fromCache = fromCache;
+        this.buildNanos = buildNanos;
+
+        // The first asset with each file name, for callers that only know the name
+        Map<String, String> names = new HashMap<>();
+        for (String path : locations.keySet()) {
+            names.putIfAbsent(path.substring(path.lastIndexOf('/') + 1), path);
+        }
+        this.byFileName = names;
+    }
+
+    /**
+     * Loads the manifest the first time it is needed, from the cache if it is
+     * still valid and by scanning the asset roots otherwise
+     * @return The resolver
+     */
+    public static AssetResolver get() {
+        AssetResolver resolver = instance;
+        if (resolver == null) {
+            synchronized (AssetResolver.class) {
+                if (instance == null) {
+                    String configured = System.getProperty("cave.manifest");
+                    File cache = configured != null ? new File(configured) : new File(Assets.getRoot(), MANIFEST_FILE);
+                    instance = load(findRoots(), cache);
+                }
+                resolver = instance;
+            }
+        }
+        return resolver;
+    }
+
+    /**
+     * @param path Path relative to the asset root, with '/' or '\' separators
+     * @return Where the asset is, or null if there is no such asset
+     */
+    public URL resolve(String path) {
+        return locations.get(path.indexOf('\\') < 0 ? path : path.replace('\\', '/'));
+    }
+
+    /**
+     * @return Whether there is an asset at that path
+     */
+    public boolean contains(String path) {
+        return resolve(path) != null;
+    }
+
+    /**
+     * Finds an asset by its file name alone, wherever it is
+     * @param fileName A file name such as "kurtkwako.png"
+     * @return The asset's path relative to its root, or null if there is none
+     */
+    public String findByFileName(String fileName) {
+        return byFileName.get(fileName);
+    }
+
+    /**
+     * Reads an image asset
+     * @param path Path relative to the asset root
+     * @return The image, or null if there is no such asset
+     * @throws IOException If the asset exists but couldn't be read
+     */
+    public BufferedImage readImage(String path) throws IOException {
+        URL url = resolve(path);
+        if (url == null) return null;
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return ImageIO.read(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Bad asset location: " + url, e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            // Read through memory rather than ImageIO's temporary file cache
+            return ImageIO.read(new MemoryCacheImageInputStream(in));
+        }
+    }
+
+    /**
+     * @return All asset paths, sorted
+     */
+    public List<String> getPaths() {
+        List<String> paths = new ArrayList<>(locations.keySet());
+        Collections.sort(paths);
+        return paths;
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    /**
+     * @return Whether the manifest came from the cache rather than a scan
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    /**
+     * @return How long it took to load or build the manifest
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * The asset root first, then the class path entries that hold assets
+     */
+    private static List<File> findRoots() {
+        List<File> roots = new ArrayList<>();
+        roots.add(canonical(Assets.getRoot()));
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (entry.isEmpty()) continue;
+            File file = canonical(new File(entry));
+            if (roots.contains(file)) continue;
+            if (file.isFile() && file.getName().toLowerCase().endsWith(".jar")) {
+                roots.add(file);
+            } else if (file.isDirectory() && hasAssetFolder(file)) {
+                roots.add(file);
+            }
+        }
+        return roots;
+    }
+
+    private static boolean hasAssetFolder(File dir) {
+        for (String source : Assets.SOURCES) {
+            if (new File(dir, source).isDirectory()) return true;
+        }
+        return false;
+    }
+
+    private static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    private static AssetResolver load(List<File> roots, File cache) {
+        long start = System.nanoTime();
+        Map<String, URL> cached = readCache(roots, cache);
+        if (cached != null) {
+            return new AssetResolver(cached, true, System.nanoTime() - start);
+        }
+
+        // Create the cache file before taking modification times, since creating
+        // it changes the time of its folder, which usually is the asset root
+        try {
+            cache.createNewFile();
+        } catch (IOException e) {
+            // Reported when the manifest is saved
+        }
+
+        Map<String, URL> locations = new LinkedHashMap<>();
+        Map<File, Long> stamps = new LinkedHashMap<>();
+        for (File root : roots) {
+            try {
+                if (root.isFile()) {
+                    scanJar(root, locations);
+                    stamps.put(root, root.lastModified());
+                } else {
+                    stamps.put(root, root.lastModified());
+                    for (String source : Assets.SOURCES) {
+                        scanDirectory(new File(root, source), source, locations, stamps);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Could not scan assets in " + root + ": " + e.getMessage());
+            }
+        }
+        writeCache(cache, roots, stamps, locations);
+        return new AssetResolver(Collections.unmodifiableMap(locations), false, System.nanoTime() - start);
+    }
+
+    private static void scanDirectory(File dir, String path, Map<String, URL> locations, Map<File, Long> stamps)
+            throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        stamps.put(dir, dir.lastModified());
+        for (File file : files) {
+            String name = path + "/" + file.getName();
+            if (file.isDirectory()) {
+                scanDirectory(file, name, locations, stamps);
+            } else if (isAsset(name)) {
+                locations.putIfAbsent(name, file.toURI().toURL());
+            }
+        }
+    }
+
+    private static void scanJar(File jar, Map<String, URL> locations) throws IOException {
+        String base = "jar:" + jar.toURI() + "!/";
+        try (JarFile file = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && isAsset(entry.getName()) && !entry.getName().startsWith("META-INF/")) {
+                    locations.putIfAbsent(entry.getName(), new URL(base + entry.getName()));
+                }
+            }
+        }
+    }
+
+    private static boolean isAsset(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot).toLowerCase());
+    }
+
+    /**
+     * Cache format, one record per line, tab separated:
+     *   R path            a root, in order
+     *   S mtime path      a directory or jar that was walked
+     *   A name url        an asset
+     * @return The cached manifest, or null if there is none or it is out of date
+     */
+    private static Map<String, URL> readCache(List<File> roots, File cache) {
+        if (!cache.isFile()) return null;
+        List<File> cachedRoots = new ArrayList<>();
+        Map<String, URL> locations = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(cache), StandardCharsets.UTF_8))) {
+            if (!MANIFEST_HEADER.equals(reader.readLine())) return null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                switch (fields[0]) {
+                    case "R":
+                        cachedRoots.add(new File(fields[1]));
+                        break;
+                    case "S":
+                        if (new File(fields[2]).lastModified() != Long.parseLong(fields[1])) return null;
+                        break;
+                    case "A":
+                        locations.put(fields[1], new URL(fields[2]));
+                        break;
+                    default:
+                        return null;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged cache is rebuilt
+            return null;
+        }
+        return cachedRoots.equals(roots) ? Collections.unmodifiableMap(locations) : null;
+    }
+
+    private static void writeCache(File cache, List<File> roots, Map<File, Long> stamps, Map<String, URL> locations) {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(cache), StandardCharsets.UTF_8))) {
+            writer.write(MANIFEST_HEADER + "\n");
+            for (File root : roots) {
+                writer.write("R\t" + root.getPath() + "\n");
+            }
+            for (Map.Entry<File, Long> stamp : stamps.entrySet()) {
+                writer.write("S\t" + stamp.getValue() + "\t" + stamp.getKey().getPath() + "\n");
+            }
+            for (Map.Entry<String, URL> location : locations.entrySet()) {
+                writer.write("A\t" + location.getKey() + "\t" + location.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not save the asset manifest to " + cache + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints how long the manifest took and what it holds
+     * Run with: java -cp src AssetResolver
+     */
+    public static void main(String[] args) {
+        AssetResolver resolver = get();
+        System.out.printf("%d assets %s in %.1f ms%n", resolver.size(),
+                          resolver.isFromCache() ? "from the cached manifest" : "found by scanning",
+                          resolver.getBuildNanos() / 1_000_000.0);
+        for (String path : args) {
+            System.out.println(path + " -> " + resolver.resolve(path));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Finds the game's images by their path relative to the asset root, such as
+ * "Background/Background Complete.png".
+ *
+ * Images are taken from the packed atlas when there is one (see AtlasPacker),
+ * which needs no decoding, and otherwise read from wherever AssetResolver's
+ * manifest says they are: the asset root, or a directory or jar on the class
+ * path.
+ *
+ * The asset root is -Dcave.assets if set, otherwise the first of the working
+ * directory, its assets folder, c:\CaveGame and c:\CaveGame\assets (where
+ * OrganizeFiles moves them) that has the game's asset folders. The atlas is
+ * -Dcave.atlas, or assets.atlas in the root.
+ */
+public class Assets {
+    public static final String ATLAS_FILE = "assets.atlas";
+
+    // Folders under an asset root that hold the game's images
+    public static final String[] SOURCES = { "Sprites Assets", "Sprites", "images", "Background" };
+
+    // Folders every asset root has, used to recognise one
+    private static final String[] MARKERS = { "Sprites Assets", "Background" };
+    private static final String INSTALL_ROOT = "c:\\CaveGame";
+
+    private static volatile File root;
+    private static volatile PackedAtlas atlas;
+    private static boolean atlasOpened = false;
+
+    private Assets() {
+    }
+
+    /**
+     * @return The directory asset paths are relative to
+     */
+    public static File getRoot() {
+        File dir = root;
+        if (dir == null) {
+            synchronized (Assets.class) {
+                if (root == null) {
+                    root = findRoot();
+                }
+                dir = root;
+            }
+        }
+        return dir;
+    }
+
+    private static File findRoot() {
+        String configured = System.getProperty("cave.assets");
+        if (configured != null) {
+            return new File(configured);
+        }
+        File workingDir = new File(System.getProperty("user.dir"));
+        File[] candidates = { workingDir, new File(workingDir, "assets"),
+                              new File(INSTALL_ROOT), new File(INSTALL_ROOT, "assets") };
+        for (File candidate : candidates) {
+            if (isRoot(candidate)) return candidate;
+        }
+        return candidates[0];
+    }
+
+    private static boolean isRoot(File dir) {
+        for (String marker : MARKERS) {
+            if (!new File(dir, marker).isDirectory()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Opens the atlas the first time it is asked for
+     * @return The atlas, or null if there is none or it couldn't be read
+     */
+    public static PackedAtlas getAtlas() {
+        synchronized (Assets.class) {
+            if (!atlasOpened) {
+                atlasOpened = true;
+                String configured = System.getProperty("cave.atlas");
+                File file = configured != null ? new File(configured) : new File(getRoot(), ATLAS_FILE);
+                if (file.isFile()) {
+                    try {
+                        atlas = PackedAtlas.open(file);
+                        System.out.println("Using sprite atlas " + file + " (" + atlas.size() + " sprites)");
+                    } catch (IOException e) {
+                        System.out.println("Could not open sprite atlas, loading PNG files instead: " + e.getMessage());
+                    }
+                }
+            }
+            return atlas;
+        }
+    }
+
+    /**
+     * @param path Path relative to the asset root, with '/' separators
+     * @return The file at that path
+     */
+    public static File file(String path) {
+        return new File(getRoot(), path.replace('/', File.separatorChar));
+    }
+
+    /**
+     * @param path Path relative to the asset root, with '/' separators
+     * @return Whether the atlas or the manifest has that image
+     */
+    public static boolean contains(String path) {
+        PackedAtlas packed = getAtlas();
+        return (packed != null && packed.contains(path)) || AssetResolver.get().contains(path);
+    }
+
+    /**
+     * Loads an image from the atlas, or from its PNG file if the atlas doesn't have it
+     * @param path Path relative to the asset root, with '/' separators
+     * @return The image, or null if there is no such image
+     * @throws IOException If the file exists but couldn't be read
+     */
+    public static BufferedImage read(String path) throws IOException {
+        PackedAtlas packed = getAtlas();
+        if (packed != null) {
+            BufferedImage image = packed.getImage(path);
+            if (image != null) return image;
+        }
+        return AssetResolver.get().readImage(path);
+    }
+}
@@ -0,0 +1,93 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/**
+ * Compares loading images from the packed atlas with decoding each PNG, for
+ * the images SimpleMarioGame needs before its first frame and for every image
+ * in the atlas.
+ *
+ * Each round opens the atlas anew, so the atlas timings include mapping the
+ * file and reading its index. Both sides read files the operating system
+ * has probably cached by then, so this measures decoding rather than disk.
+ *
+ * Run with: java -cp src AtlasBenchmark [atlas file] [rounds]
+ */
+public class AtlasBenchmark {
+    // What SimpleMarioGame loads before it can draw the first frame
+    private static final String[] STARTUP_IMAGES = {
+        "images/kurtkwako.png",
+        "Sprites Assets/Entities/Mobs/Orc Crew/Orc/Idle/Idle-Sheet.png",
+        "Sprites Assets/Entities/Mobs/Orc Crew/Orc/Run/Run-Sheet.png",
+        "Background/Background Complete.png"
+    };
+
+    private interface Load {
+        long run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File atlasFile = args.length > 0 ? new File(args[0]) : new File(Assets.getRoot(), Assets.ATLAS_FILE);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (!atlasFile.isFile()) {
+            System.out.println("No atlas at " + atlasFile.getAbsolutePath() + "; run AtlasPacker first");
+            return;
+        }
+
+        List<String> all = new ArrayList<>(PackedAtlas.open(atlasFile).getNames());
+        List<String> startup = Arrays.asList(STARTUP_IMAGES);
+        System.out.println("Atlas " + atlasFile + ": " + all.size() + " images, " + atlasFile.length() / 1024 + " KB");
+
+        compare("startup images", startup, atlasFile, rounds);
+        compare("all images", all, atlasFile, rounds);
+    }
+
+    private static void compare(String label, List<String> names, File atlasFile, int rounds) throws IOException {
+        Load png = () -> {
+            long pixels = 0;
+            for (String name : names) {
+                BufferedImage image = ImageIO.read(Assets.file(name));
+                if (image != null) pixels += (long) image.getWidth() * image.getHeight();
+            }
+            return pixels;
+        };
+        Load atlas = () -> {
+            PackedAtlas packed = PackedAtlas.open(atlasFile);
+            long pixels = 0;
+            for (String name : names) {
+                BufferedImage image = packed.getImage(name);
+                if (image != null) pixels += (long) image.getWidth() * image.getHeight();
+            }
+            return pixels;
+        };
+
+        System.out.printf("%n== %s (%d)%n", label, names.size());
+        double pngMillis = time("PNG files", png, rounds);
+        double atlasMillis = time("atlas", atlas, rounds);
+        System.out.printf("atlas is %.1fx faster%n", pngMillis / atlasMillis);
+    }
+
+    /**
+     * Runs a load a few times and prints the first, best and median time
+     * @return The median time in milliseconds
+     */
+    private static double time(String label, Load load, int rounds) throws IOException {
+        double[] millis = new double[rounds];
+        long pixels = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            pixels = load.run();
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        double first = millis[0];
+        Arrays.sort(millis);
+        double median = millis[rounds / 2];
+        System.out.printf("%-10s first %8.1f ms, best %8.1f ms, median %8.1f ms (%,d pixels)%n",
+                          label, first, millis[0], median, pixels);
+        return median;
+    }
+}
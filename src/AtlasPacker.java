@@ -0,0 +1,209 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+
+/**
+ * Packs every sprite of the game into one atlas file that PackedAtlas can map
+ * straight into memory, so the game doesn't decode a PNG per image at startup.
+ *
+ * Sprites are placed on shelves: sorted by height, then laid left to right
+ * in rows as tall as the first sprite of the row. Pixels are stored
+ * premultiplied, in the platform's byte order.
+ *
+ * Animation frames are taken from the file names: "Run-Sheet.png" holds
+ * square frames side by side, "Golem_Idle_strip10.png" holds 10 frames.
+ *
+ * Run with: java -cp src AtlasPacker [asset root] [atlas file]
+ */
+public class AtlasPacker {
+    private static final Pattern STRIP = Pattern.compile("_strip(\\d+)\\.png$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SHEET = Pattern.compile("-Sheet\\.png$", Pattern.CASE_INSENSITIVE);
+
+    private static final int MAX_PAGE_WIDTH = 8192;
+
+    /**
+     * A sprite read from disk, waiting for its place in the page
+     */
+    private static final class Sprite {
+        final String name;
+        final BufferedImage image;
+        int x, y;
+
+        Sprite(String name, BufferedImage image) {
+            this.name = name;
+            this.image = image;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File root = args.length > 0 ? new File(args[0]) : Assets.getRoot();
+        File output = args.length > 1 ? new File(args[1]) : new File(root, Assets.ATLAS_FILE);
+
+        long start = System.nanoTime();
+        List<Sprite> sprites = new ArrayList<>();
+        int skipped = 0;
+        for (String source : Assets.SOURCES) {
+            skipped += collect(root, new File(root, source), sprites);
+        }
+        if (sprites.isEmpty()) {
+            System.out.println("No images found under " + root.getAbsolutePath());
+            return;
+        }
+
+        int[] page = layout(sprites);
+        write(output, sprites, page[0], page[1]);
+
+        long pixels = 0;
+        for (Sprite sprite : sprites) {
+            pixels += (long) sprite.image.getWidth() * sprite.image.getHeight();
+        }
+        System.out.printf("Packed %d images (%d skipped) into a %dx%d page, %.0f%% used, %,d bytes, in %.1f s: %s%n",
+                          sprites.size(), skipped, page[0], page[1], 100.0 * pixels / ((long) page[0] * page[1]),
+                          output.length(), (System.nanoTime() - start) / 1e9, output.getAbsolutePath());
+    }
+
+    /**
+     * Reads every PNG under a folder
+     * @return How many files couldn't be read as images
+     */
+    private static int collect(File root, File dir, List<Sprite> sprites) {
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        // Sorted so the same assets always give the same file
+        Arrays.sort(files);
+
+        int skipped = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                skipped += collect(root, file, sprites);
+            } else if (file.getName().toLowerCase().endsWith(".png")) {
+                String name = root.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+                BufferedImage image = null;
+                try {
+                    image = ImageIO.read(file);
+                } catch (IOException e) {
+                    // Reported below
+                }
+                if (image == null) {
+                    System.out.println("Skipping " + name + ": not a readable image");
+                    skipped++;
+                } else {
+                    sprites.add(new Sprite(name, image));
+                }
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Places the sprites on shelves
+     * @return The page width and height
+     */
+    private static int[] layout(List<Sprite> sprites) {
+        long area = 0;
+        int widest = 0;
+        for (Sprite sprite : sprites) {
+            area += (long) sprite.image.getWidth() * sprite.image.getHeight();
+            widest = Math.max(widest, sprite.image.getWidth());
+        }
+        // Roughly square, with some room for the gaps the shelves leave
+        int width = (int) Math.min(MAX_PAGE_WIDTH, Math.max(widest, Math.ceil(Math.sqrt(area * 1.15))));
+        width = (width + 63) & ~63;
+
+        List<Sprite> byHeight = new ArrayList<>(sprites);
+        byHeight.sort(Comparator.comparingInt((Sprite s) -> s.image.getHeight()).reversed()
+                                .thenComparing(s -> s.name));
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        for (Sprite sprite : byHeight) {
+            if (x + sprite.image.getWidth() > width) {
+                x = 0;
+                y += shelfHeight;
+                shelfHeight = 0;
+            }
+            sprite.x = x;
+            sprite.y = y;
+            x += sprite.image.getWidth();
+            shelfHeight = Math.max(shelfHeight, sprite.image.getHeight());
+        }
+        return new int[] { width, y + shelfHeight };
+    }
+
+    private static void write(File output, List<Sprite> sprites, int pageWidth, int pageHeight) throws IOException {
+        List<PackedAtlas.Entry> entries = new ArrayList<>();
+        for (Sprite sprite : sprites) {
+            int width = sprite.image.getWidth();
+            int height = sprite.image.getHeight();
+            int frames = 1;
+            int frameWidth = width;
+            Matcher strip = STRIP.matcher(sprite.name);
+            if (strip.find()) {
+                int count = Integer.parseInt(strip.group(1));
+                if (count > 0 && width % count == 0) {
+                    frames = count;
+                    frameWidth = width / count;
+                }
+            } else if (SHEET.matcher(sprite.name).find() && width % height == 0) {
+                frames = width / height;
+                frameWidth = height;
+            }
+            entries.add(new PackedAtlas.Entry(sprite.name, sprite.x, sprite.y, width, height,
+                                              frameWidth, height, frames));
+        }
+
+        ByteOrder order = ByteOrder.nativeOrder();
+        java.nio.ByteBuffer header = PackedAtlas.encodeIndex(pageWidth, pageHeight, entries, order);
+        long size = header.remaining() + 4L * pageWidth * pageHeight;
+
+        if (output.exists() && !output.delete()) {
+            throw new IOException("Could not replace " + output);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(output, "rw");
+             FileChannel channel = raf.getChannel()) {
+            // Pixels are written straight into the mapped file, so the page never has to fit on the heap
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.put(header);
+            IntBuffer pixels = buffer.slice().order(order).asIntBuffer();
+            for (Sprite sprite : sprites) {
+                int[] argb = premultiplied(sprite.image);
+                int width = sprite.image.getWidth();
+                for (int row = 0; row < sprite.image.getHeight(); row++) {
+                    pixels.position((sprite.y + row) * pageWidth + sprite.x);
+                    pixels.put(argb, row * width, width);
+                }
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return The image's pixels as premultiplied ARGB, row by row
+     */
+    private static int[] premultiplied(BufferedImage image) {
+        BufferedImage converted = image;
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB_PRE) {
+            converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g2d = converted.createGraphics();
+            g2d.setComposite(AlphaComposite.Src);
+            g2d.drawImage(image, 0, 0, null);
+            g2d.dispose();
+        }
+        return ((DataBufferInt) converted.getRaster().getDataBuffer()).getData();
+    }
+}
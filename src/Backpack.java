@@ -0,0 +1,293 @@
+import java.util.Arrays;
+
+/**
+ * The player's backpack in SimpleMarioGame: which items were taken, how much
+ * of each, and which were seen and left behind.
+ *
+ * Items are kept in parallel arrays, one slot per item ever offered, with
+ * the total weight and value kept up to date as items come and go, so
+ * checking whether something fits is O(1). Each item's state is a flag in its
+ * slot, found through a small identity hash index, so asking what happened to
+ * an item is O(1) too and never scans.
+ *
+ * A slot, and the item it refers to, stays until clear(), skipped and
+ * dropped items included, so their state can still be asked for. On a
+ * streamed level that is one slot for every coin the player touches: about
+ * 700 on a level of 100 chunks, some 30 bytes each plus the item.
+ */
+public class Backpack {
+    // Item states
+    public static final byte NONE = 0;      // Never offered
+    public static final byte COLLECTED = 1; // Carried whole
+    public static final byte PARTIAL = 2;   // Part of it carried
+    public static final byte SKIPPED = 3;   // Seen and left behind
+
+    private final int capacity;
+    private int size = 0;
+
+    // Per-slot state, valid for slots below size
+    private SimpleMarioGame.Item[] items = new SimpleMarioGame.Item[16];
+    private int[] weights = new int[16];     // Weight carried
+    private int[] values = new int[16];      // Value carried
+    private float[] fractions = new float[16]; // Fraction of the item's weight carried
+    private byte[] states = new byte[16];
+
+    // Open addressing by identity: slot + 1, or 0 for an empty bucket
+    private int[] index = new int[32];
+
+    private int totalWeight = 0;
+    private int totalValue = 0;
+    private int carriedCount = 0;
+
+    /**
+     * @param capacity The most weight the backpack holds
+     */
+    public Backpack(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return Whether this much more weight fits
+     */
+    public boolean canFit(int weight) {
+        return totalWeight + weight <= capacity;
+    }
+
+    /**
+     * @return Whether the whole item fits
+     */
+    public boolean canTakeAll(SimpleMarioGame.Item item) {
+        return canFit(item.getWeight());
+    }
+
+    /**
+     * @return The weight that still fits
+     */
+    public int getRemaining() {
+        return capacity - totalWeight;
+    }
+
+    public boolean isFull() {
+        return totalWeight >= capacity;
+    }
+
+    /**
+     * Puts the whole item in the backpack
+     * @param item The item, which must fit
+     */
+    public void takeAll(SimpleMarioGame.Item item) {
+        if (!canTakeAll(item)) {
+            throw new IllegalStateException(item.getName() + " does not fit");
+        }
+        carry(slotFor(item), item.getWeight(), item.getValue(), 1f, COLLECTED);
+    }
+
+    /**
+     * Puts part of the item in the backpack, as much of the fraction as fits.
+     * The value is prorated by weight; both are rounded down. A part that
+     * rounds down to no weight is not carried, and the item counts as skipped.
+     * @param item The item
+     * @param fraction The fraction of its weight to take
+     * @return The weight taken, which is less than asked for if it didn't fit
+     */
+    public int takePart(SimpleMarioGame.Item item, double fraction) {
+        if (isFull()) {
+            throw new IllegalStateException("The backpack is full");
+        }
+        double weight = item.getWeight() * fraction;
+        double value = item.getValue() * fraction;
+        int remaining = getRemaining();
+        if (weight > remaining) {
+            weight = remaining;
+            value = item.getValue() * ((double) remaining / item.getWeight());
+        }
+        if ((int) weight == 0) {
+            skip(item);
+            return 0;
+        }
+        // Of the weight actually carried, so the fraction and state agree with it
+        int taken = (int) weight;
+        float carried = (float) taken / item.getWeight();
+        carry(slotFor(item), taken, (int) value, carried, carried >= 1f ? COLLECTED : PARTIAL);
+        return taken;
+    }
+
+    /**
+     * Records that the item was seen and left behind. Does nothing if it is carried.
+     */
+    public void skip(SimpleMarioGame.Item item) {
+        int slot = slotFor(item);
+        if (!isCarried(states[slot])) {
+            states[slot] = SKIPPED;
+        }
+    }
+
+    /**
+     * Takes an item out of the backpack and leaves it behind; its state
+     * becomes SKIPPED
+     * @return Whether it was in the backpack
+     */
+    public boolean drop(SimpleMarioGame.Item item) {
+        int slot = slotOf(item);
+        if (slot < 0 || !isCarried(states[slot])) return false;
+
+        totalWeight -= weights[slot];
+        totalValue -= values[slot];
+        carriedCount--;
+
+        // The slot stays, so the item still has a state and the index needs no change
+        weights[slot] = 0;
+        values[slot] = 0;
+        fractions[slot] = 0f;
+        states[slot] = SKIPPED;
+        return true;
+    }
+
+    /**
+     * Drops one carried item to make room for the whole of another, if that
+     * makes it fit; otherwise changes nothing
+     * @param dropped The carried item to leave behind
+     * @param taken The item to take instead
+     * @return Whether the swap happened
+     */
+    public boolean swap(SimpleMarioGame.Item dropped, SimpleMarioGame.Item taken) {
+        int slot = slotOf(dropped);
+        if (slot < 0 || !isCarried(states[slot]) || isCarried(taken)) return false;
+        if (totalWeight - weights[slot] + taken.getWeight() > capacity) return false;
+
+        drop(dropped);
+        takeAll(taken);
+        return true;
+    }
+
+    /**
+     * @return One of NONE, COLLECTED, PARTIAL or SKIPPED
+     */
+    public byte stateOf(SimpleMarioGame.Item item) {
+        int slot = slotOf(item);
+        return slot < 0 ? NONE : states[slot];
+    }
+
+    /**
+     * @return Whether all or part of the item is in the backpack
+     */
+    public boolean isCarried(SimpleMarioGame.Item item) {
+        return isCarried(stateOf(item));
+    }
+
+    /**
+     * @return The fraction of the item's weight carried, 0 if none
+     */
+    public float getFraction(SimpleMarioGame.Item item) {
+        int slot = slotOf(item);
+        return slot < 0 || !isCarried(states[slot]) ? 0f : fractions[slot];
+    }
+
+    private static boolean isCarried(byte state) {
+        return state == COLLECTED || state == PARTIAL;
+    }
+
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        Arrays.fill(index, 0);
+        size = 0;
+        totalWeight = 0;
+        totalValue = 0;
+        carriedCount = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getTotalWeight() {
+        return totalWeight;
+    }
+
+    public int getTotalValue() {
+        return totalValue;
+    }
+
+    /**
+     * @return How many items are carried, whole or in part
+     */
+    public int getCarriedCount() {
+        return carriedCount;
+    }
+
+    private void carry(int slot, int weight, int value, float fraction, byte state) {
+        if (isCarried(states[slot])) {
+            // Taken again: replace what was carried before
+            totalWeight -= weights[slot];
+            totalValue -= values[slot];
+            carriedCount--;
+        }
+        weights[slot] = weight;
+        values[slot] = value;
+        fractions[slot] = fraction;
+        states[slot] = state;
+        totalWeight += weight;
+        totalValue += value;
+        carriedCount++;
+    }
+
+    /**
+     * @return The item's slot, or -1 if it has none
+     */
+    private int slotOf(SimpleMarioGame.Item item) {
+        int entry = index[bucketOf(item)];
+        return entry - 1;
+    }
+
+    /**
+     * @return The item's slot, adding an empty one if it has none
+     */
+    private int slotFor(SimpleMarioGame.Item item) {
+        int bucket = bucketOf(item);
+        if (index[bucket] != 0) return index[bucket] - 1;
+
+        if (size == items.length) {
+            int grown = size * 2;
+            items = Arrays.copyOf(items, grown);
+            weights = Arrays.copyOf(weights, grown);
+            values = Arrays.copyOf(values, grown);
+            fractions = Arrays.copyOf(fractions, grown);
+            states = Arrays.copyOf(states, grown);
+        }
+        int slot = size++;
+        items[slot] = item;
+        weights[slot] = 0;
+        values[slot] = 0;
+        fractions[slot] = 0f;
+        states[slot] = NONE;
+
+        // Keep the index at most half full
+        if (size * 2 > index.length) {
+            index = new int[index.length * 2];
+            rebuildIndex();
+        } else {
+            index[bucket] = slot + 1;
+        }
+        return slot;
+    }
+
+    /**
+     * @return The bucket holding the item, or the empty bucket where it would go
+     */
+    private int bucketOf(SimpleMarioGame.Item item) {
+        int mask = index.length - 1;
+        int h = System.identityHashCode(item);
+        int bucket = (h ^ (h >>> 16)) & mask;
+        while (index[bucket] != 0 && items[index[bucket] - 1] != item) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(index, 0);
+        for (int slot = 0; slot < size; slot++) {
+            index[bucketOf(items[slot])] = slot + 1;
+        }
+    }
+}
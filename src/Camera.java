@@ -0,0 +1,38 @@
+/**
+ * The part of a scrolling world that is on screen. It keeps its target in
+ * the middle of the view and stops at the ends of the world.
+ */
+public class Camera {
+    private final int viewWidth;
+    private int x = 0;
+
+    /**
+     * @param viewWidth Width of the view in pixels
+     */
+    public Camera(int viewWidth) {
+        this.viewWidth = viewWidth;
+    }
+
+    /**
+     * Centers the view on a target
+     * @param targetX The target's left edge
+     * @param targetWidth The target's width
+     * @param worldWidth Width of the world, which the view doesn't go past
+     */
+    public void follow(int targetX, int targetWidth, int worldWidth) {
+        x = targetX + targetWidth / 2 - viewWidth / 2;
+        x = Math.max(0, Math.min(x, worldWidth - viewWidth));
+    }
+
+    /** @return The world x coordinate of the view's left edge */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return Whether anything of a span of the world is in view
+     */
+    public boolean isVisible(int left, int width) {
+        return left + width > x && left < x + viewWidth;
+    }
+}
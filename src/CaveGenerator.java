@@ -0,0 +1,415 @@
+import java.awt.event.KeyEvent;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+/**
+ * Builds SimpleMarioGame cave levels from the seed, one section (chunk) at a
+ * time, on ChunkStreamer's background thread.
+ *
+ * Each section is a floor of ground segments with pits between them, and
+ * ledges rising over it in steps. Every pit and every ledge is placed so it
+ * can be reached with a jump from a floor or ledge placed before it, using
+ * the arc JumpReach works out from the game's physics, with some slack left
+ * over, and a ledge too low to land under leaves an end of the floor below
+ * it open. Coins hang over floors and ledges within jumping height and never
+ * inside a platform, and enemies patrol floor segments wide enough for them.
+ * Sections start and end on solid floor, so they join up in any order.
+ * Everything solid is laid on TileMap's grid: positions and sizes are rounded
+ * down to whole tiles, which only ever makes a jump shorter.
+ *
+ * Run with: java -cp src CaveGenerator [sections] [seed] [checked sections]
+ * to measure how many sections per second it builds and check that
+ * everything in them can be reached. The check doesn't trust JumpReach: it
+ * plays the jumps out in a MarioSimulation, so it also catches JumpReach
+ * getting the game's physics wrong.
+ */
+public class CaveGenerator implements ChunkSource {
+    // Fraction of the full jump a level asks for
+    private static final double MARGIN = 0.8;
+
+    private static final int PLATFORM_HEIGHT = 2 * TileMap.SIZE;
+    private static final int GROUND = MarioSimulation.GROUND_LEVEL;
+    // Solid floor at both ends of a section, so neighbours always join
+    private static final int EDGE = 160;
+    // Room for the player to start on in the first section
+    private static final int SPAWN_FLOOR = 400;
+    // Ledges stay this far below the top of the screen, with room for coins above
+    private static final int CEILING = 120;
+
+    private static final int MIN_RISE = PLATFORM_HEIGHT + TileMap.SIZE;
+    private static final int MIN_LEDGE_WIDTH = 96;
+    private static final int MAX_LEDGE_WIDTH = 224;
+    // Under a ledge less than this over the floor there is no landing, so
+    // each floor segment keeps an end this wide clear of such ledges
+    private static final int LOW_LEDGE = MarioSimulation.PLAYER_HEIGHT + 2 * TileMap.SIZE;
+    private static final int OPEN_FLOOR = 96;
+
+    private final JumpReach reach = new JumpReach();
+
+    // Checked the slow way by default, of the sections built
+    private static final int CHECKED_SECTIONS = 500;
+    // Longest a move is followed before giving up on it
+    private static final int MAX_MOVE_TICKS = 240;
+
+    @Override
+    public LevelChunk createChunk(int index, GameRandom random) {
+        LevelChunk chunk = new LevelChunk(index);
+        SplittableRandom layout = random.layout();
+        int left = chunk.getX();
+        int right = left + LevelChunk.WIDTH;
+
+        // Harder further in: wider pits, more enemies
+        double difficulty = Math.min(1.0, index / 50.0);
+
+        // Floor: segments with jumpable pits between them
+        int maxPit = (int) (reach.getMaxDistance(0) * MARGIN);
+        int x = left;
+        int segmentEnd = left + (index == 0 ? SPAWN_FLOOR : EDGE);
+        while (true) {
+            segmentEnd = snap(Math.max(segmentEnd, x + 128 + layout.nextInt(256)));
+            int pit = snap(48 + layout.nextInt(Math.max(1, (int) (16 + (maxPit - 64) * difficulty))));
+            if (segmentEnd + pit > right - EDGE) {
+                // Last segment runs to the end of the section
+                chunk.addPlatform(x, GROUND, right - x, PLATFORM_HEIGHT);
+                break;
+            }
+            chunk.addPlatform(x, GROUND, segmentEnd - x, PLATFORM_HEIGHT);
+            x = segmentEnd + pit;
+        }
+        int floorCount = chunk.getPlatformCount();
+
+        // Ledges: flights of steps, each one jumpable from the one below it
+        int flights = 1 + layout.nextInt(3);
+        for (int flight = 0; flight < flights; flight++) {
+            // Start over a floor segment
+            int base = layout.nextInt(floorCount);
+            int fromX = chunk.platforms[base * 4];
+            int fromWidth = chunk.platforms[base * 4 + 2];
+            int fromY = GROUND;
+            int steps = 1 + layout.nextInt(4);
+            for (int step = 0; step < steps; step++) {
+                if (!addLedge(chunk, layout, floorCount, fromX, fromWidth, fromY, left, right)) break;
+                int at = (chunk.getPlatformCount() - 1) * 4;
+                fromX = chunk.platforms[at];
+                fromWidth = chunk.platforms[at + 2];
+                fromY = chunk.platforms[at + 1];
+            }
+        }
+
+        // Coins over floors and ledges, enemies on wide floor segments
+        for (int i = 0; i < chunk.getPlatformCount() && chunk.getCoinCount() < LevelChunk.MAX_ENTITIES; i++) {
+            int coins = i < floorCount ? layout.nextInt(2) : 1 + layout.nextInt(2);
+            for (int c = 0; c < coins; c++) {
+                addCoin(chunk, random, i);
+            }
+        }
+        SplittableRandom enemies = random.enemies();
+        for (int i = 0; i < floorCount; i++) {
+            int at = i * 4;
+            int segmentX = chunk.platforms[at];
+            int segmentWidth = chunk.platforms[at + 2];
+            boolean spawn = index == 0 && segmentX < SPAWN_FLOOR;
+            if (!spawn && segmentWidth >= EnemyStore.WIDTH * 4 && enemies.nextDouble() < 0.3 + 0.5 * difficulty) {
+                int enemyX = segmentX + enemies.nextInt(segmentWidth - EnemyStore.WIDTH);
+                chunk.addEnemy(enemyX, GROUND - EnemyStore.HEIGHT, segmentX, segmentX + segmentWidth);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Adds a ledge that can be jumped to from a platform, if one fits
+     * @return Whether a ledge was added
+     */
+    private boolean addLedge(LevelChunk chunk, SplittableRandom layout, int floorCount,
+                             int fromX, int fromWidth, int fromY, int left, int right) {
+        int maxRise = (int) (reach.getMaxRise() * MARGIN);
+        // A few tries to find a spot that is reachable and clear of other ledges
+        for (int attempt = 0; attempt < 8; attempt++) {
+            // At least a tile of air under the ledge, so the top of what it rises from stays a top
+            int rise = snap(MIN_RISE + layout.nextInt(Math.max(1, maxRise - MIN_RISE)));
+            int y = fromY - rise;
+            if (y < CEILING) return false;
+
+            int width = snap(MIN_LEDGE_WIDTH + layout.nextInt(MAX_LEDGE_WIDTH - MIN_LEDGE_WIDTH));
+            int gap = snap(layout.nextInt(Math.max(1, (int) (reach.getMaxDistance(rise) * MARGIN))));
+            int x = layout.nextBoolean() ? fromX + fromWidth + gap : fromX - gap - width;
+            x = Math.max(left, Math.min(x, right - width));
+
+            if (reach.canReach(fromX, fromWidth, fromY, x, width, y, MARGIN) && isClear(chunk, x, y, width) &&
+                leavesFloorOpen(chunk, floorCount, x, y, width)) {
+                chunk.addPlatform(x, y, width, PLATFORM_HEIGHT);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A size or offset rounded down to whole tiles
+     */
+    private static int snap(int length) {
+        return length / TileMap.SIZE * TileMap.SIZE;
+    }
+
+    /**
+     * @return Whether a ledge there keeps enough room to every other ledge
+     */
+    private static boolean isClear(LevelChunk chunk, int x, int y, int width) {
+        int room = MarioSimulation.PLAYER_HEIGHT;
+        for (int i = 0; i < chunk.getPlatformCount(); i++) {
+            int at = i * 4;
+            if (chunk.platforms[at + 1] == GROUND) continue;
+            if (x < chunk.platforms[at] + chunk.platforms[at + 2] + 32 && x + width + 32 > chunk.platforms[at] &&
+                Math.abs(y - chunk.platforms[at + 1]) < room) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a ledge too low to stand under keeps an end of every floor
+     * segment under it open, together with the low ledges already there.
+     * Otherwise the floor can only be landed on through a gap narrower than
+     * the player, or not at all.
+     * @return Whether a ledge there leaves the floor under it reachable
+     */
+    private static boolean leavesFloorOpen(LevelChunk chunk, int floorCount, int x, int y, int width) {
+        if (GROUND - y >= LOW_LEDGE) return true;
+        for (int floor = 0; floor < floorCount; floor++) {
+            int floorX = chunk.platforms[floor * 4];
+            int floorEnd = floorX + chunk.platforms[floor * 4 + 2];
+            if (x >= floorEnd || x + width <= floorX) continue;
+            if (isCovered(chunk, floorCount, x, width, floorX, floorX + OPEN_FLOOR) &&
+                isCovered(chunk, floorCount, x, width, floorEnd - OPEN_FLOOR, floorEnd)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether a new ledge or a low ledge already placed overlaps a stretch of floor
+     */
+    private static boolean isCovered(LevelChunk chunk, int floorCount, int x, int width, int from, int to) {
+        if (x < to && x + width > from) return true;
+        for (int i = floorCount; i < chunk.getPlatformCount(); i++) {
+            int at = i * 4;
+            if (GROUND - chunk.platforms[at + 1] < LOW_LEDGE &&
+                chunk.platforms[at] < to && chunk.platforms[at] + chunk.platforms[at + 2] > from) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a coin over a platform, low enough to reach by jumping from it
+     * and not inside any platform
+     */
+    private void addCoin(LevelChunk chunk, GameRandom random, int platform) {
+        SplittableRandom layout = random.layout();
+        int at = platform * 4;
+        int px = chunk.platforms[at];
+        int py = chunk.platforms[at + 1];
+        int pw = chunk.platforms[at + 2];
+        if (pw < CoinStore.SIZE) return;
+
+        // The player's body covers PLAYER_HEIGHT above the top, and a jump adds to that
+        int highest = MarioSimulation.PLAYER_HEIGHT + (int) (reach.getMaxRise() * MARGIN) - CoinStore.SIZE;
+        int coinX = px + layout.nextInt(pw - CoinStore.SIZE + 1);
+        int coinY = py - CoinStore.SIZE - layout.nextInt(highest);
+        if (coinY < 0 || overlapsPlatform(chunk, coinX, coinY)) return;
+        chunk.addCoin(coinX, coinY, MarioSimulation.createRandomItem(random.loot()));
+    }
+
+    private static boolean overlapsPlatform(LevelChunk chunk, int x, int y) {
+        for (int i = 0; i < chunk.getPlatformCount(); i++) {
+            int at = i * 4;
+            if (x < chunk.platforms[at] + chunk.platforms[at + 2] && x + CoinStore.SIZE > chunk.platforms[at] &&
+                y < chunk.platforms[at + 1] + chunk.platforms[at + 3] && y + CoinStore.SIZE > chunk.platforms[at + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that every platform of a section can be reached from its first
+     * floor segment, and every coin touched, by trying every move the player
+     * can make in a simulation of the level: from every place on every
+     * platform reached so far, a jump straight up, to the left and to the
+     * right with the direction held until landing, and from both ends a
+     * walk off the edge.
+     * @param simulation A simulation of a level whose chunk at the section's index has
+     *                   the section's platforms, and no coins or enemies in the way
+     * @param chunk The section
+     * @return The number of things that can't be reached
+     */
+    static int countUnreachable(MarioSimulation simulation, LevelChunk chunk) {
+        int count = chunk.getPlatformCount();
+        boolean[] reached = new boolean[count];
+        boolean[] touched = new boolean[chunk.getCoinCount()];
+        ArrayDeque<Integer> open = new ArrayDeque<>();
+        reached[0] = true;
+        open.add(0);
+        int[] keys = {0, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT};
+        while (!open.isEmpty()) {
+            int from = open.poll() * 4;
+            int standY = chunk.platforms[from + 1] - MarioSimulation.PLAYER_HEIGHT;
+            // Walking moves the player in steps of MOVEMENT_SPEED from a start on one
+            int firstX = Math.floorDiv(chunk.platforms[from] - simulation.getPlayerWidth(),
+                                       MarioSimulation.MOVEMENT_SPEED) + 1;
+            int lastX = Math.floorDiv(chunk.platforms[from] + chunk.platforms[from + 2] - 1,
+                                      MarioSimulation.MOVEMENT_SPEED);
+            int leftmost = Integer.MAX_VALUE;
+            int rightmost = Integer.MIN_VALUE;
+            for (int step = firstX; step <= lastX; step++) {
+                int x = step * MarioSimulation.MOVEMENT_SPEED;
+                // Only places the player can stand on this platform: a tick later they are still there
+                simulation.placePlayer(x, standY);
+                simulation.updateGame();
+                if (simulation.isGameOver() || simulation.getPlayerY() != standY) continue;
+                touchCoins(simulation, chunk, touched);
+                leftmost = Math.min(leftmost, x);
+                rightmost = Math.max(rightmost, x);
+
+                for (int key : keys) {
+                    move(simulation, chunk, x, standY, key, true, reached, touched, open);
+                }
+            }
+            if (leftmost <= rightmost) {
+                move(simulation, chunk, leftmost, standY, KeyEvent.VK_LEFT, false, reached, touched, open);
+                move(simulation, chunk, rightmost, standY, KeyEvent.VK_RIGHT, false, reached, touched, open);
+            }
+        }
+
+        int unreachable = 0;
+        for (boolean r : reached) {
+            if (!r) unreachable++;
+        }
+        for (boolean t : touched) {
+            if (!t) unreachable++;
+        }
+        return unreachable;
+    }
+
+    /**
+     * Plays one move from a place the player stands at until they land
+     * somewhere, and marks the platforms they stand on and the coins they
+     * touch on the way; a walk also crosses onto platforms that leave no
+     * gap to fall in
+     * @param key The direction key held, or 0 for none
+     * @param jump Whether the move starts with a jump; if not, it is a walk
+     */
+    private static void move(MarioSimulation simulation, LevelChunk chunk, int x, int y, int key, boolean jump,
+                             boolean[] reached, boolean[] touched, ArrayDeque<Integer> open) {
+        simulation.placePlayer(x, y);
+        if (key != 0) simulation.keyPressed(key);
+        if (jump) simulation.keyPressed(KeyEvent.VK_SPACE);
+        boolean inAir = false;
+        for (int tick = 0; tick < MAX_MOVE_TICKS; tick++) {
+            simulation.updateGame();
+            if (simulation.isGameOver()) return;
+            touchCoins(simulation, chunk, touched);
+            boolean standing = !simulation.isJumping() && simulation.getPlayerY() == simulation.getPrevPlayerY();
+            if (!standing) {
+                inAir = true;
+                continue;
+            }
+            // On every platform whose top is under the player's feet
+            int feet = simulation.getPlayerY() + MarioSimulation.PLAYER_HEIGHT;
+            int left = simulation.getPlayerX();
+            int right = left + simulation.getPlayerWidth();
+            for (int to = 0; to < reached.length; to++) {
+                int at = to * 4;
+                if (!reached[to] && chunk.platforms[at + 1] == feet &&
+                    left < chunk.platforms[at] + chunk.platforms[at + 2] && right > chunk.platforms[at]) {
+                    reached[to] = true;
+                    open.add(to);
+                }
+            }
+            if (inAir) return;
+        }
+    }
+
+    /**
+     * Marks the coins the player touches where the simulation has them now
+     */
+    private static void touchCoins(MarioSimulation simulation, LevelChunk chunk, boolean[] touched) {
+        int x = simulation.getPlayerX();
+        int y = simulation.getPlayerY();
+        for (int c = 0; c < touched.length; c++) {
+            touched[c] |= x + simulation.getPlayerWidth() > chunk.coinX[c] && x < chunk.coinX[c] + CoinStore.SIZE &&
+                          y + MarioSimulation.PLAYER_HEIGHT > chunk.coinY[c] && y < chunk.coinY[c] + CoinStore.SIZE;
+        }
+    }
+
+    /**
+     * @return A copy of a section with only its platforms, for the simulation the check plays in
+     */
+    private static LevelChunk platformsOf(LevelChunk chunk) {
+        LevelChunk platforms = new LevelChunk(chunk.getIndex());
+        for (int i = 0; i < chunk.getPlatformCount(); i++) {
+            int at = i * 4;
+            platforms.addPlatform(chunk.platforms[at], chunk.platforms[at + 1],
+                                  chunk.platforms[at + 2], chunk.platforms[at + 3]);
+        }
+        return platforms;
+    }
+
+    public static void main(String[] args) {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        CaveGenerator generator = new CaveGenerator();
+        GameRandom random = new GameRandom(seed);
+
+        // Warm up, then time building the sections alone
+        for (int i = 0; i < 2000; i++) {
+            generator.createChunk(i, random.forChunk(1, i));
+        }
+        long start = System.nanoTime();
+        long platforms = 0;
+        long coins = 0;
+        long enemies = 0;
+        for (int i = 0; i < sections; i++) {
+            LevelChunk chunk = generator.createChunk(i, random.forChunk(0, i));
+            platforms += chunk.getPlatformCount();
+            coins += chunk.getCoinCount();
+            enemies += chunk.getEnemyCount();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Built %,d sections in %.1f ms: %,.0f sections/s, %.1f us each "
+                          + "(%.1f platforms, %.1f coins, %.1f enemies per section)%n",
+                          sections, nanos / 1e6, sections / (nanos / 1e9), nanos / 1e3 / sections,
+                          (double) platforms / sections, (double) coins / sections, (double) enemies / sections);
+
+        // Check again, the slow way, that nothing was put out of reach: by jumping
+        // about in a level of the same sections, without their coins and enemies.
+        // One more section follows the last one checked, so the level doesn't end there.
+        int checked = args.length > 2 ? Integer.parseInt(args[2]) : Math.min(sections, CHECKED_SECTIONS);
+        MarioSimulation simulation = new MarioSimulation(new GameRandom(seed),
+                                                         (index, chunkRandom) ->
+                                                             platformsOf(generator.createChunk(index, chunkRandom)),
+                                                         checked + 1, false, new AnimationSet());
+        simulation.setPlayerWidth(MarioSimulation.DEFAULT_PLAYER_WIDTH);
+        start = System.nanoTime();
+        long checkedThings = 0;
+        long unreachable = 0;
+        for (int i = 0; i < checked; i++) {
+            LevelChunk chunk = generator.createChunk(i, random.forChunk(0, i));
+            checkedThings += chunk.getPlatformCount() + chunk.getCoinCount();
+            unreachable += countUnreachable(simulation, chunk);
+        }
+        System.out.printf("Played the jumps of %,d sections in %.1f s: %s%n", checked,
+                          (System.nanoTime() - start) / 1e9,
+                          unreachable == 0 ? "all " + checkedThings + " platforms and coins can be reached"
+                                           : unreachable + " of " + checkedThings
+                                             + " platforms and coins can't be reached");
+        JumpReach reach = generator.reach;
+        System.out.printf("Jump: %d px high and %d px across; levels ask for at most %d and %d%n",
+                          reach.getMaxRise(), reach.getMaxDistance(0),
+                          (int) (reach.getMaxRise() * MARGIN), (int) (reach.getMaxDistance(0) * MARGIN));
+    }
+}
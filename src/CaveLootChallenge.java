@@ -2,8 +2,6 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -12,10 +10,28 @@ public class CaveLootChallenge extends JFrame {
     private static final int WINDOW_HEIGHT = 600;
     private static final int MAX_BACKPACK_CAPACITY = 50;
     
-    private int currentBackpackWeight = 0;
-    private int totalValue = 0;
-    private Queue<Item> treasureQueue;
-    private Item currentItem;
+    // The rules and state of the current game
+    private LootGameEngine engine;
+    
+    // Seeded randomness for the treasure order and the advisor (-Dcave.seed to replay a session)
+    private final GameRandom random = GameRandom.forSession("Cave Loot Challenge");
+    
+    // Recommends a choice for each item; shown when enabled in the item dialog
+    private LootAdvisor advisor;
+    private boolean showAdvisor = Boolean.getBoolean("cave.advisor");
+    
+    // Repaint only the labels, progress bar and item cell that changed;
+    // -Dcave.fullRepaint=true repaints the whole window after every change instead
+    private final boolean fullRepaint = Boolean.getBoolean("cave.fullRepaint");
+    
+    // Prints the repaint and CPU cost of every choice (-Dcave.repaintStats=true)
+    private final RepaintMeter repaintMeter = Boolean.getBoolean("cave.repaintStats")
+        ? new RepaintMeter(fullRepaint ? "full repaint" : "dirty regions") : null;
+    
+    // Where ItemPanel draws the item
+    private static final int ITEM_X = 50;
+    private static final int ITEM_Y = 20;
+    private static final int ITEM_SIZE = 100;
     
     private JPanel gamePanel;
     private JLabel statusLabel;
@@ -29,7 +45,7 @@ public class CaveLootChallenge extends JFrame {
     private JButton skipButton;
     private JProgressBar backpackBar;
     private ItemPanel itemDisplayPanel;
-    private Image backgroundImage;
+    private ScaledBackground background;
     
     public CaveLootChallenge() {
         // Set up the window
@@ -41,10 +57,13 @@ public class CaveLootChallenge extends JFrame {
         
         // Load background image
         try {
-            File backgroundFile = new File("c:\\CaveGame\\Background\\Background Complete.png");
-            System.out.println("Loading background from: " + backgroundFile.getAbsolutePath());
-            System.out.println("File exists: " + backgroundFile.exists());
-            backgroundImage = ImageIO.read(backgroundFile);
+            String backgroundPath = "Background/Background Complete.png";
+            System.out.println("Loading background from: " + Assets.file(backgroundPath).getAbsolutePath());
+            BufferedImage backgroundImage = CompatibleImages.toCompatible(Assets.read(backgroundPath));
+            if (backgroundImage != null) {
+                // Scaled to the panel once instead of on every repaint
+                background = new ScaledBackground(backgroundImage);
+            }
         } catch (IOException e) {
             System.out.println("Could not load background image: " + e.getMessage());
             e.printStackTrace();
@@ -62,25 +81,9 @@ public class CaveLootChallenge extends JFrame {
     }
     
     private void initializeGame() {
-        // Create a queue of treasure items
-        treasureQueue = new LinkedList<>();
-        
-        // Add some sample treasures
-        treasureQueue.add(new Item("Gold Nugget", 10, 5, "Resources"));
-        treasureQueue.add(new Item("Ancient Relic", 20, 8, "Esoteric"));
-        treasureQueue.add(new Item("Gemstone", 15, 3, "Resources"));
-        treasureQueue.add(new Item("Magic Scroll", 25, 1, "Esoteric"));
-        treasureQueue.add(new Item("Silver Chalice", 18, 7, "Dungeon_Props"));
-        treasureQueue.add(new Item("Enchanted Sword", 30, 12, "Tools"));
-        treasureQueue.add(new Item("Crystal Orb", 22, 10, "Esoteric"));
-        treasureQueue.add(new Item("Golden Crown", 35, 8, "Dungeon_Props"));
-        treasureQueue.add(new Item("Rare Spices", 12, 2, "Resources"));
-        treasureQueue.add(new Item("Ancient Coin", 8, 1, "Resources"));
-        
-        // Shuffle the treasures for randomness
-        ArrayList<Item> tempList = new ArrayList<>(treasureQueue);
-        Collections.shuffle(tempList);
-        treasureQueue = new LinkedList<>(tempList);
+        // Start a game with the treasures in a random order
+        engine = LootGameEngine.newGame(random.loot());
+        advisor = new LootAdvisor(engine.getItems(), MAX_BACKPACK_CAPACITY, random.loot().split());
     }
     
     private void createGameUI() {
@@ -88,15 +91,20 @@ public class CaveLootChallenge extends JFrame {
         gamePanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                // Draw the background image if available
-                if (backgroundImage != null) {
-                    g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+                long start = System.nanoTime();
+                // Draw the background image if available; it covers the whole
+                // panel, so there is no need to clear it first. Only the clip,
+                // the area that changed, is actually copied.
+                if (background != null) {
+                    background.draw(g, getWidth(), getHeight());
                 } else {
                     // Fallback background
                     g.setColor(new Color(50, 30, 10));
                     g.fillRect(0, 0, getWidth(), getHeight());
                 }
+                if (repaintMeter != null) {
+                    repaintMeter.painted(g.getClipBounds(), System.nanoTime() - start);
+                }
             }
         };
         
@@ -188,8 +196,7 @@ public class CaveLootChallenge extends JFrame {
     }
     
     private void nextItem() {
-        if (!treasureQueue.isEmpty()) {
-            currentItem = treasureQueue.poll();
+        if (engine.nextItem() != null) {
             updateItemDisplay();
             updateButtons();
             // Show the interaction dialog for the current item
@@ -200,6 +207,7 @@ public class CaveLootChallenge extends JFrame {
     }
     
     private void showItemInteractionDialog() {
+        Item currentItem = engine.getCurrentItem();
         if (currentItem == null) return;
         
         // Create a panel for the dialog
@@ -221,14 +229,28 @@ public class CaveLootChallenge extends JFrame {
         // Add the info panel to the dialog panel
         dialogPanel.add(infoPanel, BorderLayout.CENTER);
         
+        // Advisor recommendation, toggled with the checkbox
+        JPanel advisorPanel = new JPanel(new GridLayout(2, 1, 5, 5));
+        JCheckBox advisorBox = new JCheckBox("Show advisor", showAdvisor);
+        JLabel adviceLabel = new JLabel(" ");
+        advisorPanel.add(advisorBox);
+        advisorPanel.add(adviceLabel);
+        dialogPanel.add(advisorPanel, BorderLayout.SOUTH);
+        
+        advisorBox.addActionListener(e -> {
+            showAdvisor = advisorBox.isSelected();
+            updateAdvice(adviceLabel);
+        });
+        updateAdvice(adviceLabel);
+        
         // Create options
         Object[] options;
         
         // Determine available options based on backpack capacity
-        if (currentBackpackWeight + currentItem.getWeight() <= MAX_BACKPACK_CAPACITY) {
+        if (engine.canTakeAll()) {
             // Can take all
             options = new Object[]{"Take All", "Take Part", "Skip"};
-        } else if (currentBackpackWeight < MAX_BACKPACK_CAPACITY) {
+        } else if (engine.canTakePart()) {
             // Can only take part
             options = new Object[]{"Take Part", "Skip"};
         } else {
@@ -249,6 +271,9 @@ public class CaveLootChallenge extends JFrame {
         );
         
         // Process the user's choice
+        if (repaintMeter != null) {
+            repaintMeter.begin(choice >= 0 ? options[choice].toString() : "Close");
+        }
         if (choice == 0) {
             if (options[0].equals("Take All")) {
                 takeAll();
@@ -269,9 +294,37 @@ public class CaveLootChallenge extends JFrame {
             // Dialog was closed without selection, treat as skip
             skipItem();
         }
+        
+        // Finish measuring once the repaints caused by the choice are done
+        if (repaintMeter != null) {
+            SwingUtilities.invokeLater(repaintMeter::end);
+        }
+        
+        // Move on to the next item once this event is handled, so each item's
+        // dialog starts from an empty stack; it ends the game if this choice did
+        SwingUtilities.invokeLater(this::nextItem);
+    }
+    
+    /**
+     * Shows the advisor's recommendation for the current item, or clears it
+     * @param adviceLabel The label to update
+     */
+    private void updateAdvice(JLabel adviceLabel) {
+        if (!showAdvisor || engine.getCurrentItem() == null) {
+            adviceLabel.setText(" ");
+            return;
+        }
+        
+        // The unseen items are the rest of the queue; their order is not used
+        LootAdvisor.Advice advice = advisor.recommend(engine.getCurrentItem(), engine.getWeight(),
+                                                       engine.getRemainingItems());
+        adviceLabel.setText(String.format("<html>Advisor: <b>%s</b><br>%s (%.2f ms)</html>",
+                                          advice.getActionName(), advice.getReason(),
+                                          advice.getNanos() / 1_000_000.0));
     }
     
     private void updateItemDisplay() {
+        Item currentItem = engine.getCurrentItem();
         if (currentItem != null) {
             itemNameLabel.setText("Item: " + currentItem.getName());
             itemWeightLabel.setText("Weight: " + currentItem.getWeight());
@@ -279,71 +332,70 @@ public class CaveLootChallenge extends JFrame {
             statusLabel.setText("You found a " + currentItem.getName() + "!");
             
             if (itemDisplayPanel != null) {
-                itemDisplayPanel.repaint();
+                // Only the item cell changes
+                itemDisplayPanel.repaint(ITEM_X, ITEM_Y, ITEM_SIZE + 1, ITEM_SIZE + 1);
             }
+            repaintAllIfFull();
         }
     }
     
     private void updateButtons() {
         // Update button states for compatibility (even though we're using dialogs now)
-        takeAllButton.setEnabled(currentBackpackWeight + currentItem.getWeight() <= MAX_BACKPACK_CAPACITY);
-        takePartialButton.setEnabled(currentBackpackWeight < MAX_BACKPACK_CAPACITY && 
-                                    currentBackpackWeight + currentItem.getWeight() > MAX_BACKPACK_CAPACITY);
+        takeAllButton.setEnabled(engine.canTakeAll());
+        takePartialButton.setEnabled(engine.canTakePart() && !engine.canTakeAll());
     }
     
     private void updateGameStatus() {
-        weightLabel.setText("Backpack: " + currentBackpackWeight + "/" + MAX_BACKPACK_CAPACITY);
-        valueLabel.setText("Total Value: " + totalValue);
-        backpackBar.setValue(currentBackpackWeight);
+        weightLabel.setText("Backpack: " + engine.getWeight() + "/" + MAX_BACKPACK_CAPACITY);
+        valueLabel.setText("Total Value: " + engine.getValue());
+        backpackBar.setValue(engine.getWeight());
         
         // Update the color of the progress bar based on capacity
-        if (currentBackpackWeight > MAX_BACKPACK_CAPACITY * 0.75) {
+        if (engine.getWeight() > MAX_BACKPACK_CAPACITY * 0.75) {
             backpackBar.setForeground(Color.RED);
-        } else if (currentBackpackWeight > MAX_BACKPACK_CAPACITY * 0.5) {
+        } else if (engine.getWeight() > MAX_BACKPACK_CAPACITY * 0.5) {
             backpackBar.setForeground(Color.ORANGE);
         } else {
             backpackBar.setForeground(new Color(0, 150, 0));
         }
+        repaintAllIfFull();
+    }
+    
+    /**
+     * The labels, progress bar and item cell repaint just themselves when they
+     * change. In full repaint mode the whole window is repainted as well.
+     */
+    private void repaintAllIfFull() {
+        if (fullRepaint && gamePanel != null) {
+            gamePanel.repaint();
+        }
     }
     
     private void takeAll() {
-        if (currentItem != null) {
-            currentBackpackWeight += currentItem.getWeight();
-            totalValue += currentItem.getValue();
-            statusLabel.setText("You took the " + currentItem.getName() + "!");
+        if (engine.canTakeAll()) {
+            engine.takeAll();
+            statusLabel.setText("You took the " + engine.getCurrentItem().getName() + "!");
             updateGameStatus();
             
-            // Check if the backpack is now full
-            if (currentBackpackWeight >= MAX_BACKPACK_CAPACITY) {
-                gameOver();
-                return;
-            }
-            
-            // Don't call nextItem() here as it's handled by the dialog
+            // Don't call nextItem() here as it's handled by the dialog; it also
+            // ends the game if the backpack is now full
         }
     }
     
     private void takePartial() {
-        if (currentItem != null) {
-            // Calculate how much we can take
-            int remainingCapacity = MAX_BACKPACK_CAPACITY - currentBackpackWeight;
-            double proportion = (double)remainingCapacity / currentItem.getWeight();
-            int partialValue = (int)(currentItem.getValue() * proportion);
+        if (engine.canTakePart()) {
+            // Fill the rest of the backpack with part of the item
+            int partialValue = engine.takePartial();
             
-            currentBackpackWeight += remainingCapacity;
-            totalValue += partialValue;
-            
-            statusLabel.setText("You took part of the " + currentItem.getName() + " worth " + partialValue + "!");
+            statusLabel.setText("You took part of the " + engine.getCurrentItem().getName() + " worth " + partialValue + "!");
             updateGameStatus();
-            
-            // The backpack is now full, so end the game
-            gameOver();
         }
     }
     
     private void skipItem() {
-        if (currentItem != null) {
-            statusLabel.setText("You skipped the " + currentItem.getName() + ".");
+        if (engine.getCurrentItem() != null) {
+            engine.skip();
+            statusLabel.setText("You skipped the " + engine.getCurrentItem().getName() + ".");
             // Don't call nextItem() here as it's handled by the dialog
         }
     }
@@ -356,7 +408,7 @@ public class CaveLootChallenge extends JFrame {
         
         // Determine the game over message
         String message;
-        if (treasureQueue.isEmpty() && currentBackpackWeight < MAX_BACKPACK_CAPACITY) {
+        if (engine.getRemainingItems().isEmpty() && engine.getWeight() < MAX_BACKPACK_CAPACITY) {
             message = "You've collected all available treasures!";
         } else {
             message = "Your backpack is full!";
@@ -364,8 +416,9 @@ public class CaveLootChallenge extends JFrame {
         
         statusLabel.setText(message);
         JOptionPane.showMessageDialog(this, 
-            "Game Over!\nTotal Value Collected: " + totalValue + 
-            "\nBackpack Weight: " + currentBackpackWeight + "/" + MAX_BACKPACK_CAPACITY, 
+            "Game Over!\nTotal Value Collected: " + engine.getValue() + 
+            "\nBackpack Weight: " + engine.getWeight() + "/" + MAX_BACKPACK_CAPACITY + 
+            "\n\n" + getOptimumSummary(), 
             "GAME OVER!", 
             JOptionPane.INFORMATION_MESSAGE);
         
@@ -382,11 +435,22 @@ public class CaveLootChallenge extends JFrame {
         }
     }
     
+    /**
+     * Compares the player's loot with the best possible loot from the same items
+     * @return A short summary for the game over message
+     */
+    private String getOptimumSummary() {
+        // Taking part of an item is allowed, so the fractional optimum is the real best
+        LootSolver.Solution best = LootSolver.fractional(engine.getItems(), MAX_BACKPACK_CAPACITY);
+        LootSolver.Solution bestWhole = LootSolver.solve(engine.getItems(), MAX_BACKPACK_CAPACITY);
+        
+        double percent = best.getValue() > 0 ? 100.0 * engine.getValue() / best.getValue() : 100.0;
+        return String.format("Best possible value: %.1f (%d with whole items only)" +
+                             "\nYou collected %.1f%% of the best possible value.",
+                             best.getValue(), (int) bestWhole.getValue(), percent);
+    }
+    
     private void resetGame() {
-        // Reset game state
-        currentBackpackWeight = 0;
-        totalValue = 0;
-        
         // Reinitialize the game
         initializeGame();
         
@@ -407,6 +471,10 @@ public class CaveLootChallenge extends JFrame {
             e.printStackTrace();
         }
         
+        // Report how well the item sprite cache worked on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+            System.out.println(ItemRenderer.getSpriteCache().getSummary())));
+        
         // Start the game
         SwingUtilities.invokeLater(() -> new CaveLootChallenge());
     }
@@ -425,27 +493,29 @@ public class CaveLootChallenge extends JFrame {
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
             
+            Item currentItem = engine.getCurrentItem();
             if (currentItem != null) {
                 try {
                     // Try to use the ItemRenderer to draw the item
-                    ItemRenderer.drawItem(g, currentItem, 50, 20, 100, 100);
+                    ItemRenderer.drawItem(g, currentItem, ITEM_X, ITEM_Y, ITEM_SIZE, ITEM_SIZE);
                 } catch (Exception e) {
                     // Fallback if the ItemRenderer fails
-                    drawFallbackItem(g);
+                    drawFallbackItem(g, currentItem);
                     e.printStackTrace();
                 }
             }
         }
         
-        private void drawFallbackItem(Graphics g) {
+        private void drawFallbackItem(Graphics g, Item currentItem) {
             // Draw a simple representation of the item
             g.setColor(Color.YELLOW);
-            g.fillOval(50, 20, 100, 100);
+            g.fillOval(ITEM_X, ITEM_Y, ITEM_SIZE, ITEM_SIZE);
             g.setColor(Color.BLACK);
-            g.drawOval(50, 20, 100, 100);
+            g.drawOval(ITEM_X, ITEM_Y, ITEM_SIZE, ITEM_SIZE);
             
             // Draw the item name
-            drawCenteredString(g, currentItem.getName(), 100, 70, new Font("Arial", Font.BOLD, 12));
+            drawCenteredString(g, currentItem.getName(), ITEM_X + ITEM_SIZE / 2, ITEM_Y + ITEM_SIZE / 2,
+                               new Font("Arial", Font.BOLD, 12));
         }
         
         private void drawCenteredString(Graphics g, String text, int x, int y, Font font) {
@@ -0,0 +1,15 @@
+/**
+ * Produces the chunks of a SimpleMarioGame level, by generating or loading
+ * them. Called on ChunkStreamer's background thread, one chunk at a time.
+ */
+public interface ChunkSource {
+    /**
+     * Creates one chunk. The result may depend on the index and the random
+     * streams only, never on which chunks were created before, so chunks can
+     * be created in any order and again after they were evicted.
+     * @param index The chunk's position in the level, counted from the left
+     * @param random Randomness for this chunk alone
+     * @return The chunk
+     */
+    LevelChunk createChunk(int index, GameRandom random);
+}
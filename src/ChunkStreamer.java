@@ -0,0 +1,192 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the chunks around the player ready: chunks ahead are created on a
+ * background thread before the player gets there, and chunks far behind are
+ * dropped, so only a fixed window of chunks is ever held no matter how long
+ * the level is.
+ *
+ * Which coins were taken and which enemies were beaten is kept per chunk as
+ * two bit masks that outlive the chunk itself, so a chunk that is created
+ * again after being dropped comes back as the player left it.
+ *
+ * All methods except the chunk creation run on the simulation thread.
+ */
+public class ChunkStreamer {
+    // Chunks created ahead of and behind the player's chunk
+    private static final int PREFETCH_AHEAD = 3;
+    private static final int PREFETCH_BEHIND = 2;
+    // Chunks held before they are dropped; a bit more than prefetched, so
+    // walking back and forth over a chunk edge doesn't create them again
+    private static final int KEEP_AHEAD = 4;
+    private static final int KEEP_BEHIND = 3;
+
+    private final ChunkSource source;
+    private final GameRandom random;
+    private final int chunkCount;
+    private final ExecutorService executor;
+    private int level = 0;
+
+    private final Map<Integer, CompletableFuture<LevelChunk>> chunks = new HashMap<>();
+
+    // Coins taken and enemies beaten, one bit per coin or enemy, by chunk index
+    private long[] coinMasks = new long[16];
+    private long[] enemyMasks = new long[16];
+
+    // Statistics
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong createNanos = new AtomicLong();
+    private int waits = 0;
+
+    /**
+     * @param source Creates the chunks
+     * @param random The session's randomness; each chunk gets streams of its own
+     * @param chunkCount Number of chunks in the level
+     */
+    public ChunkStreamer(ChunkSource source, GameRandom random, int chunkCount) {
+        this.source = source;
+        this.random = random;
+        this.chunkCount = chunkCount;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChunkStreamer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts creating the chunks around a chunk that aren't there yet, nearest
+     * first, and drops the ones too far away
+     * @param center The chunk the player is in
+     */
+    public void prefetch(int center) {
+        Iterator<Map.Entry<Integer, CompletableFuture<LevelChunk>>> it = chunks.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<LevelChunk>> entry = it.next();
+            int index = entry.getKey();
+            if (index < center - KEEP_BEHIND || index > center + KEEP_AHEAD) {
+                entry.getValue().cancel(false);
+                it.remove();
+            }
+        }
+
+        for (int distance = 0; distance <= Math.max(PREFETCH_AHEAD, PREFETCH_BEHIND); distance++) {
+            if (distance <= PREFETCH_AHEAD) request(center + distance);
+            if (distance > 0 && distance <= PREFETCH_BEHIND) request(center - distance);
+        }
+    }
+
+    /**
+     * Returns a chunk, waiting for it to be created if it isn't ready yet
+     * @param index The chunk's index, within the level
+     * @throws IndexOutOfBoundsException If the level has no such chunk
+     */
+    public LevelChunk get(int index) {
+        CompletableFuture<LevelChunk> future = request(index);
+        if (future == null) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + chunkCount);
+        }
+        if (!future.isDone()) {
+            waits++;
+        }
+        return future.join();
+    }
+
+    private CompletableFuture<LevelChunk> request(int index) {
+        if (index < 0 || index >= chunkCount) return null;
+        CompletableFuture<LevelChunk> future = chunks.get(index);
+        if (future == null) {
+            // Each chunk's randomness depends only on the seed, the level and its index
+            GameRandom chunkRandom = random.forChunk(level, index);
+            future = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                LevelChunk chunk = source.createChunk(index, chunkRandom);
+                createNanos.addAndGet(System.nanoTime() - start);
+                created.incrementAndGet();
+                return chunk;
+            }, executor);
+            chunks.put(index, future);
+        }
+        return future;
+    }
+
+    /**
+     * Drops every chunk and forgets what was taken, for a new level
+     * @param level The level number, which changes what the chunks hold
+     */
+    public void reset(int level) {
+        this.level = level;
+        for (CompletableFuture<LevelChunk> future : chunks.values()) {
+            future.cancel(false);
+        }
+        chunks.clear();
+        Arrays.fill(coinMasks, 0);
+        Arrays.fill(enemyMasks, 0);
+    }
+
+    /**
+     * @return Whether a coin of a chunk was taken
+     */
+    public boolean isCoinTaken(int chunk, int slot) {
+        return chunk < coinMasks.length && (coinMasks[chunk] & 1L << slot) != 0;
+    }
+
+    public void markCoinTaken(int chunk, int slot) {
+        ensureMasks(chunk);
+        coinMasks[chunk] |= 1L << slot;
+    }
+
+    /**
+     * @return Whether an enemy of a chunk was beaten
+     */
+    public boolean isEnemyBeaten(int chunk, int slot) {
+        return chunk < enemyMasks.length && (enemyMasks[chunk] & 1L << slot) != 0;
+    }
+
+    public void markEnemyBeaten(int chunk, int slot) {
+        ensureMasks(chunk);
+        enemyMasks[chunk] |= 1L << slot;
+    }
+
+    private void ensureMasks(int chunk) {
+        if (chunk >= coinMasks.length) {
+            int grown = Math.max(chunk + 1, coinMasks.length * 2);
+            coinMasks = Arrays.copyOf(coinMasks, grown);
+            enemyMasks = Arrays.copyOf(enemyMasks, grown);
+        }
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /** @return How many chunks are held, created or on their way */
+    public int getHeldCount() {
+        return chunks.size();
+    }
+
+    /** @return How many chunks were created since the game started */
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    /** @return Chunks created per second of time spent creating them */
+    public double getCreateRate() {
+        long nanos = createNanos.get();
+        return nanos == 0 ? 0 : created.get() / (nanos / 1e9);
+    }
+
+    /** @return How often the simulation had to wait for a chunk */
+    public int getWaitCount() {
+        return waits;
+    }
+}
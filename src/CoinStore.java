@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/**
+ * Stores the treasure coins of SimpleMarioGame as parallel arrays.
+ * Removing a coin is O(1): the last coin is moved into the freed slot,
+ * so indices are not stable across removals.
+ */
+public class CoinStore {
+    public static final int SIZE = 20;
+
+    private int size = 0;
+
+    // Per-coin state, valid for indices below size
+    int[] x = new int[16];
+    int[] y = new int[16];
+    SimpleMarioGame.Item[] items = new SimpleMarioGame.Item[16]; // Associated treasure items
+    int[] gridHandle = new int[16]; // Handle in the collision grid
+    int[] chunk = new int[16]; // Index of the level chunk it belongs to
+    int[] slot = new int[16]; // Number of the coin within its chunk
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a coin
+     * @return The index of the new coin
+     */
+    public int add(int coinX, int coinY, SimpleMarioGame.Item item) {
+        if (size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            items = Arrays.copyOf(items, capacity);
+            gridHandle = Arrays.copyOf(gridHandle, capacity);
+            chunk = Arrays.copyOf(chunk, capacity);
+            slot = Arrays.copyOf(slot, capacity);
+        }
+        int index = size++;
+        x[index] = coinX;
+        y[index] = coinY;
+        items[index] = item;
+        gridHandle[index] = -1;
+        chunk[index] = 0;
+        slot[index] = 0;
+        return index;
+    }
+
+    /**
+     * Removes a coin by moving the last one into its slot
+     * @param index The coin to remove
+     * @return The previous index of the coin that now lives at index,
+     *         or -1 if the removed coin was the last one
+     */
+    public int remove(int index) {
+        int last = --size;
+        items[index] = null;
+        if (index == last) return -1;
+
+        x[index] = x[last];
+        y[index] = y[last];
+        items[index] = items[last];
+        gridHandle[index] = gridHandle[last];
+        chunk[index] = chunk[last];
+        slot[index] = slot[last];
+        items[last] = null;
+        return last;
+    }
+
+    /**
+     * @return The index of the coin holding an item, or -1 if there is none
+     */
+    public int indexOf(SimpleMarioGame.Item item) {
+        for (int i = 0; i < size; i++) {
+            if (items[i] == item) return i;
+        }
+        return -1;
+    }
+
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Random;
+
+/**
+ * Measures the collision cost per tick as the number of entities grows,
+ * comparing the SpatialGrid broadphase with testing every pair.
+ *
+ * Each tick every enemy patrols like the game's orcs, its grid entry is
+ * updated, and it is tested against the other enemies and the platforms; the
+ * player is tested against platforms, coins and enemies. Entity density stays
+ * the same as the level gets longer, as it would in a large procedural level.
+ *
+ * Run with: java -cp src CollisionBenchmark
+ */
+public class CollisionBenchmark {
+    private static final int LAYER_PLATFORM = 1;
+    private static final int LAYER_COIN = 2;
+    private static final int LAYER_ENEMY = 4;
+
+    private static final int WORLD_HEIGHT = 600;
+    private static final int ENEMY_SIZE = 60;
+    private static final int COIN_SIZE = 20;
+    private static final int PLATFORM_WIDTH = 150;
+    private static final int PLATFORM_HEIGHT = 30;
+    private static final int PLAYER_WIDTH = 50;
+    private static final int PLAYER_HEIGHT = 70;
+
+    // Brute force is quadratic; skip it where it would take minutes
+    private static final int BRUTE_FORCE_LIMIT = 10_000;
+
+    private final int worldWidth;
+    private final int platformCount, coinCount, enemyCount;
+    private final int[] platformX, platformY;
+    private final int[] coinX, coinY;
+    private final int[] enemyX, enemyY, enemySpeed, enemyHandle;
+    private final int playerX, playerY;
+
+    private CollisionBenchmark(int entities, long seed) {
+        Random random = new Random(seed);
+        worldWidth = Math.max(800, entities * 80);
+        platformCount = Math.max(1, entities / 10);
+        coinCount = Math.max(1, entities * 4 / 10);
+        enemyCount = entities - platformCount - coinCount;
+
+        platformX = new int[platformCount];
+        platformY = new int[platformCount];
+        for (int i = 0; i < platformCount; i++) {
+            platformX[i] = random.nextInt(worldWidth - PLATFORM_WIDTH);
+            platformY[i] = 200 + random.nextInt(WORLD_HEIGHT - 300);
+        }
+
+        coinX = new int[coinCount];
+        coinY = new int[coinCount];
+        for (int i = 0; i < coinCount; i++) {
+            coinX[i] = random.nextInt(worldWidth - COIN_SIZE);
+            coinY[i] = 100 + random.nextInt(WORLD_HEIGHT - 300);
+        }
+
+        enemyX = new int[enemyCount];
+        enemyY = new int[enemyCount];
+        enemySpeed = new int[enemyCount];
+        enemyHandle = new int[enemyCount];
+        for (int i = 0; i < enemyCount; i++) {
+            enemyX[i] = random.nextInt(worldWidth - ENEMY_SIZE);
+            enemyY[i] = 100 + random.nextInt(WORLD_HEIGHT - 200);
+            enemySpeed[i] = random.nextBoolean() ? 2 : -2;
+        }
+
+        playerX = worldWidth / 2;
+        playerY = WORLD_HEIGHT / 2;
+    }
+
+    private void moveEnemies() {
+        for (int i = 0; i < enemyCount; i++) {
+            enemyX[i] += enemySpeed[i];
+            if (enemyX[i] > worldWidth - ENEMY_SIZE || enemyX[i] < 0) {
+                enemySpeed[i] = -enemySpeed[i];
+            }
+        }
+    }
+
+    private static boolean overlaps(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        return ax + aw > bx && ax < bx + bw && ay + ah > by && ay < by + bh;
+    }
+
+    /** Runs one tick with the grid, returning the number of overlapping pairs */
+    private long tickGrid(SpatialGrid grid, SpatialGrid.Results results) {
+        moveEnemies();
+        for (int i = 0; i < enemyCount; i++) {
+            grid.update(enemyHandle[i], enemyX[i], enemyY[i], ENEMY_SIZE, ENEMY_SIZE);
+        }
+
+        long pairs = 0;
+        for (int i = 0; i < enemyCount; i++) {
+            int found = grid.query(LAYER_ENEMY | LAYER_PLATFORM, enemyX[i], enemyY[i], ENEMY_SIZE, ENEMY_SIZE, results);
+            for (int r = 0; r < found; r++) {
+                int handle = results.get(r);
+                if (handle == enemyHandle[i]) continue;
+                int data = grid.getData(handle);
+                if (data < 0) {
+                    int p = -data - 1;
+                    if (overlaps(enemyX[i], enemyY[i], ENEMY_SIZE, ENEMY_SIZE,
+                                 platformX[p], platformY[p], PLATFORM_WIDTH, PLATFORM_HEIGHT)) pairs++;
+                } else if (overlaps(enemyX[i], enemyY[i], ENEMY_SIZE, ENEMY_SIZE,
+                                    enemyX[data], enemyY[data], ENEMY_SIZE, ENEMY_SIZE)) {
+                    pairs++;
+                }
+            }
+        }
+
+        int found = grid.query(LAYER_PLATFORM, playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, results);
+        for (int r = 0; r < found; r++) {
+            int p = -grid.getData(results.get(r)) - 1;
+            if (overlaps(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT,
+                         platformX[p], platformY[p], PLATFORM_WIDTH, PLATFORM_HEIGHT)) pairs++;
+        }
+        found = grid.query(LAYER_COIN, playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, results);
+        for (int r = 0; r < found; r++) {
+            int c = grid.getData(results.get(r));
+            if (overlaps(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT,
+                         coinX[c], coinY[c], COIN_SIZE, COIN_SIZE)) pairs++;
+        }
+        found = grid.query(LAYER_ENEMY, playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, results);
+        for (int r = 0; r < found; r++) {
+            int e = grid.getData(results.get(r));
+            if (overlaps(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT,
+                         enemyX[e], enemyY[e], ENEMY_SIZE, ENEMY_SIZE)) pairs++;
+        }
+        return pairs;
+    }
+
+    /** Runs one tick testing every pair, returning the number of overlapping pairs */
+    private long tickBruteForce() {
+        moveEnemies();
+
+        long pairs = 0;
+        for (int i = 0; i < enemyCount; i++) {
+            for (int j = 0; j < enemyCount; j++) {
+                if (i != j && overlaps(enemyX[i], enemyY[i], ENEMY_SIZE, ENEMY_SIZE,
+                                       enemyX[j], enemyY[j], ENEMY_SIZE, ENEMY_SIZE)) pairs++;
+            }
+            for (int p = 0; p < platformCount; p++) {
+                if (overlaps(enemyX[i], enemyY[i], ENEMY_SIZE, ENEMY_SIZE,
+                             platformX[p], platformY[p], PLATFORM_WIDTH, PLATFORM_HEIGHT)) pairs++;
+            }
+        }
+
+        for (int p = 0; p < platformCount; p++) {
+            if (overlaps(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT,
+                         platformX[p], platformY[p], PLATFORM_WIDTH, PLATFORM_HEIGHT)) pairs++;
+        }
+        for (int c = 0; c < coinCount; c++) {
+            if (overlaps(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT,
+                         coinX[c], coinY[c], COIN_SIZE, COIN_SIZE)) pairs++;
+        }
+        for (int e = 0; e < enemyCount; e++) {
+            if (overlaps(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT,
+                         enemyX[e], enemyY[e], ENEMY_SIZE, ENEMY_SIZE)) pairs++;
+        }
+        return pairs;
+    }
+
+    private SpatialGrid buildGrid() {
+        SpatialGrid grid = new SpatialGrid(64, Math.max(4096, (platformCount + coinCount + enemyCount) * 4));
+        // Platforms are stored with negative data so they can be told apart from enemies
+        for (int p = 0; p < platformCount; p++) {
+            grid.insert(LAYER_PLATFORM, -p - 1, platformX[p], platformY[p], PLATFORM_WIDTH, PLATFORM_HEIGHT);
+        }
+        for (int c = 0; c < coinCount; c++) {
+            grid.insert(LAYER_COIN, c, coinX[c], coinY[c], COIN_SIZE, COIN_SIZE);
+        }
+        for (int e = 0; e < enemyCount; e++) {
+            enemyHandle[e] = grid.insert(LAYER_ENEMY, e, enemyX[e], enemyY[e], ENEMY_SIZE, ENEMY_SIZE);
+        }
+        return grid;
+    }
+
+    /** @return Average nanoseconds per tick */
+    private static double time(Runnable tick, int ticks) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            tick.run();
+        }
+        return (System.nanoTime() - start) / (double) ticks;
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = {10, 100, 1_000, 10_000, 100_000};
+        System.out.printf("%10s %16s %16s %12s%n", "entities", "grid us/tick", "brute us/tick", "pairs");
+
+        for (int entities : sizes) {
+            int ticks = entities >= 10_000 ? 50 : 500;
+
+            CollisionBenchmark gridRun = new CollisionBenchmark(entities, 42);
+            SpatialGrid grid = gridRun.buildGrid();
+            SpatialGrid.Results results = new SpatialGrid.Results();
+            long[] gridPairs = new long[1];
+            time(() -> gridRun.tickGrid(grid, results), ticks); // warm up
+            double gridNanos = time(() -> gridPairs[0] = gridRun.tickGrid(grid, results), ticks);
+
+            String bruteColumn = "-";
+            if (entities <= BRUTE_FORCE_LIMIT) {
+                CollisionBenchmark bruteRun = new CollisionBenchmark(entities, 42);
+                long[] brutePairs = new long[1];
+                time(() -> bruteRun.tickBruteForce(), ticks);
+                double bruteNanos = time(() -> brutePairs[0] = bruteRun.tickBruteForce(), ticks);
+                bruteColumn = String.format("%.1f", bruteNanos / 1000.0);
+                if (brutePairs[0] != gridPairs[0]) {
+                    System.out.println("WARNING: pair counts differ: grid " + gridPairs[0] + ", brute force " + brutePairs[0]);
+                }
+            }
+
+            System.out.printf("%10d %16.1f %16s %12d%n", entities, gridNanos / 1000.0, bruteColumn, gridPairs[0]);
+        }
+    }
+}
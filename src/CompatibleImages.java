@@ -0,0 +1,79 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Converts images into the screen's native pixel format. Images loaded with
+ * ImageIO come in whatever format the file used, and drawing them means
+ * converting every pixel on every frame; a compatible image can be copied
+ * straight to the screen and is eligible for hardware acceleration.
+ */
+public class CompatibleImages {
+    private CompatibleImages() {
+    }
+
+    /**
+     * @return The configuration of the default screen, or null when running headless
+     */
+    public static GraphicsConfiguration getConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) return null;
+        return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                  .getDefaultScreenDevice()
+                                  .getDefaultConfiguration();
+    }
+
+    /**
+     * Creates an empty image in the screen's native format
+     * @param width The image width
+     * @param height The image height
+     * @param transparency One of the {@link Transparency} constants
+     * @return The new image
+     */
+    public static BufferedImage create(int width, int height, int transparency) {
+        GraphicsConfiguration config = getConfiguration();
+        if (config != null) {
+            return config.createCompatibleImage(width, height, transparency);
+        }
+        // No screen to match, so use the format Java2D handles fastest
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                                                ? BufferedImage.TYPE_INT_RGB
+                                                : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Copies an image into the screen's native format
+     * @param image The image to convert, may be null
+     * @return The compatible copy, the image itself if it already is compatible, or null
+     */
+    public static BufferedImage toCompatible(BufferedImage image) {
+        if (image == null) return null;
+
+        GraphicsConfiguration config = getConfiguration();
+        if (config != null && image.getColorModel().equals(config.getColorModel(image.getTransparency()))) {
+            return image;
+        }
+
+        BufferedImage compatible = create(image.getWidth(), image.getHeight(), image.getTransparency());
+        Graphics2D g2d = compatible.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return compatible;
+    }
+
+    /**
+     * Copies an image into the screen's native format, scaled to a fixed size
+     * @param image The image to scale
+     * @param width The target width
+     * @param height The target height
+     * @return The scaled compatible copy
+     */
+    public static BufferedImage toCompatible(BufferedImage image, int width, int height) {
+        BufferedImage scaled = create(width, height, image.getTransparency());
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Stores the enemies of SimpleMarioGame as parallel primitive arrays
+ * (struct of arrays) instead of one object per enemy. Updating them is a
+ * tight loop over contiguous memory, and removing one is O(1): the last
+ * enemy is moved into the freed slot, so indices are not stable across
+ * removals. Each enemy patrols between its own left and right edge.
+ *
+ * Enemies are animated through an AnimationSet: each has a character, a
+ * state, and its position in the set's table, which one array index moves
+ * on every tick. Only the state and how long the enemy has been in it
+ * matter to the game; the position just picks the frame drawn, so clips
+ * can be retimed without changing how a game plays out. A beaten enemy
+ * stays in the store, still, for DEATH_TICKS while its death clip plays.
+ */
+public class EnemyStore {
+    // Size and behaviour shared by every enemy
+    public static final int WIDTH = 60; // Adjusted for sprite size
+    public static final int HEIGHT = 60; // Adjusted for sprite size
+    public static final int SPEED = 2;
+    // How long a beaten enemy stays, whatever its death clip: long enough for
+    // the ones in animations.properties, and a longer clip is cut short
+    public static final int DEATH_TICKS = 36;
+
+    private final AnimationSet animations;
+    private int size = 0;
+
+    // Per-enemy state, valid for indices below size
+    int[] x = new int[16];
+    int[] y = new int[16];
+    int[] prevX = new int[16]; // Position at the previous tick, for interpolation
+    boolean[] movingRight = new boolean[16];
+    boolean[] alive = new boolean[16];
+    int[] character = new int[16]; // Character in the AnimationSet, or -1 for none
+    int[] state = new int[16]; // AnimationSet state
+    int[] stateTicks = new int[16]; // Ticks since it entered its state
+    int[] animation = new int[16]; // Position in the AnimationSet's table
+    int[] gridHandle = new int[16]; // Handle in the collision grid
+    int[] minX = new int[16]; // Left end of the patrol
+    int[] maxX = new int[16]; // Right end of the patrol
+    int[] chunk = new int[16]; // Index of the level chunk it belongs to
+    int[] slot = new int[16]; // Number of the enemy within its chunk
+
+    /**
+     * @param animations The clips enemies are animated with
+     */
+    public EnemyStore(AnimationSet animations) {
+        this.animations = animations;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an enemy walking right
+     * @param left The left end of its patrol
+     * @param right The right end of its patrol; the enemy's right side turns there
+     * @param enemyCharacter Its character in the AnimationSet, or -1 for none
+     * @return The index of the new enemy
+     */
+    public int add(int enemyX, int enemyY, int left, int right, int enemyCharacter) {
+        if (size == x.length) {
+            grow(size * 2);
+        }
+        int index = size++;
+        x[index] = enemyX;
+        y[index] = enemyY;
+        prevX[index] = enemyX;
+        movingRight[index] = true;
+        alive[index] = true;
+        character[index] = enemyCharacter;
+        state[index] = AnimationSet.RUN;
+        stateTicks[index] = 0;
+        animation[index] = animations.getStart(enemyCharacter, AnimationSet.RUN);
+        gridHandle[index] = -1;
+        minX[index] = left;
+        maxX[index] = right;
+        chunk[index] = 0;
+        slot[index] = 0;
+        return index;
+    }
+
+    /**
+     * Removes an enemy by moving the last one into its slot
+     * @param index The enemy to remove
+     * @return The previous index of the enemy that now lives at index,
+     *         or -1 if the removed enemy was the last one
+     */
+    public int remove(int index) {
+        int last = --size;
+        if (index == last) return -1;
+
+        x[index] = x[last];
+        y[index] = y[last];
+        prevX[index] = prevX[last];
+        movingRight[index] = movingRight[last];
+        alive[index] = alive[last];
+        character[index] = character[last];
+        state[index] = state[last];
+        stateTicks[index] = stateTicks[last];
+        animation[index] = animation[last];
+        gridHandle[index] = gridHandle[last];
+        minX[index] = minX[last];
+        maxX[index] = maxX[last];
+        chunk[index] = chunk[last];
+        slot[index] = slot[last];
+        return last;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Remembers every enemy's position so rendering can interpolate
+     */
+    public void savePositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+    }
+
+    /**
+     * Moves every enemy one tick: patrol back and forth between its edges,
+     * and run. Beaten enemies only play on.
+     */
+    public void updateAll() {
+        int[] next = animations.next;
+        for (int i = 0; i < size; i++) {
+            if (!alive[i]) {
+                stateTicks[i]++;
+                animation[i] = next[animation[i]];
+                continue;
+            }
+
+            // Update position
+            if (movingRight[i]) {
+                x[i] += SPEED;
+                if (x[i] > maxX[i] - WIDTH) {
+                    movingRight[i] = false;
+                }
+            } else {
+                x[i] -= SPEED;
+                if (x[i] < minX[i]) {
+                    movingRight[i] = true;
+                }
+            }
+
+            // Update animation
+            if (state[i] != AnimationSet.RUN) {
+                setState(i, AnimationSet.RUN);
+            } else {
+                stateTicks[i]++;
+                animation[i] = next[animation[i]];
+            }
+        }
+    }
+
+    /**
+     * Keeps every enemy where it is for a tick, idling. Beaten enemies play on.
+     */
+    public void standAll() {
+        int[] next = animations.next;
+        for (int i = 0; i < size; i++) {
+            if (alive[i] && state[i] != AnimationSet.IDLE) {
+                setState(i, AnimationSet.IDLE);
+            } else {
+                stateTicks[i]++;
+                animation[i] = next[animation[i]];
+            }
+        }
+    }
+
+    /**
+     * Beats an enemy: it stops and plays its death clip
+     */
+    public void kill(int index) {
+        alive[index] = false;
+        setState(index, AnimationSet.DEATH);
+    }
+
+    /**
+     * @return Whether a beaten enemy has stayed DEATH_TICKS, so it can be removed
+     */
+    public boolean isDeathOver(int index) {
+        return !alive[index] && stateTicks[index] >= DEATH_TICKS;
+    }
+
+    private void setState(int index, int newState) {
+        state[index] = newState;
+        stateTicks[index] = 0;
+        animation[index] = animations.getStart(character[index], newState);
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        movingRight = Arrays.copyOf(movingRight, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        character = Arrays.copyOf(character, capacity);
+        state = Arrays.copyOf(state, capacity);
+        stateTicks = Arrays.copyOf(stateTicks, capacity);
+        animation = Arrays.copyOf(animation, capacity);
+        gridHandle = Arrays.copyOf(gridHandle, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        chunk = Arrays.copyOf(chunk, capacity);
+        slot = Arrays.copyOf(slot, capacity);
+    }
+}
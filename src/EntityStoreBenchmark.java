@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Compares simulating enemies as one object per enemy in an ArrayList, the way
+ * SimpleMarioGame used to, with the struct-of-arrays EnemyStore. Each tick
+ * moves every orc and then kills the ones standing on a trap, which the list
+ * has to remove by shifting and the store removes by swapping with the last one.
+ *
+ * Run with: java -cp src EntityStoreBenchmark [orcs]
+ */
+public class EntityStoreBenchmark {
+    private static final int WORLD_WIDTH = 800;
+    private static final int FRAMES = 6;
+    private static final int TICKS = 200;
+
+    // The old per-object representation, kept here for comparison
+    private static class Orc {
+        int x, y;
+        int speed = 2;
+        boolean movingRight = true;
+        boolean alive = true;
+        int animFrame = 0;
+        int animDelay = 0;
+
+        Orc(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        void update() {
+            if (movingRight) {
+                x += speed;
+                if (x > WORLD_WIDTH - 60) movingRight = false;
+            } else {
+                x -= speed;
+                if (x < 0) movingRight = true;
+            }
+            animDelay++;
+            if (animDelay >= 5) {
+                animDelay = 0;
+                animFrame = (animFrame + 1) % FRAMES;
+            }
+        }
+    }
+
+    // Killing by position rather than by index keeps both runs identical
+    // even though swap removal reorders the store
+    private static int trapPosition(int tick) {
+        return (tick * 37) % (WORLD_WIDTH - 60);
+    }
+
+    private static long runObjects(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Orc> orcs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orcs.add(new Orc(random.nextInt(WORLD_WIDTH - 60), 440));
+        }
+
+        long checksum = 0;
+        for (int tick = 0; tick < TICKS; tick++) {
+            int trap = trapPosition(tick);
+            for (Orc orc : orcs) {
+                orc.update();
+                if (orc.x == trap) orc.alive = false;
+            }
+            for (int i = orcs.size() - 1; i >= 0; i--) {
+                if (!orcs.get(i).alive) orcs.remove(i);
+            }
+        }
+        for (Orc orc : orcs) {
+            checksum += orc.x + orc.animFrame;
+        }
+        return checksum;
+    }
+
+    private static long runStore(int count, long seed) {
+        Random random = new Random(seed);
+        // The same run animation as a clip; the store moves each orc along it with one array index
+        AnimationSet animations = new AnimationSet();
+        animations.addClip("orc", AnimationSet.RUN, "Run-Sheet.png", FRAMES, 5, true);
+        int orc = animations.getCharacter("orc");
+        EnemyStore orcs = new EnemyStore(animations);
+        for (int i = 0; i < count; i++) {
+            orcs.add(random.nextInt(WORLD_WIDTH - 60), 440, 0, WORLD_WIDTH, orc);
+        }
+
+        long checksum = 0;
+        for (int tick = 0; tick < TICKS; tick++) {
+            orcs.updateAll();
+            int trap = trapPosition(tick);
+            for (int i = 0; i < orcs.size(); i++) {
+                if (orcs.x[i] == trap) orcs.alive[i] = false;
+            }
+            for (int i = orcs.size() - 1; i >= 0; i--) {
+                if (!orcs.alive[i]) orcs.remove(i);
+            }
+        }
+        // Order differs after swap removal, so compare order-independent sums
+        for (int i = 0; i < orcs.size(); i++) {
+            checksum += orcs.x[i] + animations.getFrame(orcs.animation[i]);
+        }
+        return checksum;
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        System.out.println("Simulating " + count + " orcs for " + TICKS + " ticks");
+
+        // Warm up both paths so the JIT has compiled them
+        runObjects(count / 10, 1);
+        runStore(count / 10, 1);
+
+        long start = System.nanoTime();
+        long objectChecksum = runObjects(count, 7);
+        double objectMillis = (System.nanoTime() - start) / 1_000_000.0 / TICKS;
+
+        start = System.nanoTime();
+        long storeChecksum = runStore(count, 7);
+        double storeMillis = (System.nanoTime() - start) / 1_000_000.0 / TICKS;
+
+        System.out.printf("ArrayList<Orc>: %8.3f ms/tick%n", objectMillis);
+        System.out.printf("EnemyStore:     %8.3f ms/tick%n", storeMillis);
+        System.out.println("Checksums " + (objectChecksum == storeChecksum ? "match" : "DIFFER")
+                           + ": " + objectChecksum + " / " + storeChecksum);
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Collects frame times for a rendering path so different paths can be compared.
+ * Keeps a rolling window of the most recent samples plus totals since startup.
+ */
+public class FrameStats {
+    private final String name;
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    private long totalFrames = 0;
+    private long totalNanos = 0;
+    private long worstNanos = 0;
+
+    /**
+     * Creates a frame time collector
+     * @param name Name of the rendering path, used in reports
+     * @param windowSize Number of recent frames kept for the rolling statistics
+     */
+    public FrameStats(String name, int windowSize) {
+        this.name = name;
+        this.samples = new long[windowSize];
+    }
+
+    /**
+     * Records how long one frame took to render
+     * @param nanos The frame time in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+
+        totalFrames++;
+        totalNanos += nanos;
+        if (nanos > worstNanos) worstNanos = nanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** @return Average frame time in milliseconds over the rolling window */
+    public synchronized double getAverageMillis() {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / (count * 1_000_000.0);
+    }
+
+    /** @return Longest frame time in milliseconds over the rolling window */
+    public synchronized double getMaxMillis() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            if (samples[i] > max) max = samples[i];
+        }
+        return max / 1_000_000.0;
+    }
+
+    /** @return A one line summary of the rolling window */
+    public String getSummary() {
+        return String.format("%s: avg %.2f ms, max %.2f ms", name, getAverageMillis(), getMaxMillis());
+    }
+
+    /** @return A one line summary of every frame since startup */
+    public synchronized String getTotalSummary() {
+        double average = totalFrames == 0 ? 0 : totalNanos / (totalFrames * 1_000_000.0);
+        return String.format("%s: %d frames, avg %.2f ms, worst %.2f ms",
+                             name, totalFrames, average, worstNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Fixed-timestep game loop that runs the simulation on its own thread.
+ * The simulation always advances in whole ticks of the same length, no matter
+ * how fast frames are drawn, and rendering is told how far it is between the
+ * last two ticks so it can interpolate positions.
+ */
+public class GameLoop implements Runnable {
+    /**
+     * Callbacks invoked by the loop thread
+     */
+    public interface Callbacks {
+        /** Advances the simulation by exactly one tick */
+        void tick();
+
+        /**
+         * Draws a frame
+         * @param alpha How far (0..1) the current time is between the previous and the latest tick
+         */
+        void render(double alpha);
+    }
+
+    // Length of the measurement window for the reported rates
+    private static final long STATS_WINDOW_NANOS = 1_000_000_000L;
+
+    private final Callbacks callbacks;
+    private final long tickNanos;
+    private final long renderNanos;
+    private final int maxCatchUpTicks;
+
+    private Thread thread;
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+
+    // Measured statistics, written by the loop thread only
+    private volatile double tickRate = 0;
+    private volatile double renderRate = 0;
+    private volatile long droppedFrames = 0;
+    private volatile long droppedTicks = 0;
+
+    /**
+     * Creates a loop
+     * @param callbacks The simulation and render callbacks
+     * @param ticksPerSecond Fixed simulation rate
+     * @param framesPerSecond Target render rate
+     * @param maxCatchUpTicks Maximum ticks run back to back before the backlog is dropped
+     */
+    public GameLoop(Callbacks callbacks, int ticksPerSecond, int framesPerSecond, int maxCatchUpTicks) {
+        this.callbacks = callbacks;
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.renderNanos = 1_000_000_000L / framesPerSecond;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "GameLoop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Stops advancing the simulation until {@link #resume()} is called.
+     * Frames keep being rendered so the screen stays up to date.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long nextRender = previous;
+
+        long windowStart = previous;
+        int windowTicks = 0;
+        int windowRenders = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            long elapsed = now - previous;
+            previous = now;
+
+            if (paused) {
+                // Don't build up a backlog while paused, otherwise the game
+                // would fast-forward when it is resumed
+                accumulator = 0;
+            } else {
+                accumulator += elapsed;
+
+                // A tick may pause the loop (e.g. to show a dialog), so check
+                // before each one rather than once per catch-up batch
+                int ticks = 0;
+                while (!paused && accumulator >= tickNanos && ticks < maxCatchUpTicks) {
+                    callbacks.tick();
+                    accumulator -= tickNanos;
+                    ticks++;
+                }
+                windowTicks += ticks;
+
+                // If we are still behind after the catch-up cap, drop the rest
+                // so a slow machine doesn't spiral into ever longer catch-ups
+                if (!paused && accumulator >= tickNanos) {
+                    droppedTicks += accumulator / tickNanos;
+                    accumulator %= tickNanos;
+                }
+            }
+
+            now = System.nanoTime();
+            if (now >= nextRender) {
+                // Every render slot that passed without a frame counts as dropped
+                long missed = (now - nextRender) / renderNanos;
+                if (missed > 0) {
+                    droppedFrames += missed;
+                }
+
+                callbacks.render((double) accumulator / tickNanos);
+                windowRenders++;
+                nextRender += (missed + 1) * renderNanos;
+            }
+
+            if (now - windowStart >= STATS_WINDOW_NANOS) {
+                double seconds = (now - windowStart) / 1_000_000_000.0;
+                tickRate = windowTicks / seconds;
+                renderRate = windowRenders / seconds;
+                windowStart = now;
+                windowTicks = 0;
+                windowRenders = 0;
+            }
+
+            // Sleep until the next tick or frame is due, whichever comes first
+            long untilTick = paused ? renderNanos : tickNanos - accumulator;
+            long untilRender = nextRender - System.nanoTime();
+            long wait = Math.min(untilTick, untilRender);
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                } catch (InterruptedException e) {
+                    // stop() interrupts us; the loop condition handles it
+                }
+            }
+        }
+    }
+
+    /** @return Simulation ticks per second measured over the last second */
+    public double getTickRate() {
+        return tickRate;
+    }
+
+    /** @return Frames rendered per second measured over the last second */
+    public double getRenderRate() {
+        return renderRate;
+    }
+
+    /** @return Total render slots missed since the loop started */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /** @return Total simulation ticks discarded by the catch-up cap */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * All the randomness of a game session, derived from one seed.
+ *
+ * The seed is split into independent streams for the level layout, the loot
+ * and the enemies, so drawing more numbers from one of them (say, a level with
+ * more coins) doesn't change what the others produce. Drawing from a
+ * SplittableRandom allocates nothing.
+ *
+ * Levels that are built a chunk at a time, in whatever order the player
+ * walks, get streams of their own for each chunk from {@link #forChunk}.
+ *
+ * The seed is -Dcave.seed if set and otherwise picked at random; it is
+ * printed at startup so any run can be played again exactly.
+ */
+public class GameRandom {
+    private final long seed;
+    private final SplittableRandom layout;
+    private final SplittableRandom loot;
+    private final SplittableRandom enemies;
+
+    /**
+     * @param seed The session seed
+     */
+    public GameRandom(long seed) {
+        this.seed = seed;
+        // Split in a fixed order, so each stream depends on the seed alone
+        SplittableRandom root = new SplittableRandom(seed);
+        this.layout = root.split();
+        this.loot = root.split();
+        this.enemies = root.split();
+    }
+
+    /**
+     * Creates the session's randomness from -Dcave.seed or a random seed, and
+     * prints the seed
+     * @param game Name of the game, used in the message
+     * @return The new instance
+     */
+    public static GameRandom forSession(String game) {
+        Long configured = Long.getLong("cave.seed");
+        long seed = configured != null ? configured : new SplittableRandom().nextLong();
+        System.out.println(game + " seed: " + seed + " (play this run again with -Dcave.seed=" + seed + ")");
+        return new GameRandom(seed);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** @return The stream for platform and coin positions */
+    public SplittableRandom layout() {
+        return layout;
+    }
+
+    /** @return The stream for treasure items and their order */
+    public SplittableRandom loot() {
+        return loot;
+    }
+
+    /** @return The stream for enemy placement and behaviour */
+    public SplittableRandom enemies() {
+        return enemies;
+    }
+
+    /**
+     * Creates the randomness of one chunk of a level. It depends only on the
+     * session seed, the level and the chunk, not on what was drawn before.
+     * @param level The level number
+     * @param chunk The chunk index
+     * @return A new instance with streams for that chunk alone
+     */
+    public GameRandom forChunk(int level, int chunk) {
+        long key = (long) level << 32 | (chunk & 0xFFFFFFFFL);
+        // SplittableRandom mixes its seed, so neighbouring keys give unrelated streams
+        return new GameRandom(new SplittableRandom(seed + 0x9E3779B97F4A7C15L * key).nextLong());
+    }
+
+    /**
+     * Shuffles a list in place (Fisher-Yates), like Collections.shuffle but
+     * with a SplittableRandom
+     */
+    public static <T> void shuffle(List<T> list, SplittableRandom random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+}
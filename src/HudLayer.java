@@ -0,0 +1,236 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws SimpleMarioGame's score, backpack and item info from cached images.
+ *
+ * Each line of text is rendered into an image once and only rendered again
+ * when the number in it changes, and the item info panel is rendered as a
+ * whole when a different item is shown. On a frame where nothing changed,
+ * drawing the HUD is a few image copies that allocate nothing.
+ */
+public class HudLayer {
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 20);
+    private static final Font STATUS_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font NOTICE_FONT = new Font("Arial", Font.PLAIN, 14);
+    private static final Font INFO_TITLE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font INFO_TEXT_FONT = new Font("Arial", Font.PLAIN, 14);
+    private static final Color NOTICE_COLOR = new Color(255, 200, 100);
+    private static final Color PANEL_COLOR = new Color(0, 0, 0, 180);
+    private static final Color BORDER_COLOR = new Color(200, 200, 100);
+    private static final Color IMAGE_BORDER_COLOR = new Color(255, 255, 255, 100);
+
+    private static final int PANEL_WIDTH = 250;
+    private static final int PANEL_HEIGHT = 120;
+    private static final int PANEL_Y = 150;
+    private static final int ITEM_IMAGE_SIZE = 50;
+
+    private int rebuilds = 0;
+
+    /**
+     * One line of text such as "Backpack: 12/50", kept as an image.
+     * The text is a fixed prefix, one or two numbers and a fixed suffix.
+     */
+    final class Label {
+        private final String prefix;
+        private final String separator;
+        private final String suffix;
+        private final Font font;
+        private final Color color;
+
+        private BufferedImage image;
+        private int ascent;
+        private int first;
+        private int second;
+        private String text;
+
+        /**
+         * @param prefix Text before the first number
+         * @param separator Text between the two numbers
+         * @param suffix Text after the last number
+         * @param font The font
+         * @param color The text color
+         */
+        Label(String prefix, String separator, String suffix, Font font, Color color) {
+            this.prefix = prefix;
+            this.separator = separator;
+            this.suffix = suffix;
+            this.font = font;
+            this.color = color;
+        }
+
+        /**
+         * Draws the label with one number
+         * @param y The baseline, as for Graphics.drawString
+         */
+        void draw(Graphics g, int x, int y, int value) {
+            if (image == null || value != first) {
+                first = value;
+                build(g, prefix + value + suffix);
+            }
+            g.drawImage(image, x, y - ascent, null);
+        }
+
+        /**
+         * Draws the label with two numbers
+         * @param y The baseline, as for Graphics.drawString
+         */
+        void draw(Graphics g, int x, int y, int value, int other) {
+            if (image == null || value != first || other != second) {
+                first = value;
+                second = other;
+                build(g, prefix + value + separator + other + suffix);
+            }
+            g.drawImage(image, x, y - ascent, null);
+        }
+
+        /**
+         * Draws the label with free text in place of the numbers
+         * @param y The baseline, as for Graphics.drawString
+         */
+        void draw(Graphics g, int x, int y, String value) {
+            if (image == null || !value.equals(text)) {
+                text = value;
+                build(g, prefix + value + suffix);
+            }
+            g.drawImage(image, x, y - ascent, null);
+        }
+
+        private void build(Graphics g, String line) {
+            FontMetrics metrics = g.getFontMetrics(font);
+            ascent = metrics.getAscent();
+            image = CompatibleImages.create(Math.max(1, metrics.stringWidth(line)),
+                                            Math.max(1, metrics.getHeight()), Transparency.TRANSLUCENT);
+            Graphics2D g2d = image.createGraphics();
+            g2d.setFont(font);
+            g2d.setColor(color);
+            g2d.drawString(line, 0, ascent);
+            g2d.dispose();
+            rebuilds++;
+        }
+    }
+
+    private final Label scoreLabel = new Label("Score: ", "", "", SCORE_FONT, Color.WHITE);
+    private final Label backpackLabel = new Label("Backpack: ", "/", "", STATUS_FONT, Color.WHITE);
+    private final Label valueLabel = new Label("Total Value: ", "", "", STATUS_FONT, Color.WHITE);
+    private final Label carriedLabel = new Label("Items carried: ", "", "", STATUS_FONT, Color.WHITE);
+    private final Label noticeLabel = new Label("", "", "", NOTICE_FONT, NOTICE_COLOR);
+
+    // The item info panel as last drawn, and what it showed
+    private BufferedImage infoPanel;
+    private SimpleMarioGame.Item infoItem;
+    private byte infoState;
+    private boolean infoHasImage;
+
+    /**
+     * Draws the score, backpack status and the current notice
+     * @param carriedCount How many items the backpack holds, whole or in part
+     * @param notice The notice to show, or null for none
+     */
+    public void drawStatus(Graphics g, int score, int backpackWeight, int backpackCapacity, int totalValue,
+                           int carriedCount, String notice) {
+        scoreLabel.draw(g, 20, 30, score);
+        backpackLabel.draw(g, 20, 60, backpackWeight, backpackCapacity);
+        valueLabel.draw(g, 20, 85, totalValue);
+        carriedLabel.draw(g, 20, 110, carriedCount);
+        if (notice != null) {
+            noticeLabel.draw(g, 20, 135, notice);
+        }
+    }
+
+    /**
+     * Draws the panel about the last item that was found
+     * @param width Width of the drawing area, to center the panel
+     * @param item The item
+     * @param state What happened to it, one of the Backpack states
+     * @param itemImage The item's picture, or null to draw a shape for its type
+     */
+    public void drawItemInfo(Graphics g, int width, SimpleMarioGame.Item item, byte state,
+                             BufferedImage itemImage) {
+        boolean hasImage = itemImage != null;
+        if (infoPanel == null || item != infoItem || state != infoState || hasImage != infoHasImage) {
+            infoItem = item;
+            infoState = state;
+            infoHasImage = hasImage;
+            infoPanel = buildItemInfo(item, state, itemImage);
+        }
+        g.drawImage(infoPanel, (width - PANEL_WIDTH) / 2, PANEL_Y, null);
+    }
+
+    private BufferedImage buildItemInfo(SimpleMarioGame.Item item, byte state, BufferedImage itemImage) {
+        // One pixel more than the panel so its border fits
+        BufferedImage panel = CompatibleImages.create(PANEL_WIDTH + 1, PANEL_HEIGHT + 1, Transparency.TRANSLUCENT);
+        Graphics2D g = panel.createGraphics();
+
+        // Draw a semi-transparent panel
+        g.setColor(PANEL_COLOR);
+        g.fillRoundRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT, 20, 20);
+
+        // Draw border
+        g.setColor(BORDER_COLOR);
+        g.drawRoundRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT, 20, 20);
+
+        // Draw item info
+        g.setColor(Color.WHITE);
+        g.setFont(INFO_TITLE_FONT);
+        String title = state == Backpack.COLLECTED ? "You collected: "
+                       : state == Backpack.PARTIAL ? "You took part of: "
+                       : "You found: ";
+        g.drawString(title + item.getName(), 20, 30);
+        g.setFont(INFO_TEXT_FONT);
+        g.drawString("Weight: " + item.getWeight(), 20, 60);
+        g.drawString("Value: " + item.getValue(), 20, 85);
+
+        // Draw the item image or a colored shape as fallback
+        int imageX = PANEL_WIDTH - ITEM_IMAGE_SIZE - 20;
+        int imageY = (PANEL_HEIGHT - ITEM_IMAGE_SIZE) / 2;
+        if (itemImage != null) {
+            g.drawImage(itemImage, imageX, imageY, ITEM_IMAGE_SIZE, ITEM_IMAGE_SIZE, null);
+
+            // Draw a subtle border around the image
+            g.setColor(IMAGE_BORDER_COLOR);
+            g.drawRect(imageX, imageY, ITEM_IMAGE_SIZE, ITEM_IMAGE_SIZE);
+        } else {
+            drawItemShape(g, item.getImageType(), imageX, imageY, ITEM_IMAGE_SIZE);
+        }
+        g.dispose();
+        rebuilds++;
+        return panel;
+    }
+
+    /**
+     * Draws a colored shape standing in for an item's picture
+     */
+    private static void drawItemShape(Graphics g, String type, int x, int y, int size) {
+        if (type.equals("Resources")) {
+            g.setColor(new Color(255, 215, 0)); // Gold
+            g.fillOval(x, y, size, size);
+            g.setColor(Color.BLACK);
+            g.drawOval(x, y, size, size);
+        } else if (type.equals("Dungeon_Props")) {
+            g.setColor(new Color(192, 192, 192)); // Silver
+            g.fillRect(x, y, size, size);
+            g.setColor(Color.BLACK);
+            g.drawRect(x, y, size, size);
+        } else if (type.equals("Esoteric")) {
+            g.setColor(new Color(138, 43, 226)); // Purple
+            int[] xPoints = {x + size/2, x, x + size};
+            int[] yPoints = {y, y + size, y + size};
+            g.fillPolygon(xPoints, yPoints, 3);
+            g.setColor(Color.BLACK);
+            g.drawPolygon(xPoints, yPoints, 3);
+        } else if (type.equals("Tools")) {
+            g.setColor(new Color(139, 69, 19)); // Brown
+            g.fillRoundRect(x, y, size, size, 10, 10);
+            g.setColor(Color.BLACK);
+            g.drawRoundRect(x, y, size, size, 10, 10);
+        }
+    }
+
+    /**
+     * @return How many text or panel images were rendered since the game started
+     */
+    public int getRebuildCount() {
+        return rebuilds;
+    }
+}
@@ -1,9 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.File;
-import java.io.IOException;
 
 public class ImageLoadTest extends JFrame {
     private BufferedImage playerImage;
@@ -36,40 +33,27 @@ public class ImageLoadTest extends JFrame {
     
     private void loadImage() {
         try {
-            // Get current directory
-            String currentDir = System.getProperty("user.dir");
-            System.out.println("Current directory: " + currentDir);
+            // The manifest knows where every asset is, so there are no paths to try
+            AssetResolver resolver = AssetResolver.get();
+            System.out.println("Asset root: " + Assets.getRoot().getAbsolutePath());
+            System.out.println("Manifest: " + resolver.size() + " assets"
+                               + (resolver.isFromCache() ? " (cached)" : ""));
             
-            // Try different paths
-            String[] paths = {
-                "images/kurtkwako.png",
-                "images\\kurtkwako.png",
-                currentDir + "/images/kurtkwako.png",
-                currentDir + "\\images\\kurtkwako.png",
-                "images/player/kurtkwako.png",
-                "images\\player\\kurtkwako.png",
-                currentDir + "/images/player/kurtkwako.png",
-                currentDir + "\\images\\player\\kurtkwako.png"
-            };
+            String path = "images/kurtkwako.png";
+            if (!resolver.contains(path)) {
+                // Fall back to a kurtkwako.png in any folder, such as images/player
+                path = resolver.findByFileName("kurtkwako.png");
+            }
             
-            for (String path : paths) {
-                File file = new File(path);
-                System.out.println("Trying path: " + path);
-                System.out.println("File exists: " + file.exists());
-                
-                if (file.exists()) {
-                    try {
-                        playerImage = ImageIO.read(file);
-                        System.out.println("Image loaded successfully from: " + path);
-                        System.out.println("Image dimensions: " + playerImage.getWidth() + "x" + playerImage.getHeight());
-                        break;
-                    } catch (IOException e) {
-                        System.out.println("Error loading image from " + path + ": " + e.getMessage());
-                    }
-                }
+            if (path != null) {
+                System.out.println("Loading " + path + " from: " + resolver.resolve(path));
+                playerImage = resolver.readImage(path);
             }
             
-            if (playerImage == null) {
+            if (playerImage != null) {
+                System.out.println("Image loaded successfully from: " + path);
+                System.out.println("Image dimensions: " + playerImage.getWidth() + "x" + playerImage.getHeight());
+            } else {
                 System.out.println("Failed to load image from any path");
             }
             
@@ -0,0 +1,219 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The inputs of one SimpleMarioGame session: the seed, and every key press
+ * and release with the simulation tick it was applied at. Together with
+ * MarioSimulation that is enough to play the session again exactly.
+ *
+ * File format, big-endian: magic "CREC", version, seed, player width, level
+ * length in chunks, flags, the path of the level file played (empty for a
+ * generated cave), tick count, the state hash the session ended with and
+ * the event count, then one event after another as two variable-length
+ * ints: the ticks since the previous event, and the key code shifted left
+ * once with the low bit set for a press. A typical session is a few bytes per second of play.
+ */
+public class InputRecording {
+    private static final int MAGIC = 0x43524543; // "CREC"
+    // Bumped whenever the same inputs would play out differently. Versions:
+    // 1 first format; 2 adds the level length (CaveGenerator's caves later
+    // replaced the fixed layout without a bump); 3 levels on the tile grid;
+    // 4 adds the level file path; 5 enemy deaths timed by
+    // animations.properties; 6 CaveGenerator keeps floors under low ledges
+    // open; 7 enemy deaths last EnemyStore.DEATH_TICKS, whatever the clips
+    private static final int VERSION = 7;
+
+    private static final int FLAG_PAUSE_ENEMIES = 1;
+
+    /** Key code that marks a restart of the game; never a real key */
+    public static final int RESET = 0;
+
+    private final long seed;
+    private final int playerWidth;
+    private final int chunkCount;
+    private final boolean pauseEnemiesDuringDecision;
+    private final String levelPath;
+    private int tickCount;
+    private long finalHash;
+
+    private int size = 0;
+    private int[] ticks = new int[256];
+    private int[] keys = new int[256];
+    private boolean[] pressed = new boolean[256];
+
+    /**
+     * Starts an empty recording
+     * @param seed The session seed
+     * @param playerWidth The player width the simulation uses
+     * @param chunkCount Length of the level in chunks
+     * @param pauseEnemiesDuringDecision Whether enemies wait for item decisions
+     * @param levelPath The level file played, or null for a generated cave
+     */
+    public InputRecording(long seed, int playerWidth, int chunkCount, boolean pauseEnemiesDuringDecision,
+                          String levelPath) {
+        this.seed = seed;
+        this.playerWidth = playerWidth;
+        this.chunkCount = chunkCount;
+        this.pauseEnemiesDuringDecision = pauseEnemiesDuringDecision;
+        this.levelPath = levelPath;
+    }
+
+    /**
+     * Adds a key event. Events must be added in tick order.
+     * @param tick The tick before which the event is applied
+     * @param key The key code, or RESET
+     * @param press Whether the key was pressed or released
+     */
+    public void record(int tick, int key, boolean press) {
+        if (size > 0 && tick < ticks[size - 1]) {
+            throw new IllegalArgumentException("Event at tick " + tick + " after tick " + ticks[size - 1]);
+        }
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            pressed = Arrays.copyOf(pressed, size * 2);
+        }
+        ticks[size] = tick;
+        keys[size] = key;
+        pressed[size] = press;
+        size++;
+    }
+
+    /**
+     * Marks the end of the session
+     * @param tickCount How many ticks were run
+     * @param finalHash The simulation's state hash after the last tick
+     */
+    public void finish(int tickCount, long finalHash) {
+        this.tickCount = tickCount;
+        this.finalHash = finalHash;
+    }
+
+    /**
+     * Creates a simulation in the state the recorded session started in,
+     * without animations: they never change how a session plays out, so a
+     * replay doesn't need animations.properties.
+     * @throws IOException If the level file can't be opened
+     */
+    public MarioSimulation newSimulation() throws IOException {
+        ChunkSource source = levelPath != null ? LevelFile.open(new File(levelPath)) : new CaveGenerator();
+        MarioSimulation simulation = new MarioSimulation(new GameRandom(seed), source, chunkCount,
+                                                         pauseEnemiesDuringDecision, new AnimationSet());
+        simulation.setPlayerWidth(playerWidth);
+        return simulation;
+    }
+
+    /**
+     * Applies the events of one tick to a simulation
+     * @param simulation The simulation
+     * @param event Index of the first event not applied yet
+     * @param tick The tick about to run
+     * @return Index of the first event of a later tick
+     */
+    public int apply(MarioSimulation simulation, int event, int tick) {
+        while (event < size && ticks[event] == tick) {
+            if (keys[event] == RESET) {
+                simulation.reset();
+            } else if (pressed[event]) {
+                simulation.keyPressed(keys[event]);
+            } else {
+                simulation.keyReleased(keys[event]);
+            }
+            event++;
+        }
+        return event;
+    }
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeInt(playerWidth);
+            out.writeInt(chunkCount);
+            out.writeInt(pauseEnemiesDuringDecision ? FLAG_PAUSE_ENEMIES : 0);
+            out.writeUTF(levelPath != null ? levelPath : "");
+            out.writeInt(tickCount);
+            out.writeLong(finalHash);
+            out.writeInt(size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarInt(out, ticks[i] - previous);
+                writeVarInt(out, keys[i] << 1 | (pressed[i] ? 1 : 0));
+                previous = ticks[i];
+            }
+        }
+    }
+
+    public static InputRecording load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an input recording");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported version " + version);
+            }
+            long seed = in.readLong();
+            int playerWidth = in.readInt();
+            int chunkCount = in.readInt();
+            int flags = in.readInt();
+            String levelPath = in.readUTF();
+            InputRecording recording = new InputRecording(seed, playerWidth, chunkCount,
+                                                          (flags & FLAG_PAUSE_ENEMIES) != 0,
+                                                          levelPath.isEmpty() ? null : levelPath);
+            int tickCount = in.readInt();
+            long finalHash = in.readLong();
+            int count = in.readInt();
+            int tick = 0;
+            for (int i = 0; i < count; i++) {
+                tick += readVarInt(in);
+                int code = readVarInt(in);
+                recording.record(tick, code >>> 1, (code & 1) != 0);
+            }
+            recording.finish(tickCount, finalHash);
+            return recording;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public long getFinalHash() {
+        return finalHash;
+    }
+
+    public int getEventCount() {
+        return size;
+    }
+}
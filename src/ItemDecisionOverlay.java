@@ -0,0 +1,195 @@
+import java.awt.*;
+import java.awt.event.KeyEvent;
+
+/**
+ * In-game panel that asks what to do with a found item. It is drawn as part of
+ * the game scene and answered with the number keys, so the game keeps running
+ * while the player decides instead of stopping for a modal dialog.
+ *
+ * Keys: 1-3 pick an option, Enter picks the first one, Esc skips the item.
+ * When taking part of an item, 1-4 pick the fraction, Enter takes half and
+ * Esc goes back to the main options.
+ */
+public class ItemDecisionOverlay {
+    // Actions returned by handleKey
+    public static final int NONE = 0;
+    public static final int TAKE_ALL = 1;
+    public static final int TAKE_PART = 2;
+    public static final int SKIP = 3;
+
+    // Fractions offered when taking part of an item
+    private static final String[] FRACTION_LABELS = {"1/4", "1/3", "1/2", "3/4"};
+    private static final double[] FRACTIONS = {0.25, 0.33, 0.5, 0.75};
+    private static final int DEFAULT_FRACTION = 2; // 1/2
+
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font TEXT_FONT = new Font("Arial", Font.PLAIN, 14);
+    private static final Color PANEL_COLOR = new Color(0, 0, 0, 200);
+    private static final Color BORDER_COLOR = new Color(200, 200, 100);
+
+    private static final int PANEL_WIDTH = 320;
+    private static final int PANEL_HEIGHT = 150;
+    private static final int PANEL_Y = 140;
+
+    private boolean active = false;
+    private boolean choosingFraction = false;
+    private SimpleMarioGame.Item item;
+    private int coinIndex;
+    private int[] options = new int[0];
+    private double selectedFraction;
+
+    /**
+     * Shows the overlay for a found item
+     * @param coinIndex The index of the coin holding the item
+     * @param item The found item
+     * @param canTakeAll Whether the whole item fits in the backpack
+     * @param canTakePart Whether there is any room left in the backpack
+     */
+    public void open(int coinIndex, SimpleMarioGame.Item item, boolean canTakeAll, boolean canTakePart) {
+        this.coinIndex = coinIndex;
+        this.item = item;
+        this.active = true;
+        this.choosingFraction = false;
+
+        // Create options based on backpack capacity
+        if (canTakeAll) {
+            options = new int[]{TAKE_ALL, TAKE_PART, SKIP};
+        } else if (canTakePart) {
+            options = new int[]{TAKE_PART, SKIP};
+        } else {
+            options = new int[]{SKIP};
+        }
+    }
+
+    public void close() {
+        active = false;
+        item = null;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int getCoinIndex() {
+        return coinIndex;
+    }
+
+    /** @return The item being decided on, or null when closed */
+    public SimpleMarioGame.Item getItem() {
+        return item;
+    }
+
+    /** @return The fraction picked for the last TAKE_PART action */
+    public double getSelectedFraction() {
+        return selectedFraction;
+    }
+
+    /**
+     * @param key A key code from {@link KeyEvent}
+     * @return Whether the overlay uses the key while it is open
+     */
+    public boolean handlesKey(int key) {
+        return active && (key == KeyEvent.VK_ENTER || key == KeyEvent.VK_ESCAPE ||
+                          (key >= KeyEvent.VK_1 && key <= KeyEvent.VK_4) ||
+                          (key >= KeyEvent.VK_NUMPAD1 && key <= KeyEvent.VK_NUMPAD4));
+    }
+
+    /**
+     * Handles a key press. The overlay stays open until an action is returned;
+     * the caller applies the action and then closes it.
+     * @param key A key code from {@link KeyEvent}
+     * @return The chosen action, or NONE
+     */
+    public int handleKey(int key) {
+        if (!active) return NONE;
+
+        int number = -1;
+        if (key >= KeyEvent.VK_1 && key <= KeyEvent.VK_4) {
+            number = key - KeyEvent.VK_1;
+        } else if (key >= KeyEvent.VK_NUMPAD1 && key <= KeyEvent.VK_NUMPAD4) {
+            number = key - KeyEvent.VK_NUMPAD1;
+        }
+
+        if (choosingFraction) {
+            if (key == KeyEvent.VK_ESCAPE) {
+                choosingFraction = false;
+                return NONE;
+            }
+            int choice = key == KeyEvent.VK_ENTER ? DEFAULT_FRACTION : number;
+            if (choice < 0 || choice >= FRACTIONS.length) return NONE;
+            selectedFraction = FRACTIONS[choice];
+            return TAKE_PART;
+        }
+
+        int action;
+        if (key == KeyEvent.VK_ESCAPE) {
+            // Same as closing the old dialog without a selection
+            action = SKIP;
+        } else if (key == KeyEvent.VK_ENTER) {
+            action = options[0];
+        } else if (number >= 0 && number < options.length) {
+            action = options[number];
+        } else {
+            return NONE;
+        }
+
+        if (action == TAKE_PART) {
+            // Ask how much first
+            choosingFraction = true;
+            return NONE;
+        }
+        return action;
+    }
+
+    /**
+     * Draws the overlay centred horizontally
+     * @param g The graphics context
+     * @param width Width of the drawing area
+     */
+    public void draw(Graphics g, int width) {
+        if (!active) return;
+
+        int panelX = (width - PANEL_WIDTH) / 2;
+
+        // Draw a semi-transparent panel with a border
+        g.setColor(PANEL_COLOR);
+        g.fillRoundRect(panelX, PANEL_Y, PANEL_WIDTH, PANEL_HEIGHT, 20, 20);
+        g.setColor(BORDER_COLOR);
+        g.drawRoundRect(panelX, PANEL_Y, PANEL_WIDTH, PANEL_HEIGHT, 20, 20);
+
+        g.setColor(Color.WHITE);
+        g.setFont(TITLE_FONT);
+        g.drawString("You found a " + item.getName() + "!", panelX + 20, PANEL_Y + 28);
+
+        g.setFont(TEXT_FONT);
+        g.drawString("Weight: " + item.getWeight() + "   Value: " + item.getValue(), panelX + 20, PANEL_Y + 55);
+
+        if (choosingFraction) {
+            g.drawString("How much do you want to take?", panelX + 20, PANEL_Y + 85);
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < FRACTION_LABELS.length; i++) {
+                line.append('[').append(i + 1).append("] ").append(FRACTION_LABELS[i]).append("   ");
+            }
+            g.drawString(line.toString(), panelX + 20, PANEL_Y + 110);
+            g.drawString("Esc: back", panelX + 20, PANEL_Y + 135);
+        } else {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < options.length; i++) {
+                line.append('[').append(i + 1).append("] ").append(getLabel(options[i])).append("   ");
+            }
+            g.drawString(line.toString(), panelX + 20, PANEL_Y + 95);
+            g.drawString("Enter: " + getLabel(options[0]) + "   Esc: Skip", panelX + 20, PANEL_Y + 125);
+        }
+    }
+
+    private static String getLabel(int action) {
+        switch (action) {
+            case TAKE_ALL:
+                return "Take All";
+            case TAKE_PART:
+                return "Take Part";
+            default:
+                return "Skip";
+        }
+    }
+}
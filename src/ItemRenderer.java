@@ -1,10 +1,8 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class handles rendering of item images for the Cave Loot Challenge game.
@@ -13,13 +11,18 @@ import java.util.HashMap;
  */
 public class ItemRenderer {
     // Cache for loaded images to avoid reloading
-    private static HashMap<String, BufferedImage> imageCache = new HashMap<>();
+    private static final ConcurrentHashMap<String, BufferedImage> imageCache = new ConcurrentHashMap<>();
     
-    // Paths to different resource types with absolute paths
-    private static final String RESOURCES_PATH = "c:\\CaveGame\\Sprites Assets\\Environment\\Props\\Static\\Resources.png";
-    private static final String DUNGEON_PROPS_PATH = "c:\\CaveGame\\Sprites Assets\\Environment\\Props\\Static\\Dungeon_Props.png";
-    private static final String ESOTERIC_PATH = "c:\\CaveGame\\Sprites Assets\\Environment\\Props\\Static\\Esoteric.png";
-    private static final String TOOLS_PATH = "c:\\CaveGame\\Sprites Assets\\Environment\\Props\\Static\\Tools.png";
+    // Item cells cut out of their sheet and scaled to the size they are drawn at
+    // (budget in bytes: -Dcave.spriteCacheBytes, 8 MB by default)
+    private static final SpriteCache spriteCache =
+        new SpriteCache(Long.getLong("cave.spriteCacheBytes", 8L * 1024 * 1024));
+    
+    // Paths to different resource types under the asset root (see Assets)
+    private static final String RESOURCES_PATH = "Sprites Assets/Environment/Props/Static/Resources.png";
+    private static final String DUNGEON_PROPS_PATH = "Sprites Assets/Environment/Props/Static/Dungeon_Props.png";
+    private static final String ESOTERIC_PATH = "Sprites Assets/Environment/Props/Static/Esoteric.png";
+    private static final String TOOLS_PATH = "Sprites Assets/Environment/Props/Static/Tools.png";
     
     // Default image size
     private static final int DEFAULT_ITEM_SIZE = 32;
@@ -38,9 +41,14 @@ public class ItemRenderer {
         BufferedImage itemImage = getItemImage(item.getImageType());
         
         if (itemImage != null) {
-            // For sprite sheets, we need to extract a specific item based on type
-            BufferedImage specificItem = extractSpecificItem(itemImage, item.getName());
-            g.drawImage(specificItem, x, y, width, height, null);
+            // For sprite sheets, we need to extract a specific item based on type,
+            // already scaled to the requested size so it's drawn without scaling
+            Point cell = findItemCell(itemImage, item.getName());
+            SpriteCache.Key key = new SpriteCache.Key(item.getImageType(), cell.x, cell.y,
+                                                      DEFAULT_ITEM_SIZE, DEFAULT_ITEM_SIZE, width, height);
+            BufferedImage specificItem = spriteCache.get(key, () -> CompatibleImages.toCompatible(
+                itemImage.getSubimage(cell.x, cell.y, DEFAULT_ITEM_SIZE, DEFAULT_ITEM_SIZE), width, height));
+            g.drawImage(specificItem, x, y, null);
         } else {
             // Fallback if image couldn't be loaded
             g.setColor(Color.YELLOW);
@@ -50,6 +58,13 @@ public class ItemRenderer {
         }
     }
     
+    /**
+     * @return The cache of scaled item cells, for its statistics
+     */
+    public static SpriteCache getSpriteCache() {
+        return spriteCache;
+    }
+    
     /**
      * Gets the image for a specific item type, loading it if necessary
      * 
@@ -58,8 +73,9 @@ public class ItemRenderer {
      */
     private static BufferedImage getItemImage(String imageType) {
         // Check if the image is already cached
-        if (imageCache.containsKey(imageType)) {
-            return imageCache.get(imageType);
+        BufferedImage cached = imageCache.get(imageType);
+        if (cached != null) {
+            return cached;
         }
         
         // Determine the path based on image type
@@ -83,24 +99,23 @@ public class ItemRenderer {
         
         // Load the image with better error handling
         try {
-            File imageFile = new File(imagePath);
-            System.out.println("Loading item image from: " + imageFile.getAbsolutePath());
-            System.out.println("File exists: " + imageFile.exists());
+            System.out.println("Loading item image: " + imagePath);
             
-            if (!imageFile.exists()) {
-                System.out.println("WARNING: Image file does not exist: " + imagePath);
+            if (!Assets.contains(imagePath)) {
+                System.out.println("WARNING: Image file does not exist: " + Assets.file(imagePath).getAbsolutePath());
                 return null;
             }
             
-            BufferedImage image = ImageIO.read(imageFile);
+            BufferedImage image = CompatibleImages.toCompatible(Assets.read(imagePath));
             if (image == null) {
-                System.out.println("WARNING: ImageIO.read returned null for: " + imagePath);
+                System.out.println("WARNING: Could not read image: " + imagePath);
                 return null;
             }
             
             System.out.println("Successfully loaded image: " + imagePath);
-            imageCache.put(imageType, image);
-            return image;
+            // Another thread may have loaded it meanwhile; keep the first one
+            BufferedImage previous = imageCache.putIfAbsent(imageType, image);
+            return previous != null ? previous : image;
         } catch (IOException e) {
             System.out.println("Could not load image: " + imagePath + " - " + e.getMessage());
             e.printStackTrace();
@@ -113,13 +128,13 @@ public class ItemRenderer {
     }
     
     /**
-     * Extracts a specific item from a sprite sheet based on the item name
+     * Finds the cell of a specific item in a sprite sheet based on the item name
      * 
-     * @param spriteSheet The sprite sheet to extract from
-     * @param itemName The name of the item to extract
-     * @return The extracted item image
+     * @param spriteSheet The sprite sheet to look in
+     * @param itemName The name of the item
+     * @return The top left corner of the item's cell
      */
-    private static BufferedImage extractSpecificItem(BufferedImage spriteSheet, String itemName) {
+    private static Point findItemCell(BufferedImage spriteSheet, String itemName) {
         // The sprite sheets are organized in a grid, so we need to determine
         // which cell to extract based on the item name
         
@@ -142,7 +157,6 @@ public class ItemRenderer {
         x = Math.min(x, spriteSheet.getWidth() - DEFAULT_ITEM_SIZE);
         y = Math.min(y, spriteSheet.getHeight() - DEFAULT_ITEM_SIZE);
         
-        // Extract the specific item
-        return spriteSheet.getSubimage(x, y, DEFAULT_ITEM_SIZE, DEFAULT_ITEM_SIZE);
+        return new Point(x, y);
     }
 }
\ No newline at end of file
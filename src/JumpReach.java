@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+ * How far the player of SimpleMarioGame can jump, worked out tick by tick
+ * from the same gravity, jump strength and walking speed the simulation
+ * uses, so a level built with it never asks for a jump the player can't make.
+ *
+ * The arc is stepped exactly like MarioSimulation.updateGame() steps it:
+ * gravity is added to the velocity, the velocity to the height, and the
+ * player lands on a platform top the bottom of the player crosses on the way
+ * down.
+ */
+public class JumpReach {
+    // Height above the take-off point after each tick of a jump, up positive
+    private final int[] heights;
+    private final int apexTick;
+    private final int maxRise;
+    private final int speed;
+
+    /**
+     * Works out the arc of a jump with the game's physics
+     */
+    public JumpReach() {
+        this(MarioSimulation.GRAVITY, MarioSimulation.JUMP_STRENGTH, MarioSimulation.MOVEMENT_SPEED,
+             MarioSimulation.WORLD_HEIGHT);
+    }
+
+    /**
+     * @param gravity Added to the falling speed every tick
+     * @param jumpStrength Upward speed at take-off
+     * @param speed Horizontal distance walked per tick
+     * @param maxDrop How far below the take-off point the arc is followed
+     */
+    public JumpReach(int gravity, int jumpStrength, int speed, int maxDrop) {
+        this.speed = speed;
+
+        int[] arc = new int[64];
+        int count = 0;
+        int height = 0;
+        int velocity = -jumpStrength; // Down positive, as in the simulation
+        int top = 0;
+        int topTick = 0;
+        while (height >= -maxDrop) {
+            velocity += gravity;
+            height -= velocity;
+            if (count == arc.length) {
+                arc = Arrays.copyOf(arc, count * 2);
+            }
+            arc[count++] = height;
+            if (height > top) {
+                top = height;
+                topTick = count;
+            }
+        }
+        this.heights = Arrays.copyOf(arc, count);
+        this.apexTick = topTick;
+        this.maxRise = top;
+    }
+
+    /**
+     * @return The highest a platform top can be above the take-off point
+     */
+    public int getMaxRise() {
+        return maxRise;
+    }
+
+    /**
+     * How far the player gets sideways before landing on a top at a height
+     * @param rise Height of the landing top above the take-off point; negative for below
+     * @return The horizontal distance covered, or -1 if the top is out of reach
+     */
+    public int getMaxDistance(int rise) {
+        if (rise > maxRise) return -1;
+        // The player lands on the first tick after the apex that ends at or below the top
+        for (int tick = apexTick; tick <= heights.length; tick++) {
+            if (heights[tick - 1] <= rise) {
+                // Landing is checked before the tick's step sideways
+                return speed * (tick - 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether a platform can be jumped to from another one
+     * @param fromX Left edge of the platform jumped from
+     * @param fromWidth Its width
+     * @param fromY Its top
+     * @param toX Left edge of the platform to land on
+     * @param toWidth Its width
+     * @param toY Its top
+     * @param margin Fraction of the full reach allowed, below 1 to leave the player some slack
+     */
+    public boolean canReach(int fromX, int fromWidth, int fromY, int toX, int toWidth, int toY, double margin) {
+        int rise = fromY - toY;
+        if (rise > maxRise * margin) return false;
+        int gap = Math.max(0, Math.max(toX - (fromX + fromWidth), fromX - (toX + toWidth)));
+        int reach = getMaxDistance(rise);
+        return reach >= 0 && gap <= reach * margin;
+    }
+}
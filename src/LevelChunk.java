@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+/**
+ * The contents of one fixed-width slice of a SimpleMarioGame level: its
+ * platforms, coins and enemy spawns, in world coordinates, and the tiles the
+ * platforms are made of.
+ *
+ * A chunk is filled in by a ChunkSource, possibly on another thread, and not
+ * changed after that; the simulation copies what it needs into its own stores
+ * when the chunk becomes active. Coins and enemies are numbered within the
+ * chunk, so which of them are gone can be kept as one bit each.
+ *
+ * Platforms are laid on the tile grid: their edges must fall on tile edges.
+ * A platform on the ground is floor, anything higher is a stone ledge.
+ */
+public class LevelChunk {
+    /** Width of every chunk in pixels */
+    public static final int WIDTH = 1024;
+
+    /** Most coins, or enemies, a chunk can hold: one bit each in a long */
+    public static final int MAX_ENTITIES = 64;
+
+    private final int index;
+
+    // What the platforms are drawn and stood on as
+    private final TileMap tiles = new TileMap();
+
+    // Platforms as x, y, width, height
+    private int platformCount = 0;
+    int[] platforms = new int[4 * 8];
+
+    private int coinCount = 0;
+    int[] coinX = new int[16];
+    int[] coinY = new int[16];
+    SimpleMarioGame.Item[] coinItems = new SimpleMarioGame.Item[16];
+
+    // Enemy spawns, each patrolling between its own left and right edge
+    private int enemyCount = 0;
+    int[] enemyX = new int[4];
+    int[] enemyY = new int[4];
+    int[] enemyMinX = new int[4];
+    int[] enemyMaxX = new int[4];
+
+    /**
+     * @param index The chunk's position in the level, counted from the left
+     */
+    public LevelChunk(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /** @return The world x coordinate of the chunk's left edge */
+    public int getX() {
+        return index * WIDTH;
+    }
+
+    /**
+     * Adds a platform and lays its tiles
+     * @throws IllegalArgumentException If its edges aren't on tile edges
+     */
+    public void addPlatform(int x, int y, int width, int height) {
+        int column = x - getX();
+        int row = y - TileMap.TOP;
+        if (column % TileMap.SIZE != 0 || row % TileMap.SIZE != 0 ||
+            width % TileMap.SIZE != 0 || height % TileMap.SIZE != 0) {
+            throw new IllegalArgumentException("Platform at " + x + "," + y + " size " + width + "x" + height
+                                               + " is not on the " + TileMap.SIZE + " px tile grid");
+        }
+        column /= TileMap.SIZE;
+        row /= TileMap.SIZE;
+        if (y == MarioSimulation.GROUND_LEVEL) {
+            tiles.fillFloor(column, row, width / TileMap.SIZE, height / TileMap.SIZE);
+        } else {
+            tiles.fill(column, row, width / TileMap.SIZE, height / TileMap.SIZE, TileMap.LEDGE);
+        }
+
+        if (platformCount * 4 == platforms.length) {
+            platforms = Arrays.copyOf(platforms, platforms.length * 2);
+        }
+        int at = platformCount++ * 4;
+        platforms[at] = x;
+        platforms[at + 1] = y;
+        platforms[at + 2] = width;
+        platforms[at + 3] = height;
+    }
+
+    public void addCoin(int x, int y, SimpleMarioGame.Item item) {
+        if (coinCount == MAX_ENTITIES) {
+            throw new IllegalStateException("Chunk " + index + " already has " + MAX_ENTITIES + " coins");
+        }
+        if (coinCount == coinX.length) {
+            coinX = Arrays.copyOf(coinX, coinCount * 2);
+            coinY = Arrays.copyOf(coinY, coinCount * 2);
+            coinItems = Arrays.copyOf(coinItems, coinCount * 2);
+        }
+        coinX[coinCount] = x;
+        coinY[coinCount] = y;
+        coinItems[coinCount] = item;
+        coinCount++;
+    }
+
+    /**
+     * Adds an enemy spawn
+     * @param minX The left end of its patrol
+     * @param maxX The right end of its patrol; the enemy's right side turns there
+     */
+    public void addEnemy(int x, int y, int minX, int maxX) {
+        if (enemyCount == MAX_ENTITIES) {
+            throw new IllegalStateException("Chunk " + index + " already has " + MAX_ENTITIES + " enemies");
+        }
+        if (enemyCount == enemyX.length) {
+            enemyX = Arrays.copyOf(enemyX, enemyCount * 2);
+            enemyY = Arrays.copyOf(enemyY, enemyCount * 2);
+            enemyMinX = Arrays.copyOf(enemyMinX, enemyCount * 2);
+            enemyMaxX = Arrays.copyOf(enemyMaxX, enemyCount * 2);
+        }
+        enemyX[enemyCount] = x;
+        enemyY[enemyCount] = y;
+        enemyMinX[enemyCount] = minX;
+        enemyMaxX[enemyCount] = maxX;
+        enemyCount++;
+    }
+
+    public TileMap getTiles() {
+        return tiles;
+    }
+
+    public int getPlatformCount() {
+        return platformCount;
+    }
+
+    public int getCoinCount() {
+        return coinCount;
+    }
+
+    public int getEnemyCount() {
+        return enemyCount;
+    }
+}
@@ -0,0 +1,428 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SimpleMarioGame level stored in a file, one chunk after another, read
+ * through a memory-mapped buffer. Opening a level reads only the header,
+ * the index and the item names, and turns down a file whose records don't
+ * fit in it with an IOException; a chunk's bytes are paged in by the OS when
+ * the chunk is first created, so even a level of many megabytes opens at
+ * once. A chunk is checked when it is created, and a damaged one is
+ * replaced by a CaveGenerator chunk instead of failing on ChunkStreamer's
+ * thread in the middle of play.
+ *
+ * File format, big-endian, every record fixed-width:
+ * <pre>
+ * header   magic "CLVL", version, chunk width, tile size, tile columns,
+ *          tile rows, chunk count, string count (ints), index offset,
+ *          string table offset (longs)
+ * chunks   per chunk: the tile ids (columns * rows bytes), then
+ *          platforms as x, y, width, height (4 ints),
+ *          coins as x, y, value, weight (ints), name, type (unsigned shorts into the string table),
+ *          enemy spawns as x, y, left edge, right edge (4 ints)
+ * index    per chunk: offset of its data (long), platform, coin and enemy counts (ints)
+ * strings  item names and types, each as a length (unsigned short) and UTF-8 bytes
+ * </pre>
+ * Coordinates are world coordinates, as in LevelChunk.
+ *
+ * Run with: java -cp src LevelFile [file] [chunks] [seed]
+ * to export a generated level of that many chunks, if the file doesn't exist
+ * yet, and measure how long it takes to open and read.
+ */
+public class LevelFile implements ChunkSource {
+    private static final int MAGIC = 0x434C564C; // "CLVL"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8 * 4 + 2 * 8;
+    private static final int INDEX_RECORD = 8 + 3 * 4;
+    private static final int TILES_SIZE = TileMap.COLUMNS * TileMap.ROWS;
+    private static final int PLATFORM_RECORD = 4 * 4;
+    private static final int COIN_RECORD = 4 * 4 + 2 * 2;
+    private static final int ENEMY_RECORD = 4 * 4;
+    // String ids and lengths are unsigned shorts
+    private static final int MAX_SHORT = 0xFFFF;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int chunkCount;
+    private final int indexOffset;
+    private final String[] strings;
+    // Makes a stand-in for a damaged chunk
+    private final ChunkSource fallback = new CaveGenerator();
+
+    private LevelFile(File file, MappedByteBuffer buffer, int chunkCount, int indexOffset, String[] strings) {
+        this.file = file;
+        this.buffer = buffer;
+        this.chunkCount = chunkCount;
+        this.indexOffset = indexOffset;
+        this.strings = strings;
+    }
+
+    /**
+     * Maps a level file and reads its header, index and strings
+     * @throws IOException If it can't be read, isn't a level this game can
+     *                     play, or its chunks lie outside it
+     */
+    public static LevelFile open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to map");
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a level file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        if (buffer.getInt(8) != LevelChunk.WIDTH || buffer.getInt(12) != TileMap.SIZE ||
+            buffer.getInt(16) != TileMap.COLUMNS || buffer.getInt(20) != TileMap.ROWS) {
+            throw new IOException(file + " was made for a different chunk or tile size");
+        }
+        int chunkCount = buffer.getInt(24);
+        int stringCount = buffer.getInt(28);
+        long indexOffset = buffer.getLong(32);
+        long stringsOffset = buffer.getLong(40);
+        // Every string takes at least its length
+        if (chunkCount < 0 || stringCount < 0 || stringCount > MAX_SHORT + 1 || indexOffset < HEADER_SIZE ||
+            stringsOffset < indexOffset + (long) chunkCount * INDEX_RECORD ||
+            stringsOffset + 2L * stringCount > buffer.capacity()) {
+            throw new IOException(file + " is truncated or damaged");
+        }
+
+        String[] strings = new String[stringCount];
+        ByteBuffer in = buffer.duplicate();
+        in.position((int) stringsOffset);
+        for (int i = 0; i < stringCount; i++) {
+            if (in.remaining() < 2 || in.remaining() - 2 < (in.getShort(in.position()) & MAX_SHORT)) {
+                throw new IOException(file + " is truncated in string " + i + " of " + stringCount);
+            }
+            byte[] bytes = new byte[in.getShort() & MAX_SHORT];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        for (int index = 0; index < chunkCount; index++) {
+            checkIndex(file, buffer, index, (int) indexOffset);
+        }
+        return new LevelFile(file, buffer, chunkCount, (int) indexOffset, strings);
+    }
+
+    /**
+     * Checks a chunk's index record: that its entity counts are ones a
+     * LevelChunk takes and its records lie between the header and the index
+     * @throws IOException If they don't
+     */
+    private static void checkIndex(File file, ByteBuffer buffer, int index, int indexOffset) throws IOException {
+        int entry = indexOffset + index * INDEX_RECORD;
+        long at = buffer.getLong(entry);
+        int platformCount = buffer.getInt(entry + 8);
+        int coinCount = buffer.getInt(entry + 12);
+        int enemyCount = buffer.getInt(entry + 16);
+        if (platformCount < 0 || coinCount < 0 || coinCount > LevelChunk.MAX_ENTITIES ||
+            enemyCount < 0 || enemyCount > LevelChunk.MAX_ENTITIES) {
+            throw new IOException(file + ": chunk " + index + " has " + platformCount + " platforms, "
+                                  + coinCount + " coins and " + enemyCount + " enemies");
+        }
+        long end = at + TILES_SIZE + (long) platformCount * PLATFORM_RECORD + (long) coinCount * COIN_RECORD
+                   + (long) enemyCount * ENEMY_RECORD;
+        if (at < HEADER_SIZE || end > indexOffset) {
+            throw new IOException(file + ": chunk " + index + " lies outside the chunk data, at " + at);
+        }
+    }
+
+    /**
+     * Checks the records of a chunk whose index record open() has checked:
+     * that its tiles, platforms and string ids are ones a LevelChunk takes
+     * @param tiles The chunk's tiles, already read
+     * @throws IOException If anything is out of range
+     */
+    private void checkChunk(int index, int at, byte[] tiles, int platformCount, int coinCount) throws IOException {
+        for (byte tile : tiles) {
+            if (tile < 0 || tile >= TileMap.TILE_COUNT) {
+                throw new IOException(file + ": chunk " + index + " has unknown tile " + tile);
+            }
+        }
+        int offset = at + TILES_SIZE;
+        int chunkX = index * LevelChunk.WIDTH;
+        for (int i = 0; i < platformCount; i++, offset += PLATFORM_RECORD) {
+            // Relative to the tile grid, as addPlatform lays its tiles there
+            long column = (long) buffer.getInt(offset) - chunkX;
+            long row = (long) buffer.getInt(offset + 4) - TileMap.TOP;
+            int width = buffer.getInt(offset + 8);
+            int height = buffer.getInt(offset + 12);
+            if (column % TileMap.SIZE != 0 || row % TileMap.SIZE != 0 || width % TileMap.SIZE != 0 ||
+                height % TileMap.SIZE != 0 || column < 0 || row < 0 || width <= 0 || height <= 0 ||
+                column + width > LevelChunk.WIDTH || row + height > TileMap.ROWS * TileMap.SIZE) {
+                throw new IOException(file + ": chunk " + index + " has platform " + i + " off its tile grid");
+            }
+        }
+        for (int i = 0; i < coinCount; i++, offset += COIN_RECORD) {
+            int name = buffer.getShort(offset + 16) & MAX_SHORT;
+            int type = buffer.getShort(offset + 18) & MAX_SHORT;
+            if (name >= strings.length || type >= strings.length) {
+                throw new IOException(file + ": chunk " + index + " has coin " + i + " with an unknown item");
+            }
+        }
+    }
+
+    /**
+     * Reads a chunk out of the mapped file. The file holds everything, so the
+     * random streams are only used to generate a stand-in for a damaged chunk.
+     */
+    @Override
+    public LevelChunk createChunk(int index, GameRandom random) {
+        if (index < 0 || index >= chunkCount) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + chunkCount + " in " + file);
+        }
+        int entry = indexOffset + index * INDEX_RECORD;
+        int at = (int) buffer.getLong(entry);
+        int platformCount = buffer.getInt(entry + 8);
+        int coinCount = buffer.getInt(entry + 12);
+        int enemyCount = buffer.getInt(entry + 16);
+        byte[] tiles = new byte[TILES_SIZE];
+        ByteBuffer in = buffer.duplicate();
+        in.position(at);
+        in.get(tiles);
+        try {
+            checkChunk(index, at, tiles, platformCount, coinCount);
+        } catch (IOException e) {
+            System.err.println(e.getMessage() + "; generating the chunk instead");
+            return fallback.createChunk(index, random);
+        }
+
+        LevelChunk chunk = new LevelChunk(index);
+        at += TILES_SIZE;
+        for (int i = 0; i < platformCount; i++, at += PLATFORM_RECORD) {
+            chunk.addPlatform(buffer.getInt(at), buffer.getInt(at + 4), buffer.getInt(at + 8), buffer.getInt(at + 12));
+        }
+        for (int i = 0; i < coinCount; i++, at += COIN_RECORD) {
+            // Every coin gets an item of its own, as the simulation tells items apart by identity
+            SimpleMarioGame.Item item = new SimpleMarioGame.Item(strings[buffer.getShort(at + 16) & MAX_SHORT],
+                                                                 buffer.getInt(at + 8), buffer.getInt(at + 12),
+                                                                 strings[buffer.getShort(at + 18) & MAX_SHORT]);
+            chunk.addCoin(buffer.getInt(at), buffer.getInt(at + 4), item);
+        }
+        for (int i = 0; i < enemyCount; i++, at += ENEMY_RECORD) {
+            chunk.addEnemy(buffer.getInt(at), buffer.getInt(at + 4), buffer.getInt(at + 8), buffer.getInt(at + 12));
+        }
+        // The stored tiles win over the ones laid for the platforms, so edited tiles survive
+        chunk.getTiles().read(ByteBuffer.wrap(tiles));
+        return chunk;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /** @return Size of the file in bytes */
+    public int getSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Writes a level to a file, creating its chunks one at a time so only one
+     * is in memory at once
+     * @param file The file to write
+     * @param source Creates the chunks
+     * @param random The level's randomness; chunk i gets random.forChunk(0, i)
+     * @param chunkCount Length of the level in chunks
+     * @throws IOException If the file can't be written, or the level has
+     *                     more item names and types, or longer ones, than
+     *                     the string table holds
+     */
+    public static void export(File file, ChunkSource source, GameRandom random, int chunkCount) throws IOException {
+        long[] offsets = new long[chunkCount];
+        int[] counts = new int[chunkCount * 3];
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIds = new HashMap<>();
+        long indexOffset;
+        long stringsOffset;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            // The offsets in the header are filled in at the end
+            out.write(new byte[HEADER_SIZE]);
+            long offset = HEADER_SIZE;
+            for (int index = 0; index < chunkCount; index++) {
+                LevelChunk chunk = source.createChunk(index, random.forChunk(0, index));
+                offsets[index] = offset;
+                counts[index * 3] = chunk.getPlatformCount();
+                counts[index * 3 + 1] = chunk.getCoinCount();
+                counts[index * 3 + 2] = chunk.getEnemyCount();
+
+                chunk.getTiles().write(out);
+                for (int i = 0; i < chunk.getPlatformCount() * 4; i++) {
+                    out.writeInt(chunk.platforms[i]);
+                }
+                for (int i = 0; i < chunk.getCoinCount(); i++) {
+                    SimpleMarioGame.Item item = chunk.coinItems[i];
+                    out.writeInt(chunk.coinX[i]);
+                    out.writeInt(chunk.coinY[i]);
+                    out.writeInt(item.getValue());
+                    out.writeInt(item.getWeight());
+                    out.writeShort(stringId(file, item.getName(), strings, stringIds));
+                    out.writeShort(stringId(file, item.getImageType(), strings, stringIds));
+                }
+                for (int i = 0; i < chunk.getEnemyCount(); i++) {
+                    out.writeInt(chunk.enemyX[i]);
+                    out.writeInt(chunk.enemyY[i]);
+                    out.writeInt(chunk.enemyMinX[i]);
+                    out.writeInt(chunk.enemyMaxX[i]);
+                }
+                offset += TILES_SIZE + chunk.getPlatformCount() * PLATFORM_RECORD
+                          + chunk.getCoinCount() * COIN_RECORD + chunk.getEnemyCount() * ENEMY_RECORD;
+            }
+
+            indexOffset = offset;
+            for (int index = 0; index < chunkCount; index++) {
+                out.writeLong(offsets[index]);
+                out.writeInt(counts[index * 3]);
+                out.writeInt(counts[index * 3 + 1]);
+                out.writeInt(counts[index * 3 + 2]);
+            }
+            stringsOffset = indexOffset + (long) chunkCount * INDEX_RECORD;
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_SHORT) {
+                    throw new IOException("Item name or type of " + bytes.length + " bytes is too long for " + file);
+                }
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeInt(LevelChunk.WIDTH);
+            raf.writeInt(TileMap.SIZE);
+            raf.writeInt(TileMap.COLUMNS);
+            raf.writeInt(TileMap.ROWS);
+            raf.writeInt(chunkCount);
+            raf.writeInt(strings.size());
+            raf.writeLong(indexOffset);
+            raf.writeLong(stringsOffset);
+        }
+    }
+
+    /**
+     * @return The id of a string in the string table, which is added if it is new
+     * @throws IOException If the table is full
+     */
+    private static int stringId(File file, String string, List<String> strings, Map<String, Integer> stringIds)
+            throws IOException {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            if (id > MAX_SHORT) {
+                throw new IOException("More than " + (MAX_SHORT + 1) + " item names and types for " + file);
+            }
+            strings.add(string);
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : "cave.level");
+        int chunks = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        GameRandom random = new GameRandom(seed);
+        CaveGenerator generator = new CaveGenerator();
+
+        if (!file.exists()) {
+            long start = System.nanoTime();
+            export(file, generator, random, chunks);
+            System.out.printf("Exported %,d chunks to %s in %.1f ms: %.1f MB%n", chunks, file,
+                              (System.nanoTime() - start) / 1e6, file.length() / 1e6);
+        }
+
+        long start = System.nanoTime();
+        LevelFile level = open(file);
+        long openNanos = System.nanoTime() - start;
+        System.out.printf("Opened %s (%.1f MB, %,d chunks) in %.3f ms%n", file, level.getSize() / 1e6,
+                          level.getChunkCount(), openNanos / 1e6);
+
+        // The first chunk, as the game needs it to start; its pages come from disk or the page cache
+        start = System.nanoTime();
+        level.createChunk(0, random.forChunk(0, 0));
+        System.out.printf("First chunk read in %.3f ms%n", (System.nanoTime() - start) / 1e6);
+
+        for (int round = 1; round <= 3; round++) {
+            start = System.nanoTime();
+            long platforms = 0;
+            for (int i = 0; i < level.getChunkCount(); i++) {
+                platforms += level.createChunk(i, random.forChunk(0, i)).getPlatformCount();
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("Round %d: read all chunks in %.1f ms, %,.0f chunks/s, %.0f MB/s (%d platforms)%n",
+                              round, nanos / 1e6, level.getChunkCount() / (nanos / 1e9),
+                              level.getSize() / 1e6 / (nanos / 1e9), platforms);
+        }
+
+        // Generating the same chunks instead, for comparison
+        start = System.nanoTime();
+        for (int i = 0; i < level.getChunkCount(); i++) {
+            generator.createChunk(i, random.forChunk(0, i));
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Generating them instead: %.1f ms, %,.0f chunks/s%n",
+                          nanos / 1e6, level.getChunkCount() / (nanos / 1e9));
+
+        // Check that the file holds what the generator makes
+        int mismatches = 0;
+        for (int i = 0; i < Math.min(level.getChunkCount(), chunks); i++) {
+            if (!sameContents(level.createChunk(i, random.forChunk(0, i)), generator.createChunk(i, random.forChunk(0, i)))) {
+                mismatches++;
+            }
+        }
+        System.out.println(mismatches == 0 ? "Every chunk matches the generated level"
+                                           : mismatches + " chunks differ from the generated level");
+    }
+
+    private static boolean sameContents(LevelChunk a, LevelChunk b) {
+        if (a.getPlatformCount() != b.getPlatformCount() || a.getCoinCount() != b.getCoinCount() ||
+            a.getEnemyCount() != b.getEnemyCount()) {
+            return false;
+        }
+        for (int i = 0; i < a.getPlatformCount() * 4; i++) {
+            if (a.platforms[i] != b.platforms[i]) return false;
+        }
+        for (int i = 0; i < a.getCoinCount(); i++) {
+            SimpleMarioGame.Item x = a.coinItems[i];
+            SimpleMarioGame.Item y = b.coinItems[i];
+            if (a.coinX[i] != b.coinX[i] || a.coinY[i] != b.coinY[i] || !x.getName().equals(y.getName()) ||
+                x.getValue() != y.getValue() || x.getWeight() != y.getWeight() ||
+                !x.getImageType().equals(y.getImageType())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < a.getEnemyCount(); i++) {
+            if (a.enemyX[i] != b.enemyX[i] || a.enemyY[i] != b.enemyY[i] ||
+                a.enemyMinX[i] != b.enemyMinX[i] || a.enemyMaxX[i] != b.enemyMaxX[i]) {
+                return false;
+            }
+        }
+        for (int row = 0; row < TileMap.ROWS; row++) {
+            for (int column = 0; column < TileMap.COLUMNS; column++) {
+                if (a.getTiles().get(column, row) != b.getTiles().get(column, row)) return false;
+            }
+        }
+        return true;
+    }
+}
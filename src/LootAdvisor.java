@@ -0,0 +1,293 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Recommends what to do with the current item of CaveLootChallenge. Items
+ * arrive one at a time and the player can't look ahead, so this is an online
+ * knapsack problem.
+ *
+ * The advisor plays out random orders of the items not seen yet after every
+ * possible choice, and picks the choice with the best average result, for as
+ * many orders as the time budget allows.
+ *
+ * When sampling is off, or the budget runs out before a single order, it
+ * falls back to a threshold on value per weight that rises as the backpack
+ * fills: psi(z) = (L / e) * (U * e / L)^z, where z is the fraction of
+ * capacity used and L and U are the lowest and highest value per weight
+ * among the items still possible. Early on nearly everything is worth
+ * taking; near the end only the best items are. If everything still
+ * possible fits, everything is worth taking.
+ */
+public class LootAdvisor {
+    public static final int TAKE_ALL = LootGameEngine.TAKE_ALL;
+    public static final int TAKE_PART = LootGameEngine.TAKE_PART;
+    public static final int SKIP = LootGameEngine.SKIP;
+
+    private static final String[] ACTION_NAMES = {"Take All", "Take Part", "Skip"};
+
+    // Default time budget for one recommendation, well inside a frame
+    private static final long DEFAULT_BUDGET_NANOS = 800_000;
+
+    private final int capacity;
+    private final double minRatio;
+    private final double maxRatio;
+    private final SplittableRandom random;
+
+    private boolean sampling = true;
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private int maxSamples = 10_000;
+
+    // Scratch space for the simulations, reused between calls
+    private int[] unseenWeights = new int[16];
+    private int[] unseenValues = new int[16];
+    private int[] order = new int[16];
+
+    /**
+     * A recommendation and why it was made
+     */
+    public static class Advice {
+        private final int action;
+        private final long nanos;
+        // What the reason is built from; formatted only when asked for
+        private final double ratio;
+        private final double threshold;
+        private final double expected;
+        private final int samples;
+
+        Advice(int action, long nanos, double ratio, double threshold, double expected, int samples) {
+            this.action = action;
+            this.nanos = nanos;
+            this.ratio = ratio;
+            this.threshold = threshold;
+            this.expected = expected;
+            this.samples = samples;
+        }
+
+        /** @return One of TAKE_ALL, TAKE_PART or SKIP */
+        public int getAction() {
+            return action;
+        }
+
+        public String getActionName() {
+            return ACTION_NAMES[action];
+        }
+
+        public String getReason() {
+            if (samples > 0) {
+                return String.format("expects %.1f more value over %d sampled orders", expected, samples);
+            }
+            return String.format("value/weight %.2f %s threshold %.2f", ratio, ratio >= threshold ? ">=" : "<", threshold);
+        }
+
+        /** @return How long the recommendation took to compute */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * @param catalog Every item that can appear, used for the value per weight range
+     * @param capacity The backpack capacity
+     */
+    public LootAdvisor(List<CaveLootChallenge.Item> catalog, int capacity) {
+        this(catalog, capacity, new SplittableRandom());
+    }
+
+    /**
+     * @param catalog Every item that can appear, used for the value per weight range
+     * @param capacity The backpack capacity
+     * @param random Source of the sampled orders
+     */
+    public LootAdvisor(List<CaveLootChallenge.Item> catalog, int capacity, SplittableRandom random) {
+        this.capacity = capacity;
+        this.random = random;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (CaveLootChallenge.Item item : catalog) {
+            if (item.getWeight() <= 0) continue;
+            double ratio = (double) item.getValue() / item.getWeight();
+            min = Math.min(min, ratio);
+            max = Math.max(max, ratio);
+        }
+        if (max <= 0) {
+            min = max = 1;
+        }
+        // Keep the ratio range positive so the threshold curve is defined
+        this.minRatio = Math.max(min, max * 1e-6);
+        this.maxRatio = max;
+    }
+
+    /**
+     * @param sampling Whether to simulate the unseen items, or only use the threshold
+     */
+    public void setSampling(boolean sampling) {
+        this.sampling = sampling;
+    }
+
+    public boolean isSampling() {
+        return sampling;
+    }
+
+    /**
+     * @param budgetNanos Time allowed for sampling per recommendation
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Limits sampling by count. With an unlimited time budget this makes the
+     * recommendations depend only on the random seed.
+     * @param maxSamples Most sampled orders per recommendation
+     */
+    public void setMaxSamples(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * The value per weight an item needs to be worth taking, with L and U
+     * over the whole catalog, for when the unseen items aren't known
+     * @param usedWeight Weight already in the backpack
+     * @return The threshold psi(z)
+     */
+    public double threshold(int usedWeight) {
+        return threshold(usedWeight, minRatio, maxRatio);
+    }
+
+    private double threshold(int usedWeight, double low, double high) {
+        double z = Math.min(1.0, (double) usedWeight / capacity);
+        return low / Math.E * Math.pow(high * Math.E / low, z);
+    }
+
+    /**
+     * Recommends what to do with an item
+     * @param item The item on offer
+     * @param usedWeight Weight already in the backpack
+     * @param unseen Items that may still come, in any order; may be null, which
+     *               leaves only the catalog's threshold
+     * @return The recommendation
+     */
+    public Advice recommend(CaveLootChallenge.Item item, int usedWeight, Collection<CaveLootChallenge.Item> unseen) {
+        long start = System.nanoTime();
+        int remaining = capacity - usedWeight;
+        boolean canTakeAll = item.getWeight() <= remaining;
+        boolean canTakePart = remaining > 0;
+
+        double ratio = item.getWeight() > 0 ? (double) item.getValue() / item.getWeight() : Double.POSITIVE_INFINITY;
+        int n = unseen != null ? loadUnseen(unseen) : 0;
+        double threshold = unseen != null ? unseenThreshold(item, usedWeight, n) : threshold(usedWeight);
+        int action = !canTakePart || ratio < threshold ? SKIP : canTakeAll ? TAKE_ALL : TAKE_PART;
+        double expected = 0;
+        int samples = 0;
+
+        if (sampling && unseen != null) {
+            // Play out the rest of the game after each possible choice
+            double[] total = new double[3];
+            boolean[] allowed = {canTakeAll, canTakePart && !canTakeAll, true};
+            long deadline = start + budgetNanos;
+            while (System.nanoTime() - deadline < 0 && samples < maxSamples) {
+                shuffle(n);
+                for (int a = 0; a < 3; a++) {
+                    if (allowed[a]) {
+                        total[a] += playOut(a, item.getWeight(), item.getValue(), usedWeight, n);
+                    }
+                }
+                samples++;
+            }
+
+            // With no time for a single order, the threshold's choice stands
+            if (samples > 0) {
+                int best = -1;
+                for (int a = 0; a < 3; a++) {
+                    if (allowed[a] && (best < 0 || total[a] > total[best])) best = a;
+                }
+                action = best;
+                expected = total[best] / samples;
+            }
+        }
+
+        return new Advice(action, System.nanoTime() - start, ratio, threshold, expected, samples);
+    }
+
+    /**
+     * The threshold psi(z) with L and U taken from the items still possible:
+     * the one on offer and the unseen ones, loaded by loadUnseen. If they all
+     * fit in what is left of the backpack, any of them is worth taking.
+     */
+    private double unseenThreshold(CaveLootChallenge.Item item, int usedWeight, int n) {
+        long supply = item.getWeight();
+        double low = Double.MAX_VALUE;
+        double high = 0;
+        for (int k = -1; k < n; k++) {
+            int weight = k < 0 ? item.getWeight() : unseenWeights[k];
+            int value = k < 0 ? item.getValue() : unseenValues[k];
+            if (k >= 0) supply += weight;
+            if (weight <= 0) continue;
+            double ratio = (double) value / weight;
+            low = Math.min(low, ratio);
+            high = Math.max(high, ratio);
+        }
+        if (supply <= capacity - usedWeight || high <= 0) return 0;
+        return threshold(usedWeight, Math.max(low, high * 1e-6), high);
+    }
+
+    /**
+     * Applies a choice for the current item, then takes whatever fits of the
+     * unseen items in the current sampled order. Choosing the best first step
+     * against this simple continuation never does worse than the continuation
+     * itself.
+     * @return The value gained from the current item on
+     */
+    private double playOut(int action, int weight, int value, int usedWeight, int n) {
+        double gained = 0;
+        int used = usedWeight;
+        for (int k = -1; k < n; k++) {
+            if (k >= 0) {
+                weight = unseenWeights[order[k]];
+                value = unseenValues[order[k]];
+                action = weight <= capacity - used ? TAKE_ALL : TAKE_PART;
+            }
+
+            if (action == TAKE_ALL) {
+                used += weight;
+                gained += value;
+            } else if (action == TAKE_PART) {
+                // Fill the backpack with part of the item, like takePartial()
+                int remaining = capacity - used;
+                gained += weight > 0 ? (int) (value * ((double) remaining / weight)) : value;
+                used = capacity;
+            }
+
+            // The game ends once the backpack is full
+            if (used >= capacity) break;
+        }
+        return gained;
+    }
+
+    private int loadUnseen(Collection<CaveLootChallenge.Item> unseen) {
+        int n = unseen.size();
+        if (n > order.length) {
+            unseenWeights = new int[n];
+            unseenValues = new int[n];
+            order = new int[n];
+        }
+        int k = 0;
+        for (CaveLootChallenge.Item item : unseen) {
+            unseenWeights[k] = item.getWeight();
+            unseenValues[k] = item.getValue();
+            order[k] = k;
+            k++;
+        }
+        return n;
+    }
+
+    private void shuffle(int n) {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+    }
+}
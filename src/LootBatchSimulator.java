@@ -0,0 +1,177 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Plays CaveLootChallenge headless, many games at a time on all cores, and
+ * prints the score distribution of each player policy.
+ *
+ * Game i uses a seed derived from the base seed and i alone, for both the
+ * treasure order and the policy's own randomness, so the same base seed gives
+ * the same results no matter how the games are split between threads.
+ *
+ * Run with: java -cp src LootBatchSimulator [games] [seed] [policy...]
+ * Policies: greedy, threshold, advisor, random
+ */
+public class LootBatchSimulator {
+    private static final int HISTOGRAM_BUCKETS = 10;
+    private static final int BAR_WIDTH = 50;
+
+    // Sampled orders per advisor decision; a count instead of a time budget keeps runs reproducible
+    private static final int ADVISOR_SAMPLES = 64;
+
+    private static final Map<String, LongFunction<LootPolicy>> POLICIES = new LinkedHashMap<>();
+
+    static {
+        // Take everything that fits, and fill the backpack with the first thing that doesn't
+        POLICIES.put("greedy", seed -> game -> game.canTakeAll() ? LootGameEngine.TAKE_ALL
+                                             : game.canTakePart() ? LootGameEngine.TAKE_PART
+                                             : LootGameEngine.SKIP);
+
+        // The advisor's value per weight threshold alone, over the items still possible
+        POLICIES.put("threshold", seed -> {
+            LootAdvisor advisor = new LootAdvisor(LootGameEngine.createCatalog(), LootGameEngine.DEFAULT_CAPACITY);
+            advisor.setSampling(false);
+            return game -> advisor.recommend(game.getCurrentItem(), game.getWeight(),
+                                             game.getRemainingItems()).getAction();
+        });
+
+        // The advisor with sampling of the unseen items
+        POLICIES.put("advisor", seed -> {
+            LootAdvisor advisor = new LootAdvisor(LootGameEngine.createCatalog(), LootGameEngine.DEFAULT_CAPACITY,
+                                                  new SplittableRandom(seed));
+            advisor.setBudgetNanos(Long.MAX_VALUE);
+            advisor.setMaxSamples(ADVISOR_SAMPLES);
+            return game -> advisor.recommend(game.getCurrentItem(), game.getWeight(),
+                                             game.getRemainingItems()).getAction();
+        });
+
+        // Any allowed choice at random
+        POLICIES.put("random", seed -> {
+            SplittableRandom random = new SplittableRandom(seed);
+            return game -> {
+                int choice = random.nextInt(3);
+                if (choice == LootGameEngine.TAKE_ALL && !game.canTakeAll()) choice = LootGameEngine.SKIP;
+                if (choice == LootGameEngine.TAKE_PART && !game.canTakePart()) choice = LootGameEngine.SKIP;
+                return choice;
+            };
+        });
+    }
+
+    /**
+     * Spreads the game number over all 64 bits so neighbouring games get
+     * unrelated seeds (the finalizer of SplitMix64)
+     */
+    private static long gameSeed(long baseSeed, long game) {
+        long z = baseSeed + game * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Plays one seeded game
+     * @return The final value in the backpack
+     */
+    public static int playGame(LongFunction<LootPolicy> policyFactory, long seed) {
+        LootGameEngine game = LootGameEngine.newGame(new SplittableRandom(seed));
+        return game.play(policyFactory.apply(seed ^ 0x5DEECE66DL));
+    }
+
+    /**
+     * Plays games in parallel
+     * @return How many games ended with each value
+     */
+    public static long[] simulate(LongFunction<LootPolicy> policyFactory, long games, long baseSeed, int maxValue) {
+        return LongStream.range(0, games)
+                         .parallel()
+                         .mapToInt(i -> playGame(policyFactory, gameSeed(baseSeed, i)))
+                         .collect(() -> new long[maxValue + 1],
+                                  (counts, value) -> counts[value]++,
+                                  (a, b) -> {
+                                      for (int v = 0; v < a.length; v++) a[v] += b[v];
+                                  });
+    }
+
+    private static int percentile(long[] counts, long games, double fraction) {
+        long rank = (long) Math.ceil(games * fraction);
+        long seen = 0;
+        for (int v = 0; v < counts.length; v++) {
+            seen += counts[v];
+            if (seen >= Math.max(1, rank)) return v;
+        }
+        return counts.length - 1;
+    }
+
+    private static void printReport(String name, long[] counts, long games, double seconds, double optimum) {
+        double sum = 0;
+        int min = -1;
+        int max = 0;
+        for (int v = 0; v < counts.length; v++) {
+            if (counts[v] == 0) continue;
+            sum += (double) v * counts[v];
+            if (min < 0) min = v;
+            max = v;
+        }
+        double mean = sum / games;
+
+        System.out.printf("%n== %s: %,d games in %.2f s (%,.0f games/sec)%n", name, games, seconds, games / seconds);
+        System.out.printf("mean %.2f (%.1f%% of the best possible %.1f), min %d, median %d, p90 %d, max %d%n",
+                          mean, 100 * mean / optimum, optimum, min, percentile(counts, games, 0.5),
+                          percentile(counts, games, 0.9), max);
+
+        // Histogram over the range of values that occurred
+        int bucketSize = Math.max(1, (max - min + HISTOGRAM_BUCKETS) / HISTOGRAM_BUCKETS);
+        long[] buckets = new long[HISTOGRAM_BUCKETS];
+        for (int v = min; v <= max; v++) {
+            buckets[Math.min(HISTOGRAM_BUCKETS - 1, (v - min) / bucketSize)] += counts[v];
+        }
+        long largest = 1;
+        for (long b : buckets) largest = Math.max(largest, b);
+        for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+            int from = min + b * bucketSize;
+            if (from > max) break;
+            int to = b == HISTOGRAM_BUCKETS - 1 ? max : Math.min(max, from + bucketSize - 1);
+            StringBuilder bar = new StringBuilder();
+            for (int i = 0; i < buckets[b] * BAR_WIDTH / largest; i++) bar.append('#');
+            System.out.printf("%4d-%-4d %6.2f%% %s%n", from, to, 100.0 * buckets[b] / games, bar);
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        long baseSeed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        String[] names = args.length > 2 ? java.util.Arrays.copyOfRange(args, 2, args.length)
+                                         : POLICIES.keySet().toArray(new String[0]);
+
+        // Every game uses the same treasures, so the best possible value is the same too
+        List<CaveLootChallenge.Item> catalog = LootGameEngine.createCatalog();
+        double optimum = LootSolver.fractional(catalog, LootGameEngine.DEFAULT_CAPACITY).getValue();
+        int maxValue = 0;
+        for (CaveLootChallenge.Item item : catalog) {
+            maxValue += item.getValue();
+        }
+
+        System.out.println("Simulating " + games + " games per policy with seed " + baseSeed + " on "
+                           + Runtime.getRuntime().availableProcessors() + " cores");
+
+        for (String name : names) {
+            LongFunction<LootPolicy> policy = POLICIES.get(name);
+            if (policy == null) {
+                System.out.println("Unknown policy: " + name + " (expected one of " + POLICIES.keySet() + ")");
+                continue;
+            }
+
+            // A short warm-up run so the timing covers compiled code
+            simulate(policy, Math.min(games, 10_000), baseSeed + 1, maxValue);
+
+            long start = System.nanoTime();
+            long[] counts = simulate(policy, games, baseSeed, maxValue);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            printReport(name, counts, games, seconds, optimum);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The rules of CaveLootChallenge without any UI: treasures arrive one at a
+ * time from a shuffled queue and each one is taken whole, taken in part or
+ * skipped. The game ends when the backpack is full or the queue is empty.
+ *
+ * The Swing game drives one engine from its dialogs; LootBatchSimulator runs
+ * millions of them headless with a LootPolicy making the choices.
+ */
+public class LootGameEngine {
+    // Choices for the current item
+    public static final int TAKE_ALL = 0;
+    public static final int TAKE_PART = 1;
+    public static final int SKIP = 2;
+
+    public static final int DEFAULT_CAPACITY = 50;
+
+    private final int capacity;
+    private final List<CaveLootChallenge.Item> items;
+    private final ArrayDeque<CaveLootChallenge.Item> queue;
+    private CaveLootChallenge.Item currentItem;
+    private int weight = 0;
+    private int value = 0;
+    private boolean over = false;
+
+    /**
+     * @param items The treasures in the order they will arrive
+     * @param capacity The backpack capacity
+     */
+    public LootGameEngine(List<CaveLootChallenge.Item> items, int capacity) {
+        this.capacity = capacity;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.queue = new ArrayDeque<>(items);
+    }
+
+    /**
+     * Starts a game with the standard treasures in a random order
+     * @param random Decides the order of the treasures
+     * @return The new game
+     */
+    public static LootGameEngine newGame(SplittableRandom random) {
+        List<CaveLootChallenge.Item> items = createCatalog();
+        GameRandom.shuffle(items, random);
+        return new LootGameEngine(items, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return The standard treasures of the game, in a new list
+     */
+    public static List<CaveLootChallenge.Item> createCatalog() {
+        List<CaveLootChallenge.Item> items = new ArrayList<>();
+        items.add(new CaveLootChallenge.Item("Gold Nugget", 10, 5, "Resources"));
+        items.add(new CaveLootChallenge.Item("Ancient Relic", 20, 8, "Esoteric"));
+        items.add(new CaveLootChallenge.Item("Gemstone", 15, 3, "Resources"));
+        items.add(new CaveLootChallenge.Item("Magic Scroll", 25, 1, "Esoteric"));
+        items.add(new CaveLootChallenge.Item("Silver Chalice", 18, 7, "Dungeon_Props"));
+        items.add(new CaveLootChallenge.Item("Enchanted Sword", 30, 12, "Tools"));
+        items.add(new CaveLootChallenge.Item("Crystal Orb", 22, 10, "Esoteric"));
+        items.add(new CaveLootChallenge.Item("Golden Crown", 35, 8, "Dungeon_Props"));
+        items.add(new CaveLootChallenge.Item("Rare Spices", 12, 2, "Resources"));
+        items.add(new CaveLootChallenge.Item("Ancient Coin", 8, 1, "Resources"));
+        return items;
+    }
+
+    /**
+     * Moves on to the next treasure, ending the game if there is none
+     * @return The new current item, or null if the game is over
+     */
+    public CaveLootChallenge.Item nextItem() {
+        currentItem = over ? null : queue.poll();
+        if (currentItem == null) {
+            over = true;
+        }
+        return currentItem;
+    }
+
+    /** @return Whether the whole current item fits in the backpack */
+    public boolean canTakeAll() {
+        return currentItem != null && weight + currentItem.getWeight() <= capacity;
+    }
+
+    /** @return Whether there is any room left for part of the current item */
+    public boolean canTakePart() {
+        return currentItem != null && weight < capacity;
+    }
+
+    /**
+     * Puts the whole current item in the backpack
+     * @return The value gained
+     */
+    public int takeAll() {
+        if (!canTakeAll()) {
+            throw new IllegalStateException("The current item does not fit");
+        }
+        weight += currentItem.getWeight();
+        value += currentItem.getValue();
+        checkFull();
+        return currentItem.getValue();
+    }
+
+    /**
+     * Fills the rest of the backpack with part of the current item, its value
+     * prorated by weight. Never takes more than the whole item.
+     * @return The value gained
+     */
+    public int takePartial() {
+        if (!canTakePart()) {
+            throw new IllegalStateException("The backpack is full");
+        }
+        int taken = Math.min(capacity - weight, currentItem.getWeight());
+        double proportion = (double) taken / currentItem.getWeight();
+        int partialValue = (int) (currentItem.getValue() * proportion);
+
+        weight += taken;
+        value += partialValue;
+        checkFull();
+        return partialValue;
+    }
+
+    /**
+     * Leaves the current item behind
+     */
+    public void skip() {
+        if (currentItem == null) {
+            throw new IllegalStateException("No current item");
+        }
+    }
+
+    /**
+     * Applies one of TAKE_ALL, TAKE_PART or SKIP to the current item
+     * @param action The choice
+     * @return The value gained
+     */
+    public int apply(int action) {
+        switch (action) {
+            case TAKE_ALL:
+                return takeAll();
+            case TAKE_PART:
+                return takePartial();
+            case SKIP:
+                skip();
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown action: " + action);
+        }
+    }
+
+    /**
+     * Plays the rest of the game with a policy making every choice
+     * @param policy The player
+     * @return The final value in the backpack
+     */
+    public int play(LootPolicy policy) {
+        while (nextItem() != null) {
+            apply(policy.decide(this));
+        }
+        return value;
+    }
+
+    private void checkFull() {
+        // The game ends as soon as the backpack is full
+        if (weight >= capacity) {
+            over = true;
+        }
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    public CaveLootChallenge.Item getCurrentItem() {
+        return currentItem;
+    }
+
+    /** @return The items still waiting in the queue; don't rely on their order */
+    public Collection<CaveLootChallenge.Item> getRemainingItems() {
+        return Collections.unmodifiableCollection(queue);
+    }
+
+    /** @return Every item of this game, in arrival order */
+    public List<CaveLootChallenge.Item> getItems() {
+        return items;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getValue() {
+        return value;
+    }
+}
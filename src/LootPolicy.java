@@ -0,0 +1,12 @@
+/**
+ * A player for LootGameEngine, deciding what to do with each treasure.
+ * Implementations may keep state, so use one instance per game when
+ * running games in parallel.
+ */
+public interface LootPolicy {
+    /**
+     * @param game The game; its current item is the one to decide on
+     * @return One of LootGameEngine.TAKE_ALL, TAKE_PART or SKIP
+     */
+    int decide(LootGameEngine game);
+}
@@ -0,0 +1,383 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the best loot a backpack can hold, to score a player's run against.
+ *
+ * Modes:
+ * - fractional: items may be split, value prorated by weight like takePartial().
+ *   Greedy by value/weight ratio is optimal here.
+ * - 0/1: every item is taken whole or not at all. Solved with a dynamic
+ *   program over capacities using one rolling array, O(n * capacity).
+ * - branch-and-bound: also 0/1, but its cost does not grow with the capacity,
+ *   so it is used when the DP table would be too large.
+ * - bounded: each item is available a limited number of times. The copies are
+ *   split into power-of-two bundles and solved as 0/1.
+ */
+public class LootSolver {
+    // Largest n * (capacity + 1) the 0/1 DP is used for; beyond that solve() uses branch-and-bound
+    private static final long DP_LIMIT = 50_000_000L;
+    // Largest table the DP accepts at all: one bit per cell, 128 MB
+    private static final long DP_MAX_CELLS = 1L << 30;
+
+    private LootSolver() {
+    }
+
+    /**
+     * The result of a solver run
+     */
+    public static class Solution {
+        private final double value;
+        private final double weight;
+        private final double[] amounts;
+
+        Solution(double value, double weight, double[] amounts) {
+            this.value = value;
+            this.weight = weight;
+            this.amounts = amounts;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * @param index Index of the item in the solver's input
+         * @return How much of the item is taken: a fraction between 0 and 1,
+         *         or the number of copies for the bounded mode
+         */
+        public double getAmount(int index) {
+            return amounts[index];
+        }
+
+        public int getItemCount() {
+            return amounts.length;
+        }
+    }
+
+    /**
+     * Solves the 0/1 problem with the DP or, for large tables, branch-and-bound
+     * @param items The available items
+     * @param capacity The backpack capacity
+     * @return The best selection of whole items
+     */
+    public static Solution solve(List<CaveLootChallenge.Item> items, int capacity) {
+        if ((long) items.size() * (capacity + 1) <= DP_LIMIT) {
+            return zeroOne(items, capacity);
+        }
+        return branchAndBound(items, capacity);
+    }
+
+    /**
+     * Best value when items can be split, taking the highest value per weight first
+     * @param items The available items
+     * @param capacity The backpack capacity
+     * @return The best selection, with at most one item taken partially
+     */
+    public static Solution fractional(List<CaveLootChallenge.Item> items, int capacity) {
+        int n = items.size();
+        int[] weights = new int[n];
+        int[] values = new int[n];
+        extract(items, weights, values, capacity);
+
+        Integer[] order = byRatio(weights, values);
+        double[] amounts = new double[n];
+        double value = 0;
+        long remaining = capacity;
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            if (weights[i] <= remaining) {
+                amounts[i] = 1;
+                value += values[i];
+                remaining -= weights[i];
+            } else {
+                // Take what fits of the best remaining item and stop
+                amounts[i] = (double) remaining / weights[i];
+                value += values[i] * amounts[i];
+                remaining = 0;
+                break;
+            }
+        }
+        return new Solution(value, capacity - remaining, amounts);
+    }
+
+    /**
+     * Best value of whole items, by dynamic programming over capacities.
+     * Throws IllegalArgumentException when the table would not fit in memory.
+     * @param items The available items
+     * @param capacity The backpack capacity
+     * @return The best selection of whole items
+     */
+    public static Solution zeroOne(List<CaveLootChallenge.Item> items, int capacity) {
+        int n = items.size();
+        int[] weights = new int[n];
+        int[] values = new int[n];
+        extract(items, weights, values, capacity);
+
+        boolean[] taken = new boolean[n];
+        long value = zeroOne(weights, values, capacity, taken);
+        return toSolution(value, weights, taken);
+    }
+
+    /**
+     * Best value of whole items, by depth-first branch-and-bound
+     * @param items The available items
+     * @param capacity The backpack capacity
+     * @return The best selection of whole items
+     */
+    public static Solution branchAndBound(List<CaveLootChallenge.Item> items, int capacity) {
+        int n = items.size();
+        int[] weights = new int[n];
+        int[] values = new int[n];
+        extract(items, weights, values, capacity);
+
+        boolean[] taken = new boolean[n];
+        long value = branchAndBound(weights, values, capacity, taken);
+        return toSolution(value, weights, taken);
+    }
+
+    /**
+     * Best value when each item is available a limited number of times
+     * @param items The available items
+     * @param counts How many copies of each item there are
+     * @param capacity The backpack capacity
+     * @return The best selection; amounts are numbers of copies
+     */
+    public static Solution bounded(List<CaveLootChallenge.Item> items, int[] counts, int capacity) {
+        int n = items.size();
+        if (counts.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " counts, got " + counts.length);
+        }
+        int[] weights = new int[n];
+        int[] values = new int[n];
+        extract(items, weights, values, capacity);
+
+        // Split count copies into bundles of 1, 2, 4, ... and the rest, so any
+        // number of copies up to count is a sum of distinct bundles
+        int bundles = 0;
+        for (int i = 0; i < n; i++) {
+            if (counts[i] < 0) throw new IllegalArgumentException("Negative count for item " + i);
+            bundles += 32 - Integer.numberOfLeadingZeros(counts[i]);
+        }
+        int[] bundleWeights = new int[bundles];
+        int[] bundleValues = new int[bundles];
+        int[] bundleItem = new int[bundles];
+        int[] bundleSize = new int[bundles];
+        int b = 0;
+        for (int i = 0; i < n; i++) {
+            int left = counts[i];
+            for (int size = 1; left > 0; size <<= 1) {
+                int copies = Math.min(size, left);
+                left -= copies;
+                // Bundles heavier than the backpack can never be taken
+                long bundleWeight = (long) weights[i] * copies;
+                bundleWeights[b] = (int) Math.min(bundleWeight, (long) capacity + 1);
+                bundleValues[b] = (int) Math.min((long) values[i] * copies, Integer.MAX_VALUE);
+                bundleItem[b] = i;
+                bundleSize[b] = copies;
+                b++;
+            }
+        }
+
+        boolean[] taken = new boolean[bundles];
+        long value = (long) bundles * (capacity + 1) <= DP_LIMIT
+                     ? zeroOne(bundleWeights, bundleValues, capacity, taken)
+                     : branchAndBound(bundleWeights, bundleValues, capacity, taken);
+
+        double[] amounts = new double[n];
+        long weight = 0;
+        for (int k = 0; k < bundles; k++) {
+            if (taken[k]) {
+                amounts[bundleItem[k]] += bundleSize[k];
+                weight += bundleWeights[k];
+            }
+        }
+        return new Solution(value, weight, amounts);
+    }
+
+    private static long zeroOne(int[] weights, int[] values, int capacity, boolean[] taken) {
+        int n = weights.length;
+        int columns = capacity + 1;
+        if ((long) n * columns > DP_MAX_CELLS) {
+            throw new IllegalArgumentException("Table of " + n + " x " + columns + " is too large for the DP");
+        }
+
+        // best[c] is the best value with weight at most c using the items so far;
+        // iterating c downwards lets one array stand for the previous row
+        long[] best = new long[columns];
+        // One bit per (item, capacity): whether the item improved that capacity
+        long[] keep = new long[(int) (((long) n * columns + 63) >>> 6)];
+
+        for (int i = 0; i < n; i++) {
+            int w = weights[i];
+            int v = values[i];
+            long row = (long) i * columns;
+            for (int c = capacity; c >= w; c--) {
+                long candidate = best[c - w] + v;
+                if (candidate > best[c]) {
+                    best[c] = candidate;
+                    long bit = row + c;
+                    keep[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+
+        // Walk back through the rows to find which items were taken
+        int c = capacity;
+        for (int i = n - 1; i >= 0; i--) {
+            long bit = (long) i * columns + c;
+            if ((keep[(int) (bit >>> 6)] & (1L << bit)) != 0) {
+                taken[i] = true;
+                c -= weights[i];
+            }
+        }
+        return best[capacity];
+    }
+
+    private static long branchAndBound(int[] weights, int[] values, int capacity, boolean[] taken) {
+        int n = weights.length;
+
+        // Visit items by value per weight, so the greedy fill gives a tight bound
+        Integer[] order = byRatio(weights, values);
+        int[] w = new int[n];
+        int[] v = new int[n];
+        for (int k = 0; k < n; k++) {
+            w[k] = weights[order[k]];
+            v[k] = values[order[k]];
+        }
+
+        // Prefix sums let the bound find where the greedy fill stops by binary search
+        long[] prefixWeight = new long[n + 1];
+        long[] prefixValue = new long[n + 1];
+        for (int k = 0; k < n; k++) {
+            prefixWeight[k + 1] = prefixWeight[k] + w[k];
+            prefixValue[k + 1] = prefixValue[k] + v[k];
+        }
+
+        boolean[] current = new boolean[n];
+        boolean[] best = new boolean[n];
+        long bestValue = -1;
+        long weight = 0;
+        long value = 0;
+
+        // Iterative depth-first search. stage[level]: 0 = not visited yet,
+        // 1 = the take branch was tried, 2 = both branches were tried
+        byte[] stage = new byte[n + 1];
+        int level = 0;
+        while (level >= 0) {
+            if (level == n) {
+                if (value > bestValue) {
+                    bestValue = value;
+                    System.arraycopy(current, 0, best, 0, n);
+                }
+                level--;
+                continue;
+            }
+
+            if (stage[level] == 0) {
+                if (value + upperBound(level, capacity - weight, w, v, prefixWeight, prefixValue) <= bestValue) {
+                    level--;
+                    continue;
+                }
+                stage[level] = 1;
+                if (weight + w[level] <= capacity) {
+                    current[level] = true;
+                    weight += w[level];
+                    value += v[level];
+                    stage[++level] = 0;
+                    continue;
+                }
+            }
+
+            if (stage[level] == 1) {
+                if (current[level]) {
+                    current[level] = false;
+                    weight -= w[level];
+                    value -= v[level];
+                }
+                stage[level] = 2;
+                if (value + upperBound(level + 1, capacity - weight, w, v, prefixWeight, prefixValue) > bestValue) {
+                    stage[++level] = 0;
+                    continue;
+                }
+            }
+
+            level--;
+        }
+
+        for (int k = 0; k < n; k++) {
+            taken[order[k]] = best[k];
+        }
+        return bestValue;
+    }
+
+    /**
+     * Value of filling the remaining capacity greedily from item "from" on,
+     * splitting the first item that does not fit. No 0/1 completion can beat it.
+     */
+    private static long upperBound(int from, long remaining, int[] w, int[] v,
+                                   long[] prefixWeight, long[] prefixValue) {
+        int n = w.length;
+        long limit = prefixWeight[from] + remaining;
+
+        // Last k with prefixWeight[k] <= limit: items from..k-1 fit whole
+        int lo = from;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (prefixWeight[mid] <= limit) lo = mid;
+            else hi = mid - 1;
+        }
+        long bound = prefixValue[lo] - prefixValue[from];
+        if (lo < n) {
+            long left = limit - prefixWeight[lo];
+            bound += left * v[lo] / w[lo];
+        }
+        return bound;
+    }
+
+    private static Integer[] byRatio(int[] weights, int[] values) {
+        Integer[] order = new Integer[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Weightless items come first; others compare v1/w1 with v2/w2 as v1*w2 vs v2*w1 to stay exact
+        Arrays.sort(order, (a, b) -> {
+            if (weights[a] == 0 || weights[b] == 0) {
+                return Boolean.compare(weights[b] == 0, weights[a] == 0);
+            }
+            return Long.compare((long) values[b] * weights[a], (long) values[a] * weights[b]);
+        });
+        return order;
+    }
+
+    private static void extract(List<CaveLootChallenge.Item> items, int[] weights, int[] values, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            CaveLootChallenge.Item item = items.get(i);
+            if (item.getWeight() < 0 || item.getValue() < 0) {
+                throw new IllegalArgumentException("Negative weight or value for " + item.getName());
+            }
+            weights[i] = item.getWeight();
+            values[i] = item.getValue();
+        }
+    }
+
+    private static Solution toSolution(long value, int[] weights, boolean[] taken) {
+        double[] amounts = new double[taken.length];
+        long weight = 0;
+        for (int i = 0; i < taken.length; i++) {
+            if (taken[i]) {
+                amounts[i] = 1;
+                weight += weights[i];
+            }
+        }
+        return new Solution(value, weight, amounts);
+    }
+}
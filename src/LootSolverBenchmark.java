@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Times the LootSolver modes across item counts and backpack capacities, and
+ * checks that the DP and branch-and-bound agree on the 0/1 optimum.
+ *
+ * Item weights are drawn so that roughly a third of the items fit in the
+ * backpack, which keeps the instances from being trivially full or empty.
+ *
+ * Run with: java -cp src LootSolverBenchmark
+ */
+public class LootSolverBenchmark {
+    private static final String[] TYPES = {"Resources", "Esoteric", "Dungeon_Props", "Tools"};
+
+    private static ArrayList<CaveLootChallenge.Item> createItems(int count, int capacity, long seed) {
+        Random random = new Random(seed);
+        int maxWeight = Math.max(2, capacity * 6 / count);
+        ArrayList<CaveLootChallenge.Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new CaveLootChallenge.Item("Item " + i, 1 + random.nextInt(100),
+                                                 1 + random.nextInt(maxWeight), TYPES[i % TYPES.length]));
+        }
+        return items;
+    }
+
+    private interface Run {
+        LootSolver.Solution solve();
+    }
+
+    /** @return Average microseconds per run */
+    private static double time(Run run, int repeats, LootSolver.Solution[] result) {
+        // Warm up so the JIT has compiled the solver
+        for (int i = 0; i < repeats; i++) {
+            result[0] = run.solve();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            result[0] = run.solve();
+        }
+        return (System.nanoTime() - start) / 1000.0 / repeats;
+    }
+
+    public static void main(String[] args) {
+        int[] counts = {10, 100, 1_000, 10_000};
+        int[] capacities = {50, 1_000, 100_000, 10_000_000};
+        System.out.printf("%8s %10s %14s %14s %14s %12s%n",
+                          "items", "capacity", "greedy us", "dp us", "b&b us", "0/1 value");
+
+        for (int count : counts) {
+            for (int capacity : capacities) {
+                ArrayList<CaveLootChallenge.Item> items = createItems(count, capacity, count * 31L + capacity);
+                int repeats = (long) count * capacity > 10_000_000L ? 3 : 50;
+                LootSolver.Solution[] result = new LootSolver.Solution[1];
+
+                double greedyMicros = time(() -> LootSolver.fractional(items, capacity), repeats, result);
+                double fractionalValue = result[0].getValue();
+
+                String dpColumn = "-";
+                double dpValue = -1;
+                if ((long) count * (capacity + 1) <= 100_000_000L) {
+                    dpColumn = String.format("%.1f", time(() -> LootSolver.zeroOne(items, capacity), repeats, result));
+                    dpValue = result[0].getValue();
+                }
+
+                double bbMicros = time(() -> LootSolver.branchAndBound(items, capacity), repeats, result);
+                double bbValue = result[0].getValue();
+
+                if (dpValue >= 0 && dpValue != bbValue) {
+                    System.out.println("WARNING: DP found " + dpValue + ", branch-and-bound " + bbValue);
+                }
+                if (bbValue > fractionalValue) {
+                    System.out.println("WARNING: 0/1 value " + bbValue + " above fractional bound " + fractionalValue);
+                }
+
+                System.out.printf("%8d %10d %14.1f %14s %14.1f %12.0f%n",
+                                  count, capacity, greedyMicros, dpColumn, bbMicros, bbValue);
+            }
+        }
+    }
+}
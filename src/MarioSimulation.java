@@ -0,0 +1,858 @@
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The rules of SimpleMarioGame without any UI: the player, platforms, coins,
+ * enemies and backpack, advanced one fixed tick at a time.
+ *
+ * The level is a row of LevelChunks that a ChunkStreamer creates ahead of
+ * the player. Only the chunks next to the player are active: their coins
+ * and enemies are in the stores and simulated, and the player stands on
+ * their tiles; everything else exists at most as chunk data waiting to be
+ * activated. The cost of a tick therefore
+ * doesn't grow with the length of the level.
+ *
+ * The only inputs are key presses and releases, applied between ticks, and
+ * the session seed. Given the same seed and the same keys at the same ticks,
+ * every run ends in the same state, which is what InputRecording and
+ * ReplayRunner rely on.
+ */
+public class MarioSimulation {
+    /**
+     * Told when a game ends
+     */
+    public interface Listener {
+        /**
+         * Called from {@link #updateGame()} when the game is won or lost
+         * @param message The message for the player
+         * @param title A title for the message
+         */
+        void gameEnded(String message, String title);
+    }
+
+    // World constants
+    public static final int WORLD_HEIGHT = 600;
+    public static final int GROUND_LEVEL = WORLD_HEIGHT - 100;
+    public static final int PLAYER_HEIGHT = 70;
+    public static final int DEFAULT_PLAYER_WIDTH = 50;
+    public static final int MAX_BACKPACK_CAPACITY = 50;
+    public static final int GRAVITY = 1;
+    public static final int JUMP_STRENGTH = 15;
+    public static final int MOVEMENT_SPEED = 5;
+    public static final int DEFAULT_CHUNK_COUNT = 100; // About 128 screens
+
+    // Chunks on each side of the player's chunk that are simulated
+    private static final int ACTIVE_RADIUS = 1;
+    private static final int ACTIVE_SLOTS = 2 * ACTIVE_RADIUS + 1;
+
+    // What random treasure items can be
+    private static final String[] ITEM_TYPES = {"Resources", "Dungeon_Props", "Esoteric", "Tools"};
+    private static final String[] ITEM_NAMES = {"Gold Nugget", "Ancient Relic", "Gemstone", "Magic Scroll",
+                                                "Silver Chalice", "Enchanted Sword", "Crystal Orb", "Golden Crown",
+                                                "Rare Spices", "Ancient Coin"};
+
+    // Broadphase for coin and enemy collision queries; entity data is the
+    // index in its store. Platforms are looked up in the chunks' tiles instead.
+    private static final int LAYER_COIN = 1;
+    private static final int LAYER_ENEMY = 2;
+    private final SpatialGrid collisionGrid = new SpatialGrid(64, 4096);
+    private final SpatialGrid.Results queryResults = new SpatialGrid.Results();
+    private int[] candidates = new int[16];
+
+    private final GameRandom random;
+    private final ChunkStreamer streamer;
+    private final int worldWidth;
+    private final boolean pauseEnemiesDuringDecision;
+    private final AnimationSet animations;
+    private final int[] enemyCharacters;
+    private Listener listener;
+    private int level = 0;
+
+    // Chunks whose contents are in the stores; none while last < first.
+    // An active chunk is kept in slot index % ACTIVE_SLOTS.
+    private int activeFirst = 0;
+    private int activeLast = -1;
+    private final LevelChunk[] activeChunks = new LevelChunk[ACTIVE_SLOTS];
+
+    // Player width follows the player image's aspect ratio
+    private int playerWidth = DEFAULT_PLAYER_WIDTH;
+
+    // Game variables
+    private int playerX = 100;
+    private int playerY = GROUND_LEVEL - PLAYER_HEIGHT;
+    private int playerVelocityY = 0;
+    private boolean isJumping = false;
+    private boolean movingLeft = false;
+    private boolean movingRight = false;
+    private boolean facingRight = true;
+    private int score = 0;
+    private boolean gameOver = false;
+    private final CoinStore coins = new CoinStore();
+    private final EnemyStore enemies;
+
+    // The player's animation: its character, state, ticks in that state, and
+    // position in the AnimationSet's table, which only picks the frame drawn
+    private final int playerCharacter;
+    private int playerState = AnimationSet.IDLE;
+    private int playerStateTicks = 0;
+    private int playerAnimation;
+
+    // Player position at the previous tick, used to interpolate rendering
+    private int prevPlayerX = playerX;
+    private int prevPlayerY = playerY;
+
+    // Backpack and the last item found
+    private final Backpack backpack = new Backpack(MAX_BACKPACK_CAPACITY);
+    private SimpleMarioGame.Item lastCollectedItem = null;
+    private boolean showItemInfo = false;
+    private int itemInfoTimer = 0;
+
+    // Decision about a found item, answered with the number keys
+    private final ItemDecisionOverlay decisionOverlay = new ItemDecisionOverlay();
+
+    // Item that was just skipped; it is not offered again until the player leaves its coin
+    private SimpleMarioGame.Item skippedItem = null;
+
+    // Short message shown under the backpack info, e.g. when the backpack limit is reached
+    private String noticeText = null;
+    private int noticeTimer = 0;
+
+    /**
+     * Creates a simulation and activates the start of the level
+     * @param random The session's randomness
+     * @param source Creates the level's chunks
+     * @param chunkCount Length of the level in chunks
+     * @param pauseEnemiesDuringDecision Whether enemies stand still while an item decision is open
+     * @param animations The clips of the player and enemies; they pick the frames drawn, and never
+     *                   change how the game plays out
+     */
+    public MarioSimulation(GameRandom random, ChunkSource source, int chunkCount,
+                           boolean pauseEnemiesDuringDecision, AnimationSet animations) {
+        this.random = random;
+        this.streamer = new ChunkStreamer(source, random, chunkCount);
+        this.worldWidth = chunkCount * LevelChunk.WIDTH;
+        this.pauseEnemiesDuringDecision = pauseEnemiesDuringDecision;
+        this.animations = animations;
+        this.enemyCharacters = animations.getEnemyCharacters();
+        this.enemies = new EnemyStore(animations);
+        this.playerCharacter = animations.getCharacter("player");
+        this.playerAnimation = animations.getStart(playerCharacter, AnimationSet.IDLE);
+        updateActiveChunks();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setPlayerWidth(int playerWidth) {
+        this.playerWidth = playerWidth;
+    }
+
+    /**
+     * Activates the chunks next to the player's chunk and deactivates the
+     * ones that no longer are, then lets the streamer prepare the chunks
+     * beyond. A chunk that isn't created yet is waited for, so what is active
+     * depends only on where the player is and replays come out the same.
+     */
+    private void updateActiveChunks() {
+        int center = Math.max(0, Math.min((playerX + playerWidth / 2) / LevelChunk.WIDTH,
+                                          streamer.getChunkCount() - 1));
+        int first = Math.max(0, center - ACTIVE_RADIUS);
+        int last = Math.min(streamer.getChunkCount() - 1, center + ACTIVE_RADIUS);
+        if (first == activeFirst && last == activeLast) return;
+
+        for (int chunk = activeFirst; chunk <= activeLast; chunk++) {
+            if (chunk < first || chunk > last) {
+                deactivate(chunk);
+            }
+        }
+        for (int chunk = first; chunk <= last; chunk++) {
+            if (chunk < activeFirst || chunk > activeLast) {
+                activate(streamer.get(chunk));
+            }
+        }
+        activeFirst = first;
+        activeLast = last;
+        streamer.prefetch(center);
+    }
+
+    /**
+     * Makes a chunk's tiles solid and puts its coins and enemies that are
+     * still there into the stores
+     */
+    private void activate(LevelChunk chunk) {
+        int index = chunk.getIndex();
+        activeChunks[index % ACTIVE_SLOTS] = chunk;
+        for (int i = 0; i < chunk.getCoinCount(); i++) {
+            if (!streamer.isCoinTaken(index, i)) {
+                int coin = addCoin(chunk.coinX[i], chunk.coinY[i], chunk.coinItems[i]);
+                coins.chunk[coin] = index;
+                coins.slot[coin] = i;
+            }
+        }
+        for (int i = 0; i < chunk.getEnemyCount(); i++) {
+            if (!streamer.isEnemyBeaten(index, i)) {
+                // The enemy characters take turns along the level
+                int character = enemyCharacters.length > 0
+                                ? enemyCharacters[(index + i) % enemyCharacters.length] : -1;
+                int enemy = addEnemy(chunk.enemyX[i], chunk.enemyY[i], chunk.enemyMinX[i], chunk.enemyMaxX[i],
+                                     character);
+                enemies.chunk[enemy] = index;
+                enemies.slot[enemy] = i;
+            }
+        }
+    }
+
+    /**
+     * Takes everything of a chunk out of the stores
+     */
+    private void deactivate(int chunk) {
+        activeChunks[chunk % ACTIVE_SLOTS] = null;
+        // Backwards, so the entity moved into a freed slot was already looked at
+        for (int i = coins.size() - 1; i >= 0; i--) {
+            if (coins.chunk[i] == chunk) removeCoin(i);
+        }
+        for (int i = enemies.size() - 1; i >= 0; i--) {
+            if (enemies.chunk[i] == chunk) removeEnemy(i);
+        }
+    }
+
+    /**
+     * Creates a random treasure item for a coin
+     * @param loot The stream to draw from
+     * @return The new item
+     */
+    public static SimpleMarioGame.Item createRandomItem(SplittableRandom loot) {
+        int randomIndex = loot.nextInt(ITEM_NAMES.length);
+        int randomTypeIndex = loot.nextInt(ITEM_TYPES.length);
+        int value = 5 + loot.nextInt(30); // Random value between 5-35
+        int weight = 2 + loot.nextInt(18); // Random weight between 2-20
+
+        // Create the item with the selected name and properties
+        String selectedItemName = ITEM_NAMES[randomIndex];
+        return new SimpleMarioGame.Item(selectedItemName, value, weight, ITEM_TYPES[randomTypeIndex]);
+    }
+
+    private int addCoin(int x, int y, SimpleMarioGame.Item item) {
+        int index = coins.add(x, y, item);
+        coins.gridHandle[index] = collisionGrid.insert(LAYER_COIN, index, x, y, CoinStore.SIZE, CoinStore.SIZE);
+        return index;
+    }
+
+    private int addEnemy(int x, int y, int minX, int maxX, int character) {
+        int index = enemies.add(x, y, minX, maxX, character);
+        enemies.gridHandle[index] = collisionGrid.insert(LAYER_ENEMY, index, x, y, EnemyStore.WIDTH, EnemyStore.HEIGHT);
+        return index;
+    }
+
+    /**
+     * Removes a coin whose item was taken, for good
+     */
+    private void takeCoin(int index) {
+        streamer.markCoinTaken(coins.chunk[index], coins.slot[index]);
+        removeCoin(index);
+    }
+
+    private void removeCoin(int index) {
+        collisionGrid.remove(coins.gridHandle[index]);
+        // The last coin moves into the freed slot; point its grid entry at the new index
+        if (coins.remove(index) >= 0) {
+            collisionGrid.setData(coins.gridHandle[index], index);
+        }
+    }
+
+    private void removeEnemy(int index) {
+        collisionGrid.remove(enemies.gridHandle[index]);
+        if (enemies.remove(index) >= 0) {
+            collisionGrid.setData(enemies.gridHandle[index], index);
+        }
+    }
+
+    /**
+     * Finds the entities on a layer whose bounds touch a rectangle and puts
+     * their list indices into {@link #candidates} in ascending order, so they
+     * can be checked in the same order as a scan over the whole list would.
+     * @return The number of candidates
+     */
+    private int findCandidates(int layer, int x, int y, int width, int height) {
+        int count = collisionGrid.query(layer, x, y, width, height, queryResults);
+        if (candidates.length < count) {
+            candidates = new int[Math.max(count, candidates.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            candidates[i] = collisionGrid.getData(queryResults.get(i));
+        }
+        Arrays.sort(candidates, 0, count);
+        return count;
+    }
+
+    /**
+     * Finds the highest top the player can stand on among the tiles of the
+     * active chunks under a span of the world
+     * @param x Left edge of the span
+     * @param width Width of the span
+     * @param fromY Highest world y a top may be at
+     * @param toY Lowest world y a top may be at
+     * @return The world y of the top, or -1 if there is none
+     */
+    private int findSurface(int x, int width, int fromY, int toY) {
+        int firstRow = Math.max(0, TileMap.rowOf(fromY + TileMap.SIZE - 1));
+        int lastRow = Math.min(TileMap.ROWS - 1, TileMap.rowOf(toY));
+        int firstColumn = Math.floorDiv(x, TileMap.SIZE);
+        int lastColumn = Math.floorDiv(x + width - 1, TileMap.SIZE);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                LevelChunk chunk = getChunk(Math.floorDiv(column, TileMap.COLUMNS));
+                if (chunk != null &&
+                    chunk.getTiles().isSurface(Math.floorMod(column, TileMap.COLUMNS), row)) {
+                    return TileMap.rowTop(row);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Advances the game by one tick
+     */
+    public void updateGame() {
+        // Remember where everything was so rendering can interpolate
+        prevPlayerX = playerX;
+        prevPlayerY = playerY;
+        enemies.savePositions();
+
+        if (gameOver) return;
+
+        // Bring the chunks around the player in, before anything looks at them
+        updateActiveChunks();
+
+        // Update player position based on velocity
+        int prevBottom = playerY + PLAYER_HEIGHT;
+        playerVelocityY += GRAVITY;
+        playerY += playerVelocityY;
+
+        // Check for ground collision against the tile tops under the player's feet.
+        // A top the feet passed on the way down counts too, so a long fall can't
+        // step through a platform in one tick; the highest such top wins.
+        int bottom = playerY + PLAYER_HEIGHT;
+        int sweepTop = Math.min(prevBottom, bottom - 10);
+        int landing = findSurface(playerX, playerWidth, sweepTop, bottom);
+        if (landing >= 0) {
+            playerY = landing - PLAYER_HEIGHT;
+            playerVelocityY = 0;
+            isJumping = false;
+        }
+
+        // Handle horizontal movement
+        if (movingLeft) {
+            playerX -= MOVEMENT_SPEED;
+            facingRight = false;
+        }
+        if (movingRight) {
+            playerX += MOVEMENT_SPEED;
+            facingRight = true;
+        }
+        updatePlayerAnimation();
+
+        // Keep player within the world
+        if (playerX < 0) playerX = 0;
+        if (playerX > worldWidth - playerWidth) playerX = worldWidth - playerWidth;
+
+        // Check if player fell off the bottom of the world
+        if (playerY > WORLD_HEIGHT) {
+            endGame("Game Over! Your score: " + score, "Game Over");
+            return;
+        }
+
+        // Check for coin collisions, last coin first
+        boolean touchingSkippedItem = false;
+        int coinCount = findCandidates(LAYER_COIN, playerX, playerY, playerWidth, PLAYER_HEIGHT);
+        for (int c = coinCount - 1; c >= 0; c--) {
+            int i = candidates[c];
+            if (playerX + playerWidth > coins.x[i] &&
+                playerX < coins.x[i] + CoinStore.SIZE &&
+                playerY + PLAYER_HEIGHT > coins.y[i] &&
+                playerY < coins.y[i] + CoinStore.SIZE) {
+
+                // Don't offer a skipped item again while the player is still on it
+                if (coins.items[i] == skippedItem) {
+                    touchingSkippedItem = true;
+                    continue;
+                }
+
+                // Only one decision at a time
+                if (!decisionOverlay.isActive()) {
+                    showItemDecision(i);
+                }
+                break;
+            }
+        }
+        if (!touchingSkippedItem) {
+            skippedItem = null;
+        }
+
+        // Update item info timer
+        if (showItemInfo && itemInfoTimer > 0) {
+            itemInfoTimer--;
+            if (itemInfoTimer <= 0) {
+                showItemInfo = false;
+            }
+        }
+
+        // Update notice timer
+        if (noticeTimer > 0) {
+            noticeTimer--;
+            if (noticeTimer <= 0) {
+                noticeText = null;
+            }
+        }
+
+        // Update enemies, unless they wait for the player's decision
+        if (!(decisionOverlay.isActive() && pauseEnemiesDuringDecision)) {
+            enemies.updateAll();
+            for (int i = 0; i < enemies.size(); i++) {
+                collisionGrid.update(enemies.gridHandle[i], enemies.x[i], enemies.y[i], EnemyStore.WIDTH, EnemyStore.HEIGHT);
+            }
+        } else {
+            enemies.standAll();
+        }
+
+        // Check for enemy collisions
+        int enemyCount = findCandidates(LAYER_ENEMY, playerX, playerY, playerWidth, PLAYER_HEIGHT);
+        for (int c = 0; c < enemyCount; c++) {
+            int i = candidates[c];
+            // Beaten enemies are only playing their death
+            if (!enemies.alive[i]) continue;
+            if (playerX + playerWidth > enemies.x[i] &&
+                playerX < enemies.x[i] + EnemyStore.WIDTH &&
+                playerY + PLAYER_HEIGHT > enemies.y[i] &&
+                playerY < enemies.y[i] + EnemyStore.HEIGHT) {
+
+                // If player is falling and hits enemy from above
+                if (playerVelocityY > 0 && playerY + PLAYER_HEIGHT < enemies.y[i] + EnemyStore.HEIGHT / 2) {
+                    enemies.kill(i);
+                    // Beaten for good, even after its chunk is created again
+                    streamer.markEnemyBeaten(enemies.chunk[i], enemies.slot[i]);
+                    playerVelocityY = -JUMP_STRENGTH / 2; // Bounce
+                    score += 20;
+                } else {
+                    // Player hit by enemy
+                    endGame("Game Over! Your score: " + score, "Game Over");
+                    return;
+                }
+            }
+        }
+
+        // Remove dead enemies once their death has played
+        for (int i = enemies.size() - 1; i >= 0; i--) {
+            if (enemies.isDeathOver(i)) {
+                removeEnemy(i);
+            }
+        }
+
+        // Check if the player reached the end of the level or the backpack is full
+        boolean reachedEnd = playerX >= worldWidth - playerWidth;
+        if (reachedEnd || backpack.isFull()) {
+            String message;
+            String title;
+
+            if (reachedEnd) {
+                message = "Level Complete! You made it through the cave!\nScore: " + score +
+                          "\nTotal Value: " + backpack.getTotalValue() +
+                          "\nBackpack Weight: " + backpack.getTotalWeight() + "/" + MAX_BACKPACK_CAPACITY;
+                title = "Victory";
+            } else {
+                message = "Your backpack is full!\nScore: " + score +
+                          "\nTotal Value: " + backpack.getTotalValue() +
+                          "\nBackpack Weight: " + backpack.getTotalWeight() + "/" + MAX_BACKPACK_CAPACITY;
+                title = "Backpack Full";
+            }
+
+            endGame(message, title);
+        }
+    }
+
+    private void endGame(String message, String title) {
+        gameOver = true;
+        decisionOverlay.close();
+        if (listener != null) {
+            listener.gameEnded(message, title);
+        }
+    }
+
+    /**
+     * Moves the player's animation on a tick, starting the clip of a new
+     * state: jumping while off the ground, running while walking, else idle
+     */
+    private void updatePlayerAnimation() {
+        int state;
+        if (isJumping || playerVelocityY != 0) {
+            state = AnimationSet.JUMP;
+        } else if (isMoving()) {
+            state = AnimationSet.RUN;
+        } else {
+            state = AnimationSet.IDLE;
+        }
+        if (state != playerState) {
+            playerState = state;
+            playerStateTicks = 0;
+            playerAnimation = animations.getStart(playerCharacter, state);
+        } else {
+            playerStateTicks++;
+            playerAnimation = animations.next(playerAnimation);
+        }
+    }
+
+    /**
+     * Handles a key press
+     * @param key A key code from {@link KeyEvent}
+     */
+    public void keyPressed(int key) {
+        // Number keys, Enter and Esc answer the decision overlay while it is open
+        if (decisionOverlay.handlesKey(key)) {
+            int action = decisionOverlay.handleKey(key);
+            if (action != ItemDecisionOverlay.NONE) {
+                handleItemDecision(action);
+            }
+            return;
+        }
+
+        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+            movingLeft = true;
+        }
+        if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+            movingRight = true;
+        }
+        if ((key == KeyEvent.VK_UP || key == KeyEvent.VK_W || key == KeyEvent.VK_SPACE) && !isJumping) {
+            playerVelocityY = -JUMP_STRENGTH;
+            isJumping = true;
+        }
+    }
+
+    /**
+     * Handles a key release
+     * @param key A key code from {@link KeyEvent}
+     */
+    public void keyReleased(int key) {
+        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+            movingLeft = false;
+        }
+        if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+            movingRight = false;
+        }
+    }
+
+    /**
+     * Opens the decision overlay for a found item
+     * @param coinIndex The index of the coin in the coin store
+     */
+    private void showItemDecision(int coinIndex) {
+        SimpleMarioGame.Item item = coins.items[coinIndex];
+        decisionOverlay.open(coinIndex, item, backpack.canTakeAll(item), !backpack.isFull());
+    }
+
+    /**
+     * Applies the choice made in the decision overlay
+     * @param action One of the ItemDecisionOverlay actions
+     */
+    private void handleItemDecision(int action) {
+        // Find the coin again; chunks coming and going move coins to other indices
+        int coinIndex = coins.indexOf(decisionOverlay.getItem());
+        if (coinIndex < 0) {
+            decisionOverlay.close();
+            return;
+        }
+
+        // Process the user's choice
+        if (action == ItemDecisionOverlay.TAKE_ALL) {
+            takeAllItem(coinIndex);
+        } else if (action == ItemDecisionOverlay.TAKE_PART) {
+            takePartialItem(coinIndex, decisionOverlay.getSelectedFraction());
+        } else {
+            skipItem(coinIndex);
+        }
+        decisionOverlay.close();
+    }
+
+    /**
+     * Take all of the item and add it to the backpack
+     * @param coinIndex The index of the coin in the coin store
+     */
+    private void takeAllItem(int coinIndex) {
+        SimpleMarioGame.Item item = coins.items[coinIndex];
+
+        // Add item to backpack
+        backpack.takeAll(item);
+        score += 10;
+
+        // Show item info
+        lastCollectedItem = item;
+        showItemInfo = true;
+        itemInfoTimer = 120; // Show for 2 seconds (60 FPS * 2)
+
+        // Remove the coin
+        takeCoin(coinIndex);
+    }
+
+    /**
+     * Take part of the item based on player's selection
+     * @param coinIndex The index of the coin in the coin store
+     * @param fraction The fraction of the item to take
+     */
+    private void takePartialItem(int coinIndex, double fraction) {
+        SimpleMarioGame.Item item = coins.items[coinIndex];
+
+        // Check if we can take this much; if not, the backpack takes what fits
+        int remainingCapacity = backpack.getRemaining();
+        if (item.getWeight() * fraction > remainingCapacity) {
+            // Inform the player
+            noticeText = "Backpack limit reached: you could only take " + remainingCapacity + " weight.";
+            noticeTimer = 180; // Show for 3 seconds
+        }
+
+        // Update backpack
+        backpack.takePart(item, fraction);
+        score += 5; // Points for partial collection
+
+        // Show item info
+        lastCollectedItem = item;
+        showItemInfo = true;
+        itemInfoTimer = 120; // Show for 2 seconds
+
+        // Remove the coin
+        takeCoin(coinIndex);
+    }
+
+    /**
+     * Skip the item (don't add to backpack)
+     * @param coinIndex The index of the coin in the coin store
+     */
+    private void skipItem(int coinIndex) {
+        // Just show that we found but skipped the item
+        lastCollectedItem = coins.items[coinIndex];
+        skippedItem = lastCollectedItem;
+        backpack.skip(lastCollectedItem);
+        showItemInfo = true;
+        itemInfoTimer = 60; // Show for 1 second
+    }
+
+    /**
+     * Starts a new game on the next level, which is laid out differently
+     */
+    public void reset() {
+        playerX = 100;
+        playerY = GROUND_LEVEL - PLAYER_HEIGHT;
+        prevPlayerX = playerX;
+        prevPlayerY = playerY;
+        playerVelocityY = 0;
+        isJumping = false;
+        movingLeft = false;
+        movingRight = false;
+        facingRight = true;
+        playerState = AnimationSet.IDLE;
+        playerStateTicks = 0;
+        playerAnimation = animations.getStart(playerCharacter, AnimationSet.IDLE);
+        score = 0;
+        gameOver = false;
+
+        // Reset backpack variables
+        backpack.clear();
+        lastCollectedItem = null;
+        showItemInfo = false;
+        itemInfoTimer = 0;
+        decisionOverlay.close();
+        skippedItem = null;
+        noticeText = null;
+        noticeTimer = 0;
+
+        // Clear and reinitialize game elements
+        Arrays.fill(activeChunks, null);
+        coins.clear();
+        enemies.clear();
+        collisionGrid.clear();
+        activeFirst = 0;
+        activeLast = -1;
+        streamer.reset(++level);
+        updateActiveChunks();
+    }
+
+    /**
+     * Puts the player standing still at a place, with no keys held and the
+     * game running, for tools that try jumps out on a level like
+     * CaveGenerator's check
+     */
+    void placePlayer(int x, int y) {
+        playerX = x;
+        playerY = y;
+        prevPlayerX = x;
+        prevPlayerY = y;
+        playerVelocityY = 0;
+        isJumping = false;
+        movingLeft = false;
+        movingRight = false;
+        gameOver = false;
+    }
+
+    /**
+     * A hash of everything the simulation decides: the player, score,
+     * backpack, coins and enemies. Two runs that end with the same hash played
+     * out the same way. Animation is hashed as states and ticks in them, not
+     * table positions, so it doesn't depend on the clips loaded.
+     */
+    public long stateHash() {
+        long h = 17;
+        h = 31 * h + playerX;
+        h = 31 * h + playerY;
+        h = 31 * h + playerVelocityY;
+        h = 31 * h + (isJumping ? 1 : 0);
+        h = 31 * h + (facingRight ? 1 : 0);
+        h = 31 * h + playerState;
+        h = 31 * h + playerStateTicks;
+        h = 31 * h + score;
+        h = 31 * h + (gameOver ? 1 : 0);
+        h = 31 * h + backpack.getTotalWeight();
+        h = 31 * h + backpack.getTotalValue();
+        h = 31 * h + backpack.getCarriedCount();
+        h = 31 * h + coins.size();
+        for (int i = 0; i < coins.size(); i++) {
+            h = 31 * h + coins.x[i];
+            h = 31 * h + coins.y[i];
+        }
+        h = 31 * h + enemies.size();
+        for (int i = 0; i < enemies.size(); i++) {
+            h = 31 * h + enemies.x[i];
+            h = 31 * h + enemies.y[i];
+            h = 31 * h + (enemies.movingRight[i] ? 1 : 0);
+            h = 31 * h + enemies.state[i];
+            h = 31 * h + enemies.stateTicks[i];
+        }
+        h = 31 * h + (decisionOverlay.isActive() ? 1 : 0);
+        h = 31 * h + level;
+        return h;
+    }
+
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    public int getChunkCount() {
+        return streamer.getChunkCount();
+    }
+
+    /** @return Width of the whole level in pixels */
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    /** @return How many chunks are simulated right now */
+    public int getActiveChunkCount() {
+        return activeLast - activeFirst + 1;
+    }
+
+    public ChunkStreamer getStreamer() {
+        return streamer;
+    }
+
+    public boolean isPauseEnemiesDuringDecision() {
+        return pauseEnemiesDuringDecision;
+    }
+
+    public int getPlayerWidth() {
+        return playerWidth;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getPrevPlayerX() {
+        return prevPlayerX;
+    }
+
+    public int getPrevPlayerY() {
+        return prevPlayerY;
+    }
+
+    /** @return Whether the player is walking left or right */
+    public boolean isMoving() {
+        return movingLeft || movingRight;
+    }
+
+    public boolean isFacingRight() {
+        return facingRight;
+    }
+
+    /** @return Whether the player is in the air after a jump */
+    public boolean isJumping() {
+        return isJumping;
+    }
+
+    /** @return The player's position in the AnimationSet's table */
+    public int getPlayerAnimation() {
+        return playerAnimation;
+    }
+
+    public AnimationSet getAnimations() {
+        return animations;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * @return An active chunk, or null if the chunk isn't active
+     */
+    public LevelChunk getChunk(int index) {
+        return index >= activeFirst && index <= activeLast ? activeChunks[index % ACTIVE_SLOTS] : null;
+    }
+
+    /** @return The first active chunk */
+    public int getActiveFirst() {
+        return activeFirst;
+    }
+
+    /** @return The last active chunk; before the first when none are */
+    public int getActiveLast() {
+        return activeLast;
+    }
+
+    public CoinStore getCoins() {
+        return coins;
+    }
+
+    public EnemyStore getEnemies() {
+        return enemies;
+    }
+
+    public Backpack getBackpack() {
+        return backpack;
+    }
+
+    public ItemDecisionOverlay getDecisionOverlay() {
+        return decisionOverlay;
+    }
+
+    /**
+     * @return The item to show info about, or null for none
+     */
+    public SimpleMarioGame.Item getShownItem() {
+        return showItemInfo ? lastCollectedItem : null;
+    }
+
+    /**
+     * @return The notice to show, or null for none
+     */
+    public String getNoticeText() {
+        return noticeText;
+    }
+}
@@ -0,0 +1,262 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads an atlas file written by AtlasPacker: every sprite of the game packed
+ * into one page of raw premultiplied ARGB pixels, plus an index of where each
+ * sprite sits and how it is split into animation frames.
+ *
+ * The file is memory mapped, so opening it only reads the index. An image is
+ * made by copying its rows out of the mapping into a new TYPE_INT_ARGB_PRE
+ * image; there is nothing to decode, and pixels of sprites that are never
+ * asked for are never read.
+ *
+ * File layout (header and index big-endian):
+ *   int magic "CATL", int version, int payload byte order (0 big, 1 little),
+ *   int page width, int page height, int entry count, int payload offset,
+ *   then per entry: int name length, UTF-8 name, int x, y, width, height,
+ *   int frame width, frame height, frame count,
+ *   then the payload at the offset: page width * page height ints, row by row.
+ */
+public class PackedAtlas {
+    public static final int MAGIC = 0x4341544C; // "CATL"
+    public static final int VERSION = 1;
+
+    /**
+     * Where one sprite sits in the page
+     */
+    public static final class Entry {
+        private final String name;
+        private final int x, y, width, height;
+        private final int frameWidth, frameHeight, frameCount;
+
+        /**
+         * @param name Path of the source image relative to the asset root, with '/' separators
+         * @param x Left edge in the page
+         * @param y Top edge in the page
+         * @param width Width of the whole sprite
+         * @param height Height of the whole sprite
+         * @param frameWidth Width of one animation frame
+         * @param frameHeight Height of one animation frame
+         * @param frameCount Number of frames, left to right then top to bottom
+         */
+        public Entry(String name, int x, int y, int width, int height,
+                     int frameWidth, int frameHeight, int frameCount) {
+            this.name = name;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.frameCount = frameCount;
+        }
+
+        public String getName() { return name; }
+        public int getX() { return x; }
+        public int getY() { return y; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getFrameWidth() { return frameWidth; }
+        public int getFrameHeight() { return frameHeight; }
+        public int getFrameCount() { return frameCount; }
+    }
+
+    private final File file;
+    private final int pageWidth;
+    private final int pageHeight;
+    private final Map<String, Entry> entries;
+    private final IntBuffer pixels;
+
+    private PackedAtlas(File file, int pageWidth, int pageHeight, Map<String, Entry> entries, IntBuffer pixels) {
+        this.file = file;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.entries = entries;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Maps an atlas file and reads its index
+     * @param file The atlas file
+     * @return The atlas
+     * @throws IOException If the file can't be read or is not an atlas
+     */
+    public static PackedAtlas open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an atlas file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported atlas version " + version + ": " + file);
+            }
+            ByteOrder order = buffer.getInt() == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            int pageWidth = buffer.getInt();
+            int pageHeight = buffer.getInt();
+            int count = buffer.getInt();
+            int payloadOffset = buffer.getInt();
+
+            Map<String, Entry> entries = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] nameBytes = new byte[buffer.getInt()];
+                buffer.get(nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+                Entry entry = new Entry(name, buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                                        buffer.getInt(), buffer.getInt(), buffer.getInt());
+                if (entry.x < 0 || entry.y < 0 || entry.x + entry.width > pageWidth
+                    || entry.y + entry.height > pageHeight) {
+                    throw new IOException("Sprite " + name + " lies outside the page: " + file);
+                }
+                entries.put(name, entry);
+            }
+
+            if ((long) payloadOffset + 4L * pageWidth * pageHeight > buffer.capacity()) {
+                throw new IOException("Truncated atlas file: " + file);
+            }
+            buffer.position(payloadOffset);
+            IntBuffer pixels = buffer.slice().order(order).asIntBuffer();
+            return new PackedAtlas(file, pageWidth, pageHeight, Collections.unmodifiableMap(entries), pixels);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Truncated atlas file: " + file, e);
+        }
+    }
+
+    /**
+     * @param name Path of the source image relative to the asset root, with '/' separators
+     * @return Whether the atlas has that sprite
+     */
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * @return The index entry of a sprite, or null if the atlas doesn't have it
+     */
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @return The names of all sprites, in packing order
+     */
+    public Set<String> getNames() {
+        return entries.keySet();
+    }
+
+    /**
+     * Copies a whole sprite out of the atlas
+     * @param name Path of the source image relative to the asset root, with '/' separators
+     * @return A new TYPE_INT_ARGB_PRE image, or null if the atlas doesn't have it
+     */
+    public BufferedImage getImage(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) return null;
+        return copy(entry.x, entry.y, entry.width, entry.height);
+    }
+
+    /**
+     * Copies one animation frame of a sprite out of the atlas
+     * @param name Path of the source image relative to the asset root, with '/' separators
+     * @param frame The frame number, counting from 0
+     * @return A new TYPE_INT_ARGB_PRE image, or null if the atlas doesn't have the sprite
+     */
+    public BufferedImage getFrame(String name, int frame) {
+        Entry entry = entries.get(name);
+        if (entry == null) return null;
+        if (frame < 0 || frame >= entry.frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + name + " (" + entry.frameCount + " frames)");
+        }
+        int columns = Math.max(1, entry.width / entry.frameWidth);
+        int x = entry.x + (frame % columns) * entry.frameWidth;
+        int y = entry.y + (frame / columns) * entry.frameHeight;
+        return copy(x, y, entry.frameWidth, entry.frameHeight);
+    }
+
+    private BufferedImage copy(int x, int y, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        // A duplicate has its own position, so several threads can copy at once
+        IntBuffer source = pixels.duplicate();
+        for (int row = 0; row < height; row++) {
+            source.position((y + row) * pageWidth + x);
+            source.get(data, row * width, width);
+        }
+        return image;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getPageWidth() {
+        return pageWidth;
+    }
+
+    public int getPageHeight() {
+        return pageHeight;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Header layout shared with AtlasPacker
+     * @return The header and index, ready to be written at the start of the file
+     */
+    static ByteBuffer encodeIndex(int pageWidth, int pageHeight, List<Entry> entries, ByteOrder payloadOrder) {
+        int size = 7 * 4;
+        for (Entry entry : entries) {
+            size += 4 + entry.name.getBytes(StandardCharsets.UTF_8).length + 7 * 4;
+        }
+        // Keep the payload int aligned so the mapping can be viewed as ints cheaply
+        int payloadOffset = (size + 7) & ~7;
+
+        ByteBuffer header = ByteBuffer.allocate(payloadOffset).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(payloadOrder == ByteOrder.LITTLE_ENDIAN ? 1 : 0);
+        header.putInt(pageWidth);
+        header.putInt(pageHeight);
+        header.putInt(entries.size());
+        header.putInt(payloadOffset);
+        for (Entry entry : entries) {
+            byte[] nameBytes = entry.name.getBytes(StandardCharsets.UTF_8);
+            header.putInt(nameBytes.length);
+            header.put(nameBytes);
+            header.putInt(entry.x);
+            header.putInt(entry.y);
+            header.putInt(entry.width);
+            header.putInt(entry.height);
+            header.putInt(entry.frameWidth);
+            header.putInt(entry.frameHeight);
+            header.putInt(entry.frameCount);
+        }
+        header.position(0);
+        return header;
+    }
+}
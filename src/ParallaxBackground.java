@@ -0,0 +1,326 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A background of layers that scroll at their own rates behind a moving
+ * camera: far layers move slowly, near ones faster, which gives the scene
+ * depth. Each layer repeats horizontally, so it covers a world of any width.
+ *
+ * Every layer image is scaled to the height of the drawing area once, into
+ * the screen's format, and scaled again only when that height changes. A
+ * frame then draws each layer as the one or two copies of it that are in
+ * view, unscaled. The farthest layer is flattened onto the fill color when
+ * it is scaled, so it is opaque and nothing has to be cleared under it.
+ *
+ * Blending a translucent image costs several times a plain copy, so each
+ * scaled layer is also cut into pieces: rows a nearer layer covers
+ * completely are never drawn, rows with nothing in them are dropped, and
+ * rows whose pixels are all opaque become opaque images that are copied
+ * without blending. The rows with edges in them are cut into strips and
+ * those across in the same way, so only the stretches with edges in them
+ * are blended.
+ */
+public class ParallaxBackground {
+    /** The cave layers under Background/, from far to near; the last two take turns as the nearest */
+    public static final String[] CAVE_LAYERS = {
+        "Background/Background C.png",
+        "Background/Background B.png",
+        "Background/Background A.png",
+        "Background/Background A2.png"
+    };
+    /** What shows through the holes of every layer in Background Complete.png */
+    public static final Color CAVE_FILL = new Color(0x19, 0x1A, 0x1B);
+
+    // How a row or column of a scaled layer is drawn
+    private static final int EMPTY = 0;
+    private static final int OPAQUE = 1;
+    private static final int BLENDED = 2;
+
+    // Rows of edges are cut into strips this high, and those across into
+    // pieces no narrower than this, so there are few enough to draw
+    private static final int STRIP_HEIGHT = 32;
+    private static final int MIN_PIECE_WIDTH = 32;
+
+    /** Part of a scaled layer image, at its place in the image */
+    private static final class Piece {
+        final int x;
+        final int y;
+        final BufferedImage image;
+
+        Piece(int x, int y, BufferedImage image) {
+            this.x = x;
+            this.y = y;
+            this.image = image;
+        }
+    }
+
+    private static final class Layer {
+        final BufferedImage[] sources;
+        final double rate;
+        int segmentWidth;
+        Piece[][] pieces; // By image of the layer
+
+        Layer(BufferedImage[] sources, double rate) {
+            this.sources = sources;
+            this.rate = rate;
+        }
+    }
+
+    private final Color fill;
+    private final List<Layer> layers = new ArrayList<>();
+    private int scaledHeight = -1;
+
+    // What the pieces add up to, for getSummary()
+    private int pieceCount = 0;
+    private long copiedPixels = 0;
+    private long blendedPixels = 0;
+    private long layerPixels = 0;
+
+    /**
+     * @param fill Color behind the farthest layer
+     */
+    public ParallaxBackground(Color fill) {
+        this.fill = fill;
+    }
+
+    /**
+     * Creates the cave background from the images of {@link #CAVE_LAYERS}
+     * @param images The images, in the same order
+     * @return The background, or null if an image is missing
+     */
+    public static ParallaxBackground createCave(BufferedImage[] images) {
+        for (BufferedImage image : images) {
+            if (image == null) return null;
+        }
+        ParallaxBackground background = new ParallaxBackground(CAVE_FILL);
+        background.addLayer(0.1, images[0]);
+        background.addLayer(0.25, images[1]);
+        background.addLayer(0.5, images[2], images[3]);
+        return background;
+    }
+
+    /**
+     * Adds a layer in front of the ones added before
+     * @param rate How far the layer moves per pixel the camera moves; 0 stays put, 1 moves with the level
+     * @param images Images placed one after another, repeating; all the same size
+     */
+    public void addLayer(double rate, BufferedImage... images) {
+        layers.add(new Layer(images.clone(), rate));
+        scaledHeight = -1;
+    }
+
+    /**
+     * Scales and cuts up the layers for a drawing area of a height ahead of
+     * time, which takes a few hundred milliseconds, so the first frame drawn
+     * at that height doesn't have to. Not safe while another thread draws.
+     * @param height Height of the drawing area
+     */
+    public void prepare(int height) {
+        if (height > 0 && height != scaledHeight) {
+            scale(height);
+        }
+    }
+
+    /**
+     * Draws the background filling an area
+     * @param g The graphics context to draw on
+     * @param width Width of the drawing area
+     * @param height Height of the drawing area
+     * @param cameraX World x of the left edge of the view
+     */
+    public void draw(Graphics g, int width, int height, int cameraX) {
+        if (width <= 0 || height <= 0) return;
+        prepare(height);
+        if (layers.isEmpty()) {
+            g.setColor(fill);
+            g.fillRect(0, 0, width, height);
+            return;
+        }
+
+        for (Layer layer : layers) {
+            int scroll = (int) (cameraX * layer.rate);
+            int segment = Math.floorDiv(scroll, layer.segmentWidth);
+            // Only the segments in view: two, unless the segments are narrower than the view
+            for (int x = segment * layer.segmentWidth - scroll; x < width; x += layer.segmentWidth, segment++) {
+                for (Piece piece : layer.pieces[Math.floorMod(segment, layer.pieces.length)]) {
+                    int pieceX = x + piece.x;
+                    if (pieceX < width && pieceX + piece.image.getWidth() > 0) {
+                        g.drawImage(piece.image, pieceX, piece.y, null);
+                    }
+                }
+            }
+        }
+    }
+
+    private void scale(int height) {
+        BufferedImage[][] scaled = new BufferedImage[layers.size()][];
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            scaled[i] = new BufferedImage[layer.sources.length];
+            for (int j = 0; j < layer.sources.length; j++) {
+                BufferedImage source = layer.sources[j];
+                int width = Math.max(1, source.getWidth() * height / source.getHeight());
+                if (i == 0) {
+                    scaled[i][j] = flatten(source, width, height);
+                } else {
+                    scaled[i][j] = CompatibleImages.toCompatible(source, width, height);
+                }
+            }
+            layer.segmentWidth = scaled[i][0].getWidth();
+        }
+
+        pieceCount = 0;
+        copiedPixels = 0;
+        blendedPixels = 0;
+        layerPixels = 0;
+        // From near to far, so each layer knows which rows the ones in front of it cover
+        boolean[] covered = new boolean[height];
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            BufferedImage[] images = scaled[i];
+            int[] kinds = classifyRows(images, height);
+            List<List<Piece>> pieces = new ArrayList<>();
+            for (BufferedImage image : images) {
+                pieces.add(new ArrayList<>());
+                layerPixels += (long) image.getWidth() * height;
+            }
+
+            int start = 0;
+            while (start < height) {
+                int kind = covered[start] ? EMPTY : kinds[start];
+                int end = start + 1;
+                while (end < height && (covered[end] ? EMPTY : kinds[end]) == kind) {
+                    end++;
+                }
+                for (int j = 0; j < images.length; j++) {
+                    if (kind == OPAQUE) {
+                        addPiece(pieces.get(j), images[j], 0, start, images[j].getWidth(), end - start, false);
+                    } else if (kind == BLENDED) {
+                        for (int y = start; y < end; y += STRIP_HEIGHT) {
+                            cutStrip(pieces.get(j), images[j], y, Math.min(STRIP_HEIGHT, end - y));
+                        }
+                    }
+                }
+                start = end;
+            }
+
+            Layer layer = layers.get(i);
+            layer.pieces = new Piece[images.length][];
+            for (int j = 0; j < images.length; j++) {
+                layer.pieces[j] = pieces.get(j).toArray(new Piece[0]);
+            }
+            for (int row = 0; row < height; row++) {
+                covered[row] |= kinds[row] == OPAQUE;
+            }
+        }
+        scaledHeight = height;
+    }
+
+    /**
+     * @return For each row, whether it is empty, opaque or needs blending in every image of a layer
+     */
+    private static int[] classifyRows(BufferedImage[] images, int height) {
+        int[] kinds = new int[height];
+        for (int row = 0; row < height; row++) {
+            boolean empty = true;
+            boolean opaque = true;
+            for (BufferedImage image : images) {
+                for (int x = 0; x < image.getWidth() && (empty || opaque); x++) {
+                    int alpha = image.getRGB(x, row) >>> 24;
+                    empty &= alpha == 0;
+                    opaque &= alpha == 255;
+                }
+            }
+            kinds[row] = empty ? EMPTY : opaque ? OPAQUE : BLENDED;
+        }
+        return kinds;
+    }
+
+    /**
+     * Cuts a strip of rows across into pieces: empty stretches are left
+     * out, opaque ones copied, and the rest blended
+     */
+    private void cutStrip(List<Piece> pieces, BufferedImage image, int y, int height) {
+        int width = image.getWidth();
+        int[] kinds = new int[width];
+        for (int x = 0; x < width; x++) {
+            boolean empty = true;
+            boolean opaque = true;
+            for (int row = y; row < y + height && (empty || opaque); row++) {
+                int alpha = image.getRGB(x, row) >>> 24;
+                empty &= alpha == 0;
+                opaque &= alpha == 255;
+            }
+            kinds[x] = empty ? EMPTY : opaque ? OPAQUE : BLENDED;
+        }
+
+        // Stretches too narrow to be worth a piece of their own are blended
+        for (int start = 0, end; start < width; start = end) {
+            end = runEnd(kinds, start);
+            if (kinds[start] != BLENDED && end - start < MIN_PIECE_WIDTH) {
+                Arrays.fill(kinds, start, end, BLENDED);
+            }
+        }
+        for (int start = 0, end; start < width; start = end) {
+            end = runEnd(kinds, start);
+            if (kinds[start] != EMPTY) {
+                addPiece(pieces, image, start, y, end - start, height, kinds[start] == BLENDED);
+            }
+        }
+    }
+
+    private static int runEnd(int[] kinds, int start) {
+        int end = start + 1;
+        while (end < kinds.length && kinds[end] == kinds[start]) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Copies part of a scaled layer image into an image of its own
+     * @param blended Whether the part has transparent pixels; if not, the copy has no alpha
+     */
+    private void addPiece(List<Piece> pieces, BufferedImage image, int x, int y, int width, int height,
+                          boolean blended) {
+        BufferedImage piece = CompatibleImages.create(width, height,
+                                                      blended ? Transparency.TRANSLUCENT : Transparency.OPAQUE);
+        Graphics2D g2d = piece.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(image, -x, -y, null);
+        g2d.dispose();
+        pieces.add(new Piece(x, y, piece));
+
+        pieceCount++;
+        if (blended) {
+            blendedPixels += (long) width * height;
+        } else {
+            copiedPixels += (long) width * height;
+        }
+    }
+
+    /**
+     * @return How the layers were cut up: the pieces, and how many of their
+     *         pixels are copied and blended against drawing every layer whole
+     */
+    public String getSummary() {
+        return String.format("%d layers in %d pieces: %.2f M pixels copied and %.2f M blended of %.2f M",
+                             layers.size(), pieceCount, copiedPixels / 1e6, blendedPixels / 1e6, layerPixels / 1e6);
+    }
+
+    /**
+     * Scales an image onto the fill color, into an opaque image
+     */
+    private BufferedImage flatten(BufferedImage source, int width, int height) {
+        BufferedImage image = CompatibleImages.create(width, height, Transparency.OPAQUE);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(fill);
+        g2d.fillRect(0, 0, width, height);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,84 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compares the per-frame cost of drawing SimpleMarioGame's background three
+ * ways: Background Complete.png scaled to the window on every frame, as the
+ * games used to; the same image pre-scaled once (ScaledBackground); and the
+ * scrolling ParallaxBackground with its layers, while the camera moves.
+ *
+ * Frames are drawn into a screen-compatible image of the window's size, so
+ * this measures Java2D's software loops; on screen the pre-scaled images
+ * can also be copied by the graphics card.
+ *
+ * Run with: java -cp src ParallaxBenchmark [frames] [rounds]
+ */
+public class ParallaxBenchmark {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = MarioSimulation.WORLD_HEIGHT;
+
+    private interface Frame {
+        void draw(Graphics g, int frame);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        BufferedImage complete = CompatibleImages.toCompatible(Assets.read("Background/Background Complete.png"));
+        BufferedImage[] layers = new BufferedImage[ParallaxBackground.CAVE_LAYERS.length];
+        for (int i = 0; i < layers.length; i++) {
+            layers[i] = Assets.read(ParallaxBackground.CAVE_LAYERS[i]);
+        }
+        if (complete == null || ParallaxBackground.createCave(layers) == null) {
+            System.out.println("Background images not found under " + Assets.getRoot().getAbsolutePath());
+            return;
+        }
+
+        BufferedImage target = CompatibleImages.create(WIDTH, HEIGHT, Transparency.OPAQUE);
+        ScaledBackground scaled = new ScaledBackground(complete);
+        ParallaxBackground parallax = ParallaxBackground.createCave(layers);
+        // Done while the game loads, so it is timed apart from the frames
+        long start = System.nanoTime();
+        parallax.prepare(HEIGHT);
+        System.out.printf("Prepared the parallax layers in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        System.out.printf("%d frames of %dx%d per round%n", frames, WIDTH, HEIGHT);
+        double perFrame = time("scaled every frame", target, frames, rounds,
+                               (g, frame) -> g.drawImage(complete, 0, 0, WIDTH, HEIGHT, null));
+        double preScaled = time("pre-scaled", target, frames, rounds,
+                                (g, frame) -> scaled.draw(g, WIDTH, HEIGHT));
+        // The camera walks right at the player's speed, so every wrap position comes up
+        double layered = time("parallax", target, frames, rounds,
+                              (g, frame) -> parallax.draw(g, WIDTH, HEIGHT, frame * MarioSimulation.MOVEMENT_SPEED));
+        System.out.println("parallax: " + parallax.getSummary());
+        System.out.printf("parallax costs %.2fx scaling every frame and %.2fx the pre-scaled image%n",
+                          layered / perFrame, layered / preScaled);
+    }
+
+    /**
+     * Draws frames a few times over and prints the best and median time per frame
+     * @return The median time per frame in microseconds
+     */
+    private static double time(String label, BufferedImage target, int frames, int rounds, Frame frame) {
+        double[] micros = new double[rounds];
+        Graphics2D g = target.createGraphics();
+        // One round to warm up
+        for (int i = 0; i < frames; i++) {
+            frame.draw(g, i);
+        }
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                frame.draw(g, i);
+            }
+            micros[round] = (System.nanoTime() - start) / 1000.0 / frames;
+        }
+        g.dispose();
+        Arrays.sort(micros);
+        System.out.printf("%-20s best %8.1f us, median %8.1f us per frame%n", label, micros[0], micros[rounds / 2]);
+        return micros[rounds / 2];
+    }
+}
@@ -0,0 +1,84 @@
+import java.awt.Rectangle;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures what one user action costs on the event dispatch thread: the CPU
+ * time from the action until its repaints are done, and how many pixels were
+ * painted. Meant for comparing repaint strategies, so it prints one line per
+ * action and keeps totals.
+ *
+ * All methods are to be called on the event dispatch thread.
+ */
+public class RepaintMeter {
+    private final String mode;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private String action;
+    private long startCpuNanos;
+    private long startNanos;
+    private int paints;
+    private long paintNanos;
+    private long paintedPixels;
+
+    private int actions = 0;
+    private long totalCpuNanos = 0;
+    private long totalPaintNanos = 0;
+    private long totalPixels = 0;
+
+    /**
+     * @param mode Name of the repaint strategy, used in reports
+     */
+    public RepaintMeter(String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Starts measuring an action
+     * @param action Name of the action, used in reports
+     */
+    public void begin(String action) {
+        this.action = action;
+        startCpuNanos = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+        startNanos = System.nanoTime();
+        paints = 0;
+        paintNanos = 0;
+        paintedPixels = 0;
+    }
+
+    /**
+     * Records one paint of the game panel
+     * @param clip The area that was painted
+     * @param nanos How long painting it took
+     */
+    public void painted(Rectangle clip, long nanos) {
+        if (action == null) return;
+        paints++;
+        paintNanos += nanos;
+        if (clip != null) {
+            paintedPixels += (long) clip.width * clip.height;
+        }
+    }
+
+    /**
+     * Ends the current action; call it through SwingUtilities.invokeLater so
+     * it runs after the repaints the action caused
+     */
+    public void end() {
+        if (action == null) return;
+        long cpuNanos = threads.isCurrentThreadCpuTimeSupported()
+                        ? threads.getCurrentThreadCpuTime() - startCpuNanos
+                        : System.nanoTime() - startNanos;
+
+        actions++;
+        totalCpuNanos += cpuNanos;
+        totalPaintNanos += paintNanos;
+        totalPixels += paintedPixels;
+
+        System.out.printf("[%s] %s: %d paints, %,d px, paint %.2f ms, cpu %.2f ms "
+                          + "(average over %d actions: %,d px, paint %.2f ms, cpu %.2f ms)%n",
+                          mode, action, paints, paintedPixels, paintNanos / 1e6, cpuNanos / 1e6, actions,
+                          totalPixels / actions, totalPaintNanos / 1e6 / actions, totalCpuNanos / 1e6 / actions);
+        action = null;
+    }
+}
@@ -0,0 +1,62 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Plays a recorded SimpleMarioGame session again without a window: the
+ * simulation runs tick after tick as fast as the CPU allows, with no
+ * rendering and no timer.
+ *
+ * Each round checks that the session ends in the state it was recorded in,
+ * so a change to the physics that alters how a session plays out shows up as
+ * a mismatch, and reports the ticks per second, so the same session doubles
+ * as a benchmark of the simulation.
+ *
+ * Record a session with: java -Dcave.record=session.rec -cp src SimpleMarioGame
+ * Run with: java -cp src ReplayRunner session.rec [rounds]
+ */
+public class ReplayRunner {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java ReplayRunner <recording> [rounds]");
+            return;
+        }
+        InputRecording recording = InputRecording.load(new File(args[0]));
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.printf("Seed %d, %d ticks (%.1f s of play), %d input events%n",
+                          recording.getSeed(), recording.getTickCount(), recording.getTickCount() / 60.0,
+                          recording.getEventCount());
+
+        boolean matched = true;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            MarioSimulation simulation = run(recording);
+            long nanos = System.nanoTime() - start;
+
+            long hash = simulation.stateHash();
+            boolean match = hash == recording.getFinalHash();
+            matched &= match;
+            System.out.printf("Round %d: %.2f ms, %,.0f ticks/s, score %d, state %s%n",
+                              round, nanos / 1e6, recording.getTickCount() / (nanos / 1e9),
+                              simulation.getScore(), match ? "matches the recording"
+                                                           : "DIFFERS from the recording (" + hash + ")");
+        }
+        if (!matched) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a recorded session from start to end
+     * @return The simulation after the last tick
+     */
+    public static MarioSimulation run(InputRecording recording) throws IOException {
+        MarioSimulation simulation = recording.newSimulation();
+        int event = 0;
+        for (int tick = 0; tick < recording.getTickCount(); tick++) {
+            event = recording.apply(simulation, event, tick);
+            simulation.updateGame();
+        }
+        return simulation;
+    }
+}
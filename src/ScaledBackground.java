@@ -0,0 +1,69 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * A background image that is scaled to the window size once and then kept in
+ * video memory as a VolatileImage, so each frame is a single unscaled copy.
+ * The image is scaled again only when the drawing area changes size, and its
+ * contents are redrawn whenever the system throws them away.
+ */
+public class ScaledBackground {
+    private final BufferedImage source;
+
+    // Pre-scaled copy in system memory, used to refill the volatile image
+    private BufferedImage scaled;
+    private VolatileImage volatileImage;
+
+    /**
+     * @param source The full size background image
+     */
+    public ScaledBackground(BufferedImage source) {
+        this.source = source;
+    }
+
+    /**
+     * Draws the background filling the given area
+     * @param g The graphics context to draw on
+     * @param width Width of the drawing area
+     * @param height Height of the drawing area
+     */
+    public void draw(Graphics g, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+
+        if (scaled == null || scaled.getWidth() != width || scaled.getHeight() != height) {
+            scaled = CompatibleImages.toCompatible(source, width, height);
+            volatileImage = null;
+        }
+
+        GraphicsConfiguration config = g instanceof Graphics2D
+                                       ? ((Graphics2D) g).getDeviceConfiguration() : null;
+        if (config == null || config.getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER) {
+            // Drawing off screen; the pre-scaled copy is as fast as it gets
+            g.drawImage(scaled, 0, 0, null);
+            return;
+        }
+
+        // Volatile contents can be lost at any time (display change, another
+        // application taking video memory), so validate before every use and
+        // redraw until a copy made it through intact
+        do {
+            int status = volatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE
+                                               : volatileImage.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                volatileImage = config.createCompatibleVolatileImage(width, height, source.getTransparency());
+                restoreContents();
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                restoreContents();
+            }
+            g.drawImage(volatileImage, 0, 0, null);
+        } while (volatileImage.contentsLost());
+    }
+
+    private void restoreContents() {
+        Graphics2D g2d = volatileImage.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(scaled, 0, 0, null);
+        g2d.dispose();
+    }
+}
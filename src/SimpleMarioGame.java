@@ -2,70 +2,98 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import javax.imageio.ImageIO;
-import java.io.File;
-import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
 
 public class SimpleMarioGame extends JFrame implements KeyListener {
-    // Game constants
+    // Window constants
     private static final int WINDOW_WIDTH = 800;
-    private static final int WINDOW_HEIGHT = 600;
-    private static final int GROUND_LEVEL = WINDOW_HEIGHT - 100;
-    private static int PLAYER_WIDTH = 50; // Not final so we can adjust based on image ratio
-    private static final int PLAYER_HEIGHT = 70;
-    private static final int PLATFORM_HEIGHT = 30;
-    private static final int GRAVITY = 1;
-    private static final int JUMP_STRENGTH = 15;
-    private static final int MOVEMENT_SPEED = 5;
-    
-    // Game variables
-    private int playerX = 100;
-    private int playerY = GROUND_LEVEL - PLAYER_HEIGHT;
-    private int playerVelocityY = 0;
-    private boolean isJumping = false;
-    private boolean movingLeft = false;
-    private boolean movingRight = false;
-    private boolean facingRight = true;
-    private int score = 0;
-    private boolean gameOver = false;
-    private ArrayList<Rectangle> platforms = new ArrayList<>();
-    private ArrayList<Coin> coins = new ArrayList<>();
-    private ArrayList<Enemy> enemies = new ArrayList<>();
-    private Random random = new Random();
-    private int animationFrame = 0;
-    private int animationDelay = 0;
-    
-    // Enemy sprite variables
-    private BufferedImage orcIdleImage;
-    private BufferedImage orcRunImage;
-    
-    // Item image variables
-    private Map<String, BufferedImage> itemImages = new HashMap<>();
-    
-    // Backpack variables (from CaveLootChallenge)
-    private static final int MAX_BACKPACK_CAPACITY = 50;
-    private int currentBackpackWeight = 0;
-    private int totalValue = 0;
-    private Item lastCollectedItem = null;
-    private boolean showItemInfo = false;
-    private int itemInfoTimer = 0;
+    private static final int WINDOW_HEIGHT = MarioSimulation.WORLD_HEIGHT;
+    private static final int PLAYER_HEIGHT = MarioSimulation.PLAYER_HEIGHT;
+    
+    // The game itself; everything it decides lives there, this class draws it and feeds it keys
+    private final MarioSimulation simulation;
+    
+    // The level file played, or null for a generated cave
+    private String levelPath;
+    
+    // The part of the level on screen, following the player
+    private final Camera camera = new Camera(WINDOW_WIDTH);
+    
+    // Keys pressed or released on the EDT since the last tick, as key code and press flag.
+    // They are applied at the start of the next tick, so a session can be recorded tick by tick.
+    private int[] pendingKeys = new int[16];
+    private int pendingKeyCount = 0;
+    private int tickNumber = 0;
+    
+    // Records the session's inputs if -Dcave.record names a file
+    private InputRecording recording;
+    
+    // Clips of the player and the enemies, from animations.properties
+    private final AnimationSet animations = AnimationSet.loadDefault();
+    
+    // Every frame of the clips, sliced, mirrored and scaled once at load time
+    private AnimationFrames animationFrames;
+    
+    // Item image variables, loaded the first time each one is shown
+    private Map<String, AssetLoader.LazyImage> itemImages = new HashMap<>();
+    
+    // Loads the images in the background while a loading screen is shown
+    private AssetLoader assetLoader;
+    
+    // Height of the drawing surface, known on the EDT once the window is shown
+    private final CompletableFuture<Integer> drawingHeight = new CompletableFuture<>();
+    private volatile boolean assetsLoaded = false;
+    
+    // Time to first frame, in milliseconds since the JVM started
+    private long firstLoadingFrameMillis = -1;
+    private long firstGameFrameMillis = -1;
+    
+    // Score, backpack and item info, drawn from images that are only redone when they change
+    private final HudLayer hud = new HudLayer();
+    private static final Font STATS_FONT = new Font("Arial", Font.PLAIN, 12);
     
     // Image variables
+    private static final String PLAYER_IMAGE = "images/kurtkwako.png";
     private BufferedImage playerImage;
-    private BufferedImage playerRunningImage;
-    private Image backgroundImage;
+    private BufferedImage backgroundImage;
+    private ScaledBackground background;
+    
+    // Cave layers scrolling at their own rates; the flat background is the fallback
+    private ParallaxBackground parallax;
+    
+    // Draws the level's tiles from one cached image per chunk
+    private final TileRenderer tileRenderer = new TileRenderer();
     
-    // Game panel
+    // Drawing surface: either the active rendering canvas or the Swing panel
+    private ActiveRenderCanvas gameCanvas;
     private GamePanel gamePanel;
     
-    // Timer for game loop
-    private Timer gameTimer;
+    // Game loop settings
+    private static final int TICKS_PER_SECOND = 60;
+    private static final int FRAMES_PER_SECOND = 60;
+    private static final int MAX_CATCH_UP_TICKS = 5;
     
-    public SimpleMarioGame() {
+    // Fixed-timestep game loop running on its own thread
+    private GameLoop gameLoop;
+    
+    // Guards all game state shared between the loop thread and the EDT
+    private final Object stateLock = new Object();
+    
+    // Interpolation factor for the frame being painted
+    private volatile double renderAlpha = 0;
+    
+    // Whether the loop statistics are drawn (toggled with F3)
+    private boolean showStats = false;
+    
+    public SimpleMarioGame(boolean activeRendering) {
         // Set up the window
         setTitle("Cave Adventure Game");
         setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
@@ -73,271 +101,245 @@ public class SimpleMarioGame extends JFrame implements KeyListener {
         setResizable(false);
         setLocationRelativeTo(null);
         
-        // Load player image
-        try {
-            File playerFile = new File("c:\\CaveGame\\images\\kurtkwako.png");
-            System.out.println("Loading player image from: " + playerFile.getAbsolutePath());
-            System.out.println("File exists: " + playerFile.exists());
-            playerImage = ImageIO.read(playerFile);
-            playerRunningImage = playerImage; // Use same image for now, could be modified for animation
-            
-            // Adjust player dimensions based on image
-            if (playerImage != null) {
-                // Keep height the same but adjust width proportionally
-                double ratio = (double) playerImage.getWidth() / playerImage.getHeight();
-                PLAYER_WIDTH = (int) (PLAYER_HEIGHT * ratio);
-            }
-            
-            // Load orc images
-            File orcIdleFile = new File("c:\\CaveGame\\Sprites Assets\\Entities\\Mobs\\Orc Crew\\Orc\\Idle\\Idle-Sheet.png");
-            File orcRunFile = new File("c:\\CaveGame\\Sprites Assets\\Entities\\Mobs\\Orc Crew\\Orc\\Run\\Run-Sheet.png");
-            
-            System.out.println("Loading orc idle image from: " + orcIdleFile.getAbsolutePath());
-            System.out.println("File exists: " + orcIdleFile.exists());
-            System.out.println("Loading orc run image from: " + orcRunFile.getAbsolutePath());
-            System.out.println("File exists: " + orcRunFile.exists());
-            
-            orcIdleImage = ImageIO.read(orcIdleFile);
-            orcRunImage = ImageIO.read(orcRunFile);
-            
-            // Load item images from LootItems folder
-            // Define mapping between item names in code and actual filenames
-            Map<String, String> itemFileMapping = new HashMap<>();
-            itemFileMapping.put("Gold Nugget", "Gold Nugget.png");
-            itemFileMapping.put("Ancient Relic", "Ancient Relic.png");
-            itemFileMapping.put("Gemstone", "Gemstone.png");
-            itemFileMapping.put("Magic Scroll", "MagicScroll.png");
-            itemFileMapping.put("Silver Chalice", "SilverChalice.png");
-            itemFileMapping.put("Enchanted Sword", "EnchantedSword.png");
-            itemFileMapping.put("Crystal Orb", "CrystalOrb.png");
-            itemFileMapping.put("Golden Crown", "GoldenCrown.png");
-            itemFileMapping.put("Rare Spices", "Rare Spices.png");
-            itemFileMapping.put("Ancient Coin", "AncientCoin.png");
-            
-            System.out.println("Loading item images from LootItems folder:");
-            for (Map.Entry<String, String> entry : itemFileMapping.entrySet()) {
-                String itemName = entry.getKey();
-                String fileName = entry.getValue();
-                File itemFile = new File("c:\\CaveGame\\images\\LootItems\\" + fileName);
-                System.out.println("Loading item image from: " + itemFile.getAbsolutePath());
-                System.out.println("File exists: " + itemFile.exists());
-                
-                if (itemFile.exists()) {
-                    BufferedImage itemImage = ImageIO.read(itemFile);
-                    itemImages.put(itemName, itemImage);
-                    System.out.println("Successfully loaded image for: " + itemName);
-                } else {
-                    System.out.println("Failed to load image for: " + itemName);
-                }
+        // Initialize game elements: a cave generated from the seed, a section at a time
+        // in the background. The seed is printed so the session can be played again.
+        // Enemies stand still while the player decides (-Dcave.pauseEnemies=false to keep them moving)
+        // The level is -Dcave.chunks chunks long, or the level file -Dcave.level (see LevelFile)
+        boolean pauseEnemiesDuringDecision = Boolean.parseBoolean(System.getProperty("cave.pauseEnemies", "true"));
+        int chunkCount = Integer.getInteger("cave.chunks", MarioSimulation.DEFAULT_CHUNK_COUNT);
+        ChunkSource source = new CaveGenerator();
+        levelPath = System.getProperty("cave.level");
+        if (levelPath != null) {
+            try {
+                LevelFile levelFile = LevelFile.open(new File(levelPath));
+                source = levelFile;
+                chunkCount = levelFile.getChunkCount();
+            } catch (IOException e) {
+                System.err.println("Could not open level " + levelPath + ", generating one instead: " + e.getMessage());
+                levelPath = null;
             }
-        } catch (IOException e) {
-            System.out.println("Could not load images: " + e.getMessage());
-            e.printStackTrace();
-            playerImage = null;
-            playerRunningImage = null;
-            orcIdleImage = null;
-            orcRunImage = null;
-            itemImages.clear(); // Clear any partially loaded item images
         }
+        simulation = new MarioSimulation(GameRandom.forSession("Simple Mario Game"), source,
+                                         chunkCount, pauseEnemiesDuringDecision, animations);
+        simulation.setListener(this::endGame);
         
-        // Load background image
-        try {
-            File bgFile = new File("c:\\CaveGame\\Background\\Background Complete.png");
-            System.out.println("Loading background from: " + bgFile.getAbsolutePath());
-            System.out.println("File exists: " + bgFile.exists());
-            backgroundImage = ImageIO.read(bgFile);
-        } catch (IOException e) {
-            System.out.println("Could not load background image: " + e.getMessage());
-            e.printStackTrace();
-            // Fallback to a solid color
-            backgroundImage = null;
-        }
+        // Decode the images in the background; a loading screen is shown
+        // until the ones the game needs are ready
+        loadAssets();
         
-        // Create game panel
-        gamePanel = new GamePanel();
-        gamePanel.setFocusable(true);
-        gamePanel.addKeyListener(this);
-        add(gamePanel);
-        
-        // Initialize game elements
-        initializeGame();
+        // Create the drawing surface for the selected render mode
+        if (activeRendering) {
+            gameCanvas = new ActiveRenderCanvas((g, width, height, alpha) -> {
+                synchronized (stateLock) {
+                    renderScene(g, width, height, alpha);
+                }
+            }, 3);
+            gameCanvas.setFocusable(true);
+            gameCanvas.addKeyListener(this);
+            add(gameCanvas);
+        } else {
+            createGamePanel();
+        }
         
-        // Start game timer
-        gameTimer = new Timer(16, new ActionListener() { // ~60 FPS
+        // Create the game loop: the simulation runs at a fixed rate on the
+        // loop thread, painting happens on the EDT with the interpolation factor
+        gameLoop = new GameLoop(new GameLoop.Callbacks() {
             @Override
-            public void actionPerformed(ActionEvent e) {
-                updateGame();
-                gamePanel.repaint();
+            public void tick() {
+                synchronized (stateLock) {
+                    // Nothing moves until the images are loaded
+                    if (assetsLoaded) {
+                        applyPendingKeys();
+                        simulation.updateGame();
+                        tickNumber++;
+                    }
+                }
             }
-        });
-        gameTimer.start();
+            
+            @Override
+            public void render(double alpha) {
+                if (gameCanvas != null) {
+                    // Active rendering: draw and flip right here on the loop thread
+                    gameCanvas.renderFrame(alpha);
+                } else {
+                    // Swing rendering: ask the EDT to paint the panel
+                    renderAlpha = alpha;
+                    gamePanel.repaint();
+                }
+            }
+        }, TICKS_PER_SECOND, FRAMES_PER_SECOND, MAX_CATCH_UP_TICKS);
         
         // Show the window
         setVisible(true);
-        gamePanel.requestFocus();
-    }
-    
-    private void initializeGame() {
-        // Create initial platforms
-        // Ground platform
-        platforms.add(new Rectangle(0, GROUND_LEVEL, WINDOW_WIDTH, PLATFORM_HEIGHT));
-        
-        // Add some floating platforms
-        platforms.add(new Rectangle(200, 400, 150, PLATFORM_HEIGHT));
-        platforms.add(new Rectangle(400, 350, 150, PLATFORM_HEIGHT));
-        platforms.add(new Rectangle(600, 300, 150, PLATFORM_HEIGHT));
-        platforms.add(new Rectangle(300, 250, 150, PLATFORM_HEIGHT));
         
-        // Add some coins
-        for (int i = 0; i < 10; i++) {
-            int x = random.nextInt(WINDOW_WIDTH - 30);
-            int y = random.nextInt(GROUND_LEVEL - 200) + 100;
-            coins.add(new Coin(x, y));
+        // The buffer strategy can only be created once the canvas is on screen.
+        // If the platform can't give us one, fall back to Swing rendering.
+        if (gameCanvas != null) {
+            try {
+                gameCanvas.createStrategy();
+            } catch (RuntimeException e) {
+                System.out.println("Active rendering unavailable, falling back to Swing: " + e.getMessage());
+                remove(gameCanvas);
+                gameCanvas = null;
+                createGamePanel();
+                revalidate();
+            }
         }
         
-        // Add some enemies
-        for (int i = 0; i < 3; i++) {
-            int x = random.nextInt(WINDOW_WIDTH - 50) + 200;
-            enemies.add(new Enemy(x, GROUND_LEVEL - 60)); // Adjusted for taller sprite
+        if (gameCanvas != null) {
+            gameCanvas.requestFocus();
+        } else {
+            gamePanel.requestFocus();
         }
-    }
-    
-    private void updateGame() {
-        if (gameOver) return;
         
-        // Update player position based on velocity
-        playerVelocityY += GRAVITY;
-        playerY += playerVelocityY;
+        // Lay the window out now, so the surface has the size it is drawn at
+        validate();
+        drawingHeight.complete(gameCanvas != null ? gameCanvas.getHeight() : gamePanel.getHeight());
         
-        // Check for ground collision
-        boolean onPlatform = false;
-        for (Rectangle platform : platforms) {
-            if (playerY + PLAYER_HEIGHT >= platform.y && 
-                playerY + PLAYER_HEIGHT <= platform.y + 10 && 
-                playerX + PLAYER_WIDTH > platform.x && 
-                playerX < platform.x + platform.width) {
-                
-                playerY = platform.y - PLAYER_HEIGHT;
-                playerVelocityY = 0;
-                isJumping = false;
-                onPlatform = true;
-                break;
-            }
-        }
+        // Print the frame time statistics on exit so render modes can be compared
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+            System.out.println("Frame times - " + getFrameStats().getTotalSummary())));
         
-        // Handle horizontal movement
-        if (movingLeft) {
-            playerX -= MOVEMENT_SPEED;
-            facingRight = false;
-            updateAnimation();
+        // Record the inputs with -Dcave.record=file; the file is written on exit
+        String recordFile = System.getProperty("cave.record");
+        if (recordFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> saveRecording(new File(recordFile))));
         }
-        if (movingRight) {
-            playerX += MOVEMENT_SPEED;
-            facingRight = true;
-            updateAnimation();
-        }
-        
-        // Keep player within screen bounds
-        if (playerX < 0) playerX = 0;
-        if (playerX > WINDOW_WIDTH - PLAYER_WIDTH) playerX = WINDOW_WIDTH - PLAYER_WIDTH;
         
-        // Check if player fell off the bottom of the screen
-        if (playerY > WINDOW_HEIGHT) {
-            gameOver = true;
-            JOptionPane.showMessageDialog(this, "Game Over! Your score: " + score, 
-                                         "Game Over", JOptionPane.INFORMATION_MESSAGE);
-            int choice = JOptionPane.showConfirmDialog(this, "Play again?", 
-                                                     "Game Over", JOptionPane.YES_NO_OPTION);
-            if (choice == JOptionPane.YES_OPTION) {
-                resetGame();
-            } else {
-                System.exit(0);
+        // Start the game loop
+        gameLoop.start();
+    }
+    
+    /**
+     * Starts loading all images on a worker pool. Player, animation sheet,
+     * background and tile images are needed to play; item images are only
+     * shown after a pickup, so they are loaded the first time they are drawn.
+     */
+    private void loadAssets() {
+        long start = System.nanoTime();
+        AssetLoader loader = new AssetLoader(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        assetLoader = loader;
+        
+        CompletableFuture<BufferedImage> player =
+            loader.load("player image", PLAYER_IMAGE, true);
+        // Every sheet of the animations once; the player's image may be one of them
+        Map<String, CompletableFuture<BufferedImage>> sheetFutures = new HashMap<>();
+        sheetFutures.put(PLAYER_IMAGE, player);
+        for (AnimationSet.Clip clip : animations.getClips()) {
+            sheetFutures.computeIfAbsent(clip.getSheet(), sheetPath -> loader.load(sheetPath, sheetPath, false));
+        }
+        CompletableFuture<BufferedImage> backgroundFuture =
+            loader.load("background", "Background/Background Complete.png", true);
+        List<CompletableFuture<BufferedImage>> layerFutures = new ArrayList<>();
+        for (String layerPath : ParallaxBackground.CAVE_LAYERS) {
+            layerFutures.add(loader.load("background layer " + (layerFutures.size() + 1), layerPath, false));
+        }
+        CompletableFuture<BufferedImage> floorTiles = loader.load("floor tiles", TileRenderer.FLOOR_TILESET, false);
+        CompletableFuture<BufferedImage> ledgeTiles = loader.load("ledge tiles", TileRenderer.LEDGE_TILESET, false);
+        
+        // Define mapping between item names in code and actual filenames
+        Map<String, String> itemFileMapping = new HashMap<>();
+        itemFileMapping.put("Gold Nugget", "Gold Nugget.png");
+        itemFileMapping.put("Ancient Relic", "Ancient Relic.png");
+        itemFileMapping.put("Gemstone", "Gemstone.png");
+        itemFileMapping.put("Magic Scroll", "MagicScroll.png");
+        itemFileMapping.put("Silver Chalice", "SilverChalice.png");
+        itemFileMapping.put("Enchanted Sword", "EnchantedSword.png");
+        itemFileMapping.put("Crystal Orb", "CrystalOrb.png");
+        itemFileMapping.put("Golden Crown", "GoldenCrown.png");
+        itemFileMapping.put("Rare Spices", "Rare Spices.png");
+        itemFileMapping.put("Ancient Coin", "AncientCoin.png");
+        for (Map.Entry<String, String> entry : itemFileMapping.entrySet()) {
+            String itemPath = "images/LootItems/" + entry.getValue();
+            itemImages.put(entry.getKey(), loader.lazy(entry.getKey() + " image", itemPath, true));
+        }
+        
+        // Also waits for the window to be shown, so the background is cut up
+        // for the surface it is drawn on
+        loader.whenRequiredLoaded().thenAcceptBothAsync(drawingHeight, (loaded, height) -> {
+            // Cut the background up on a loader thread, before it is shared
+            // with rendering, instead of stalling the first frame of the game
+            BufferedImage[] layers = new BufferedImage[layerFutures.size()];
+            for (int i = 0; i < layers.length; i++) {
+                layers[i] = layerFutures.get(i).join();
             }
-        }
-        
-        // Check for coin collisions
-        for (int i = coins.size() - 1; i >= 0; i--) {
-            Coin coin = coins.get(i);
-            if (playerX + PLAYER_WIDTH > coin.x && 
-                playerX < coin.x + coin.size && 
-                playerY + PLAYER_HEIGHT > coin.y && 
-                playerY < coin.y + coin.size) {
+            ParallaxBackground caveBackground = ParallaxBackground.createCave(layers);
+            if (caveBackground != null) {
+                caveBackground.prepare(height);
+            }
+            
+            synchronized (stateLock) {
+                playerImage = player.join();
+                backgroundImage = backgroundFuture.join();
                 
-                // Pause the game timer while showing the dialog
-                gameTimer.stop();
+                // Adjust player dimensions based on image
+                if (playerImage != null) {
+                    // Keep height the same but adjust width proportionally
+                    double ratio = (double) playerImage.getWidth() / playerImage.getHeight();
+                    simulation.setPlayerWidth((int) (PLAYER_HEIGHT * ratio));
+                }
                 
-                // Show item interaction dialog
-                showItemInteractionDialog(coin, i);
+                // The simulation starts with the first tick after loading; so does the recording
+                if (System.getProperty("cave.record") != null) {
+                    recording = new InputRecording(simulation.getRandom().getSeed(), simulation.getPlayerWidth(),
+                                                   simulation.getChunkCount(),
+                                                   simulation.isPauseEnemiesDuringDecision(), levelPath);
+                }
                 
-                // Break after handling one coin to prevent multiple dialogs
-                break;
-            }
-        }
-
-        
-        // Update item info timer
-        if (showItemInfo && itemInfoTimer > 0) {
-            itemInfoTimer--;
-            if (itemInfoTimer <= 0) {
-                showItemInfo = false;
-            }
-        }
-        
-        // Update enemies
-        for (Enemy enemy : enemies) {
-            enemy.update();
-            
-            // Check for enemy collision
-            if (playerX + PLAYER_WIDTH > enemy.x && 
-                playerX < enemy.x + enemy.width && 
-                playerY + PLAYER_HEIGHT > enemy.y && 
-                playerY < enemy.y + enemy.height) {
+                // Slice the sprite sheets up front so rendering never has to
+                Map<String, BufferedImage> sheets = new HashMap<>();
+                for (Map.Entry<String, CompletableFuture<BufferedImage>> entry : sheetFutures.entrySet()) {
+                    sheets.put(entry.getKey(), entry.getValue().join());
+                }
+                animationFrames = new AnimationFrames(animations, sheets);
                 
-                // If player is falling and hits enemy from above
-                if (playerVelocityY > 0 && playerY + PLAYER_HEIGHT < enemy.y + enemy.height / 2) {
-                    enemy.alive = false;
-                    playerVelocityY = -JUMP_STRENGTH / 2; // Bounce
-                    score += 20;
-                } else if (enemy.alive) {
-                    // Player hit by enemy
-                    gameOver = true;
-                    JOptionPane.showMessageDialog(this, "Game Over! Your score: " + score, 
-                                                "Game Over", JOptionPane.INFORMATION_MESSAGE);
-                    int choice = JOptionPane.showConfirmDialog(this, "Play again?", 
-                                                            "Game Over", JOptionPane.YES_NO_OPTION);
-                    if (choice == JOptionPane.YES_OPTION) {
-                        resetGame();
-                    } else {
-                        System.exit(0);
-                    }
+                if (backgroundImage != null) {
+                    // Scaled to the window once instead of on every frame
+                    background = new ScaledBackground(backgroundImage);
                 }
+                parallax = caveBackground;
+                tileRenderer.setTilesets(floorTiles.join(), ledgeTiles.join());
+                assetsLoaded = true;
             }
-        }
-        
-        // Remove dead enemies
-        for (int i = enemies.size() - 1; i >= 0; i--) {
-            if (!enemies.get(i).alive) {
-                enemies.remove(i);
-            }
-        }
+            System.out.printf("Loaded %d images in %.1f ms (%d failed, %d item images deferred)%n",
+                              loader.getRequiredCount(), (System.nanoTime() - start) / 1_000_000.0,
+                              loader.getFailedCount(), itemImages.size());
+        }, loader.getExecutor()).exceptionally(e -> {
+            e.printStackTrace();
+            return null;
+        });
+    }
+    
+    /**
+     * @return Milliseconds since the JVM started
+     */
+    private static long millisSinceLaunch() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+    
+    private void createGamePanel() {
+        gamePanel = new GamePanel();
+        gamePanel.setFocusable(true);
+        gamePanel.addKeyListener(this);
+        add(gamePanel);
+    }
+    
+    /** @return Frame time statistics of the render mode in use */
+    private FrameStats getFrameStats() {
+        return gameCanvas != null ? gameCanvas.getFrameStats() : gamePanel.frameStats;
+    }
+    
+    /**
+     * Asks the player whether to play again once the simulation ends a game.
+     * Called from the loop thread, so the dialogs are shown on the EDT while
+     * the simulation is paused.
+     * @param message The message to show
+     * @param title The dialog title
+     */
+    private void endGame(String message, String title) {
+        gameLoop.pause();
         
-        // Check if all coins are collected or backpack is full
-        if (coins.isEmpty() || currentBackpackWeight >= MAX_BACKPACK_CAPACITY) {
-            String message;
-            String title;
-            
-            if (coins.isEmpty()) {
-                message = "Level Complete! You collected all treasures!\nScore: " + score + 
-                          "\nTotal Value: " + totalValue + 
-                          "\nBackpack Weight: " + currentBackpackWeight + "/" + MAX_BACKPACK_CAPACITY;
-                title = "Victory";
-            } else {
-                message = "Your backpack is full!\nScore: " + score + 
-                          "\nTotal Value: " + totalValue + 
-                          "\nBackpack Weight: " + currentBackpackWeight + "/" + MAX_BACKPACK_CAPACITY;
-                title = "Backpack Full";
-            }
-            
+        SwingUtilities.invokeLater(() -> {
             JOptionPane.showMessageDialog(this, message, title, JOptionPane.INFORMATION_MESSAGE);
             int choice = JOptionPane.showConfirmDialog(this, "Play again?", 
                                                      title, JOptionPane.YES_NO_OPTION);
@@ -346,453 +348,312 @@ public class SimpleMarioGame extends JFrame implements KeyListener {
             } else {
                 System.exit(0);
             }
-        }
+        });
     }
     
-    private void updateAnimation() {
-        animationDelay++;
-        if (animationDelay >= 5) { // Update animation every 5 frames
-            animationDelay = 0;
-            animationFrame = (animationFrame + 1) % 2; // Toggle between 0 and 1
-        }
+    private void resetGame() {
+        // The restart happens at the start of the next tick, like a key press
+        queueKey(InputRecording.RESET, true);
+        
+        gameLoop.resume();
     }
     
-    /**
-     * Shows a dialog with options to interact with a found item
-     * @param coin The coin containing the item
-     * @param coinIndex The index of the coin in the coins list
-     */
-    private void showItemInteractionDialog(Coin coin, int coinIndex) {
-        Item item = coin.item;
-        
-        // Create a panel for the dialog
-        JPanel dialogPanel = new JPanel();
-        dialogPanel.setLayout(new BorderLayout(10, 10));
-        
-        // Item information
-        JPanel infoPanel = new JPanel(new GridLayout(3, 1, 5, 5));
-        JLabel nameLabel = new JLabel("Item: " + item.getName());
-        JLabel weightLabel = new JLabel("Weight: " + item.getWeight());
-        JLabel valueLabel = new JLabel("Value: " + item.getValue());
-        
-        nameLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        
-        infoPanel.add(nameLabel);
-        infoPanel.add(weightLabel);
-        infoPanel.add(valueLabel);
-        
-        // Add the info panel to the dialog panel
-        dialogPanel.add(infoPanel, BorderLayout.CENTER);
+    // KeyListener methods
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int key = e.getKeyCode();
         
-        // Create options based on backpack capacity
-        Object[] options;
+        if (key == KeyEvent.VK_F3) {
+            showStats = !showStats;
+            return;
+        }
         
-        if (currentBackpackWeight + item.getWeight() <= MAX_BACKPACK_CAPACITY) {
-            // Can take all
-            options = new Object[]{"Take All", "Take Part", "Skip"};
-        } else if (currentBackpackWeight < MAX_BACKPACK_CAPACITY) {
-            // Can only take part
-            options = new Object[]{"Take Part", "Skip"};
-        } else {
-            // Backpack is full, can only skip
-            options = new Object[]{"Skip"};
-        }
-        
-        // Show the dialog
-        int choice = JOptionPane.showOptionDialog(
-            this,
-            dialogPanel,
-            "You found a " + item.getName() + "!",
-            JOptionPane.DEFAULT_OPTION,
-            JOptionPane.INFORMATION_MESSAGE,
-            null,
-            options,
-            options[0]
-        );
-        
-        // Process the user's choice
-        if (choice == 0) {
-            if (options[0].equals("Take All")) {
-                takeAllItem(coin, coinIndex);
-            } else if (options[0].equals("Take Part")) {
-                takePartialItem(coin, coinIndex);
-            } else {
-                skipItem(coin);
-            }
-        } else if (choice == 1) {
-            if (options[1].equals("Take Part")) {
-                takePartialItem(coin, coinIndex);
-            } else {
-                skipItem(coin);
-            }
-        } else if (choice == 2) {
-            skipItem(coin);
-        } else {
-            // Dialog was closed without selection, treat as skip
-            skipItem(coin);
+        // Code 0 doubles as InputRecording.RESET, so keys without a code are left out
+        if (key != KeyEvent.VK_UNDEFINED) {
+            queueKey(key, true);
         }
+    }
+    
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int key = e.getKeyCode();
         
-        // Resume the game timer
-        gameTimer.start();
+        if (key != KeyEvent.VK_UNDEFINED) {
+            queueKey(key, false);
+        }
     }
     
     /**
-     * Take all of the item and add it to the backpack
-     * @param coin The coin containing the item
-     * @param coinIndex The index of the coin in the coins list
+     * Queues a key event for the next tick
      */
-    private void takeAllItem(Coin coin, int coinIndex) {
-        Item item = coin.item;
-        
-        // Add item to backpack
-        currentBackpackWeight += item.getWeight();
-        totalValue += item.getValue();
-        score += 10;
-        
-        // Show item info
-        lastCollectedItem = item;
-        showItemInfo = true;
-        itemInfoTimer = 120; // Show for 2 seconds (60 FPS * 2)
-        
-        // Remove the coin
-        coins.remove(coinIndex);
+    private void queueKey(int key, boolean pressed) {
+        synchronized (stateLock) {
+            if (pendingKeyCount * 2 == pendingKeys.length) {
+                pendingKeys = Arrays.copyOf(pendingKeys, pendingKeys.length * 2);
+            }
+            pendingKeys[pendingKeyCount * 2] = key;
+            pendingKeys[pendingKeyCount * 2 + 1] = pressed ? 1 : 0;
+            pendingKeyCount++;
+        }
     }
     
     /**
-     * Take part of the item based on player's selection
-     * @param coin The coin containing the item
-     * @param coinIndex The index of the coin in the coins list
+     * Hands the queued key events to the simulation, in the order they
+     * happened, and records them. Called with the state lock held.
      */
-    private void takePartialItem(Coin coin, int coinIndex) {
-        Item item = coin.item;
-        
-        // Show dialog to select fraction
-        String[] options = {"1/4 of item", "1/3 of item", "1/2 of item", "3/4 of item"};
-        int choice = JOptionPane.showOptionDialog(
-            this,
-            "How much of " + item.getName() + " do you want to take?\n" +
-            "Weight: " + item.getWeight() + "\n" +
-            "Value: " + item.getValue(),
-            "Take Partial Item",
-            JOptionPane.DEFAULT_OPTION,
-            JOptionPane.QUESTION_MESSAGE,
-            null,
-            options,
-            options[2] // Default to 1/2
-        );
-        
-        // Calculate fraction based on choice
-        double fraction = 0.5; // Default to half if dialog is closed
-        if (choice == 0) fraction = 0.25;      // 1/4
-        else if (choice == 1) fraction = 0.33; // 1/3
-        else if (choice == 2) fraction = 0.5;  // 1/2
-        else if (choice == 3) fraction = 0.75; // 3/4
-        
-        // Calculate weight and value based on selected fraction
-        double partialWeight = item.getWeight() * fraction;
-        double partialValue = item.getValue() * fraction;
-        
-        // Check if we can take this much
-        int remainingCapacity = MAX_BACKPACK_CAPACITY - currentBackpackWeight;
-        if (partialWeight > remainingCapacity) {
-            // If selected amount is too much, take what we can
-            partialWeight = remainingCapacity;
-            partialValue = item.getValue() * ((double)remainingCapacity / item.getWeight());
-            
-            // Inform the player
-            JOptionPane.showMessageDialog(
-                this,
-                "You can only take " + remainingCapacity + " weight due to backpack limits.",
-                "Backpack Limit Reached",
-                JOptionPane.INFORMATION_MESSAGE
-            );
-        }
-        
-        // Update backpack
-        currentBackpackWeight += partialWeight;
-        totalValue += (int)partialValue;
-        score += 5; // Points for partial collection
-        
-        // Show item info
-        lastCollectedItem = item;
-        showItemInfo = true;
-        itemInfoTimer = 120; // Show for 2 seconds
-        
-        // Remove the coin
-        coins.remove(coinIndex);
+    private void applyPendingKeys() {
+        for (int i = 0; i < pendingKeyCount; i++) {
+            int key = pendingKeys[i * 2];
+            boolean pressed = pendingKeys[i * 2 + 1] != 0;
+            if (recording != null) {
+                recording.record(tickNumber, key, pressed);
+            }
+            if (key == InputRecording.RESET) {
+                simulation.reset();
+            } else if (pressed) {
+                simulation.keyPressed(key);
+            } else {
+                simulation.keyReleased(key);
+            }
+        }
+        pendingKeyCount = 0;
     }
     
     /**
-     * Skip the item (don't add to backpack)
-     * @param coin The coin containing the item
+     * Writes the recorded inputs, with the tick count and final state, to a file
      */
-    private void skipItem(Coin coin) {
-        // Just show that we found but skipped the item
-        lastCollectedItem = coin.item;
-        showItemInfo = true;
-        itemInfoTimer = 60; // Show for 1 second
+    private void saveRecording(File file) {
+        synchronized (stateLock) {
+            if (recording == null) return;
+            recording.finish(tickNumber, simulation.stateHash());
+            try {
+                recording.save(file);
+                System.out.println("Recorded " + tickNumber + " ticks and " + recording.getEventCount()
+                                   + " input events to " + file.getAbsolutePath());
+            } catch (IOException e) {
+                System.out.println("Could not save the recording: " + e.getMessage());
+            }
+        }
     }
     
-    private void resetGame() {
-        playerX = 100;
-        playerY = GROUND_LEVEL - PLAYER_HEIGHT;
-        playerVelocityY = 0;
-        isJumping = false;
-        movingLeft = false;
-        movingRight = false;
-        facingRight = true;
-        score = 0;
-        gameOver = false;
-        
-        // Reset backpack variables
-        currentBackpackWeight = 0;
-        totalValue = 0;
-        lastCollectedItem = null;
-        showItemInfo = false;
-        itemInfoTimer = 0;
-        
-        // Clear and reinitialize game elements
-        platforms.clear();
-        coins.clear();
-        enemies.clear();
-        initializeGame();
-        
-        gameTimer.start();
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // Not used
     }
     
-    // KeyListener methods
-    @Override
-    public void keyPressed(KeyEvent e) {
-        int key = e.getKeyCode();
+    private int interpolate(int previous, int current, double alpha) {
+        return (int) Math.round(previous + (current - previous) * alpha);
+    }
+    
+    /**
+     * Draws one frame of the game. Shared by the Swing and the active rendering paths.
+     * @param g The graphics context to draw on
+     * @param width Width of the drawing area
+     * @param height Height of the drawing area
+     * @param alpha Interpolation factor between the last two ticks
+     */
+    private void renderScene(Graphics g, int width, int height, double alpha) {
+        if (!assetsLoaded) {
+            drawLoadingScreen(g, width, height);
+            return;
+        }
+        
+        if (firstGameFrameMillis < 0) {
+            firstGameFrameMillis = millisSinceLaunch();
+            System.out.println("Time to first frame: " + firstLoadingFrameMillis + " ms (loading screen), "
+                               + firstGameFrameMillis + " ms (game)");
+        }
+        
+        // The camera follows the player's interpolated position; the level is
+        // drawn in world coordinates, shifted by the camera
+        int playerX = interpolate(simulation.getPrevPlayerX(), simulation.getPlayerX(), alpha);
+        int playerY = interpolate(simulation.getPrevPlayerY(), simulation.getPlayerY(), alpha);
+        int playerWidth = simulation.getPlayerWidth();
+        camera.follow(playerX, playerWidth, simulation.getWorldWidth());
+        int cameraX = camera.getX();
+        
+        // Draw background
+        if (parallax != null) {
+            parallax.draw(g, width, height, cameraX);
+        } else if (background != null) {
+            background.draw(g, width, height);
+        } else {
+            // Fallback to a solid color if image couldn't be loaded
+            g.setColor(new Color(135, 206, 235)); // Sky blue
+            g.fillRect(0, 0, width, height);
+        }
+        
+        g.translate(-cameraX, 0);
         
-        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
-            movingLeft = true;
+        // Draw the level's tiles: one cached image per chunk in view
+        tileRenderer.retain(simulation.getActiveFirst(), simulation.getActiveLast());
+        for (int chunk = simulation.getActiveFirst(); chunk <= simulation.getActiveLast(); chunk++) {
+            if (camera.isVisible(chunk * LevelChunk.WIDTH, LevelChunk.WIDTH)) {
+                tileRenderer.draw(g, simulation.getChunk(chunk));
+            }
         }
-        if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
-            movingRight = true;
+        
+        // Draw the coins in view
+        CoinStore coins = simulation.getCoins();
+        g.setColor(Color.YELLOW);
+        for (int i = 0; i < coins.size(); i++) {
+            if (camera.isVisible(coins.x[i], CoinStore.SIZE)) {
+                g.fillOval(coins.x[i], coins.y[i], CoinStore.SIZE, CoinStore.SIZE);
+            }
         }
-        if ((key == KeyEvent.VK_UP || key == KeyEvent.VK_W || key == KeyEvent.VK_SPACE) && !isJumping) {
-            playerVelocityY = -JUMP_STRENGTH;
-            isJumping = true;
+        
+        // Draw the enemies in view, beaten ones too while their death plays
+        EnemyStore enemies = simulation.getEnemies();
+        for (int i = 0; i < enemies.size(); i++) {
+            int enemyX = interpolate(enemies.prevX[i], enemies.x[i], alpha);
+            if (camera.isVisible(enemyX, EnemyStore.WIDTH)) {
+                // The frame of whatever clip the enemy plays, already facing its way and scaled
+                BufferedImage enemyFrame = animationFrames.get(enemies.animation[i], enemies.movingRight[i]);
+                if (enemyFrame != null) {
+                    // Stand the sprite on the bottom middle of the enemy's box
+                    g.drawImage(enemyFrame, enemyX + (EnemyStore.WIDTH - enemyFrame.getWidth()) / 2,
+                                enemies.y[i] + EnemyStore.HEIGHT - enemyFrame.getHeight(), null);
+                } else if (enemies.alive[i]) {
+                    // Fallback to rectangle if image is not available
+                    g.setColor(Color.RED);
+                    g.fillRect(enemyX, enemies.y[i], EnemyStore.WIDTH, EnemyStore.HEIGHT);
+                }
+            }
         }
-    }
-    
-    @Override
-    public void keyReleased(KeyEvent e) {
-        int key = e.getKeyCode();
         
-        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
-            movingLeft = false;
+        // Draw player at its interpolated position
+        boolean facingRight = simulation.isFacingRight();
+        // The frame of the player's idle, run or jump clip; already mirrored for facing left
+        BufferedImage drawImage = animationFrames.get(simulation.getPlayerAnimation(), facingRight);
+        if (drawImage != null) {
+            // Draw the player image
+            g.drawImage(drawImage, playerX, playerY, playerWidth, PLAYER_HEIGHT, null);
+        } else {
+            // Fallback to colored rectangle if image couldn't be loaded
+            // Use different colors based on movement state
+            if (simulation.isMoving()) {
+                g.setColor(new Color(255, 0, 0)); // Red for running
+            } else {
+                g.setColor(new Color(0, 0, 255)); // Blue for standing
+            }
+            
+            // Draw the player body
+            g.fillRect(playerX, playerY, playerWidth, PLAYER_HEIGHT);
+            
+            // Draw a face to make it look more like a character
+            g.setColor(Color.WHITE);
+            // Eyes
+            int eyeSize = 8;
+            int eyeY = playerY + 20;
+            // Draw eyes based on direction facing
+            if (facingRight) {
+                g.fillOval(playerX + 15, eyeY, eyeSize, eyeSize);
+                g.fillOval(playerX + 30, eyeY, eyeSize, eyeSize);
+            } else {
+                g.fillOval(playerX + playerWidth - 15 - eyeSize, eyeY, eyeSize, eyeSize);
+                g.fillOval(playerX + playerWidth - 30 - eyeSize, eyeY, eyeSize, eyeSize);
+            }
+            
+            // Mouth
+            g.drawArc(playerX + 15, playerY + 35, playerWidth - 30, 10, 0, 180);
         }
-        if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
-            movingRight = false;
+        
+        // Back to screen coordinates for the HUD
+        g.translate(cameraX, 0);
+        
+        // Draw score and backpack info (from CaveLootChallenge) from cached images
+        Backpack backpack = simulation.getBackpack();
+        hud.drawStatus(g, simulation.getScore(), backpack.getTotalWeight(), backpack.getCapacity(),
+                       backpack.getTotalValue(), backpack.getCarriedCount(), simulation.getNoticeText());
+        
+        // Draw item info if an item was just collected or skipped
+        Item shownItem = simulation.getShownItem();
+        if (shownItem != null) {
+            // Try to get the item image
+            // (null while it is still loading, which draws the fallback shape)
+            AssetLoader.LazyImage lazyImage = itemImages.get(shownItem.getName());
+            BufferedImage itemImage = lazyImage != null ? lazyImage.get() : null;
+            
+            // The backpack knows whether the item was taken, in part or whole, or skipped
+            hud.drawItemInfo(g, width, shownItem, backpack.stateOf(shownItem), itemImage);
+        }
+        
+        // Draw the item decision overlay on top of everything else
+        simulation.getDecisionOverlay().draw(g, width);
+        
+        // Draw game loop statistics
+        if (showStats) {
+            g.setColor(Color.WHITE);
+            g.setFont(STATS_FONT);
+            g.drawString(String.format("TPS: %.1f  FPS: %.1f  Dropped frames: %d  Dropped ticks: %d",
+                                       gameLoop.getTickRate(), gameLoop.getRenderRate(),
+                                       gameLoop.getDroppedFrames(), gameLoop.getDroppedTicks()),
+                         20, height - 10);
+            g.drawString(getFrameStats().getSummary(), 20, height - 25);
+            g.drawString("Time to first frame: " + firstLoadingFrameMillis + " ms (loading screen), "
+                         + firstGameFrameMillis + " ms (game)", 20, height - 40);
+            g.drawString("HUD images rendered: " + hud.getRebuildCount() + "  Chunk tile images rendered: "
+                         + tileRenderer.getRebuildCount() + " (" + tileRenderer.getCachedCount() + " held)",
+                         20, height - 55);
+            ChunkStreamer streamer = simulation.getStreamer();
+            g.drawString(String.format("Chunks: %d active, %d held, %d created (%,.0f/s), %d waits  Entities: "
+                                       + "%d coins, %d enemies", simulation.getActiveChunkCount(),
+                                       streamer.getHeldCount(), streamer.getCreatedCount(), streamer.getCreateRate(),
+                                       streamer.getWaitCount(), coins.size(), enemies.size()),
+                         20, height - 70);
         }
     }
     
-    @Override
-    public void keyTyped(KeyEvent e) {
-        // Not used
+    /**
+     * Draws the progress of the asset loader
+     * @param g The graphics context to draw on
+     * @param width Width of the drawing area
+     * @param height Height of the drawing area
+     */
+    private void drawLoadingScreen(Graphics g, int width, int height) {
+        if (firstLoadingFrameMillis < 0) {
+            firstLoadingFrameMillis = millisSinceLaunch();
+        }
+        
+        g.setColor(new Color(30, 20, 10));
+        g.fillRect(0, 0, width, height);
+        
+        int loaded = assetLoader.getLoadedCount();
+        int total = Math.max(1, assetLoader.getRequiredCount());
+        
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 20));
+        g.drawString("Loading... " + loaded + "/" + total, width / 2 - 70, height / 2 - 20);
+        
+        // Progress bar
+        int barWidth = 300;
+        int barX = (width - barWidth) / 2;
+        int barY = height / 2;
+        g.setColor(new Color(200, 200, 100));
+        g.fillRect(barX, barY, barWidth * loaded / total, 20);
+        g.setColor(Color.WHITE);
+        g.drawRect(barX, barY, barWidth, 20);
     }
     
     // Game panel for rendering
     private class GamePanel extends JPanel {
+        private final FrameStats frameStats = new FrameStats("Swing", 240);
+        
         @Override
         protected void paintComponent(Graphics g) {
+            long start = System.nanoTime();
             super.paintComponent(g);
             
-            // Draw background
-            if (backgroundImage != null) {
-                g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
-            } else {
-                // Fallback to a solid color if image couldn't be loaded
-                g.setColor(new Color(135, 206, 235)); // Sky blue
-                g.fillRect(0, 0, getWidth(), getHeight());
+            synchronized (stateLock) {
+                renderScene(g, getWidth(), getHeight(), renderAlpha);
             }
             
-            // Draw platforms
-            g.setColor(new Color(139, 69, 19)); // Brown
-            for (Rectangle platform : platforms) {
-                g.fillRect(platform.x, platform.y, platform.width, platform.height);
-            }
-            
-            // Draw coins
-            g.setColor(Color.YELLOW);
-            for (Coin coin : coins) {
-                g.fillOval(coin.x, coin.y, coin.size, coin.size);
-            }
-            
-            // Draw enemies
-            for (Enemy enemy : enemies) {
-                if (enemy.alive) {
-                    BufferedImage enemyFrame = enemy.getCurrentFrame();
-                    if (enemyFrame != null) {
-                        // Scale the sprite to match the enemy dimensions
-                        g.drawImage(enemyFrame, enemy.x, enemy.y, enemy.width, enemy.height, this);
-                    } else {
-                        // Fallback to rectangle if image is not available
-                        g.setColor(Color.RED);
-                        g.fillRect(enemy.x, enemy.y, enemy.width, enemy.height);
-                    }
-                }
-            }
-            
-            // Draw player
-            if (playerImage != null) {
-                // Use appropriate image based on movement
-                BufferedImage imageToDraw = (movingLeft || movingRight) ? playerRunningImage : playerImage;
-                
-                // Create a temporary image for flipping if needed
-                BufferedImage drawImage = imageToDraw;
-                
-                // If facing left, flip the image horizontally
-                if (!facingRight) {
-                    // Create a new flipped image
-                    drawImage = new BufferedImage(imageToDraw.getWidth(), imageToDraw.getHeight(), BufferedImage.TYPE_INT_ARGB);
-                    Graphics2D g2d = drawImage.createGraphics();
-                    g2d.drawImage(imageToDraw, imageToDraw.getWidth(), 0, -imageToDraw.getWidth(), imageToDraw.getHeight(), null);
-                    g2d.dispose();
-                }
-                
-                // Draw the player image
-                g.drawImage(drawImage, playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT, null);
-            } else {
-                // Fallback to colored rectangle if image couldn't be loaded
-                // Use different colors based on movement state
-                if (movingLeft || movingRight) {
-                    g.setColor(new Color(255, 0, 0)); // Red for running
-                } else {
-                    g.setColor(new Color(0, 0, 255)); // Blue for standing
-                }
-                
-                // Draw the player body
-                g.fillRect(playerX, playerY, PLAYER_WIDTH, PLAYER_HEIGHT);
-                
-                // Draw a face to make it look more like a character
-                g.setColor(Color.WHITE);
-                // Eyes
-                int eyeSize = 8;
-                int eyeY = playerY + 20;
-                // Draw eyes based on direction facing
-                if (facingRight) {
-                    g.fillOval(playerX + 15, eyeY, eyeSize, eyeSize);
-                    g.fillOval(playerX + 30, eyeY, eyeSize, eyeSize);
-                } else {
-                    g.fillOval(playerX + PLAYER_WIDTH - 15 - eyeSize, eyeY, eyeSize, eyeSize);
-                    g.fillOval(playerX + PLAYER_WIDTH - 30 - eyeSize, eyeY, eyeSize, eyeSize);
-                }
-                
-                // Mouth
-                g.drawArc(playerX + 15, playerY + 35, PLAYER_WIDTH - 30, 10, 0, 180);
-            }
-            
-            // Draw score and backpack info
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.BOLD, 20));
-            g.drawString("Score: " + score, 20, 30);
-            
-            // Draw backpack info (from CaveLootChallenge)
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.BOLD, 16));
-            g.drawString("Backpack: " + currentBackpackWeight + "/" + MAX_BACKPACK_CAPACITY, 20, 60);
-            g.drawString("Total Value: " + totalValue, 20, 85);
-            g.drawString("Coins: " + score/10 + "/10", 20, 110);
-            
-            // Draw item info if an item was just collected or skipped
-            if (showItemInfo && lastCollectedItem != null) {
-                // Draw a semi-transparent panel
-                g.setColor(new Color(0, 0, 0, 180));
-                int panelWidth = 250;
-                int panelHeight = 120;
-                int panelX = (getWidth() - panelWidth) / 2;
-                int panelY = 150;
-                g.fillRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
-                
-                // Draw border
-                g.setColor(new Color(200, 200, 100));
-                g.drawRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
-                
-                // Draw item info
-                g.setColor(Color.WHITE);
-                g.setFont(new Font("Arial", Font.BOLD, 16));
-                
-                // Determine if the item is in the backpack or was skipped
-                boolean isInBackpack = false;
-                for (Coin coin : coins) {
-                    if (coin.item == lastCollectedItem) {
-                        // Item still exists in a coin, so it was skipped
-                        isInBackpack = false;
-                        break;
-                    } else {
-                        // Item not found in coins, so it was collected
-                        isInBackpack = true;
-                    }
-                }
-                
-                // If no coins left, the item was collected
-                if (coins.isEmpty()) {
-                    isInBackpack = true;
-                }
-                
-                // Show appropriate message
-                if (isInBackpack) {
-                    g.drawString("You collected: " + lastCollectedItem.getName(), panelX + 20, panelY + 30);
-                } else {
-                    g.drawString("You found: " + lastCollectedItem.getName(), panelX + 20, panelY + 30);
-                }
-                
-                g.setFont(new Font("Arial", Font.PLAIN, 14));
-                g.drawString("Weight: " + lastCollectedItem.getWeight(), panelX + 20, panelY + 60);
-                g.drawString("Value: " + lastCollectedItem.getValue(), panelX + 20, panelY + 85);
-                
-                // Draw the item image or a colored shape as fallback
-                int imageSize = 50;
-                int imageX = panelX + panelWidth - imageSize - 20;
-                int imageY = panelY + (panelHeight - imageSize) / 2;
-                
-                // Try to get the item image
-                BufferedImage itemImage = itemImages.get(lastCollectedItem.getName());
-                
-                if (itemImage != null) {
-                    // Draw the item image
-                    g.drawImage(itemImage, imageX, imageY, imageSize, imageSize, this);
-                    
-                    // Draw a subtle border around the image
-                    g.setColor(new Color(255, 255, 255, 100));
-                    g.drawRect(imageX, imageY, imageSize, imageSize);
-                } else {
-                    // Fallback to colored shapes if image not found
-                    String type = lastCollectedItem.getImageType();
-                    
-                    if (type.equals("Resources")) {
-                        g.setColor(new Color(255, 215, 0)); // Gold
-                        g.fillOval(imageX, imageY, imageSize, imageSize);
-                        g.setColor(Color.BLACK);
-                        g.drawOval(imageX, imageY, imageSize, imageSize);
-                    } else if (type.equals("Dungeon_Props")) {
-                        g.setColor(new Color(192, 192, 192)); // Silver
-                        g.fillRect(imageX, imageY, imageSize, imageSize);
-                        g.setColor(Color.BLACK);
-                        g.drawRect(imageX, imageY, imageSize, imageSize);
-                    } else if (type.equals("Esoteric")) {
-                        g.setColor(new Color(138, 43, 226)); // Purple
-                        int[] xPoints = {imageX + imageSize/2, imageX, imageX + imageSize};
-                        int[] yPoints = {imageY, imageY + imageSize, imageY + imageSize};
-                        g.fillPolygon(xPoints, yPoints, 3);
-                        g.setColor(Color.BLACK);
-                        g.drawPolygon(xPoints, yPoints, 3);
-                    } else if (type.equals("Tools")) {
-                        g.setColor(new Color(139, 69, 19)); // Brown
-                        g.fillRoundRect(imageX, imageY, imageSize, imageSize, 10, 10);
-                        g.setColor(Color.BLACK);
-                        g.drawRoundRect(imageX, imageY, imageSize, imageSize, 10, 10);
-                    }
-                }
-            }
+            frameStats.record(System.nanoTime() - start);
         }
     }
     
     // Item class to represent treasures (from CaveLootChallenge)
-    private static class Item {
+    static class Item {
         private String name;
         private int value;
         private int weight;
@@ -822,99 +683,6 @@ public class SimpleMarioGame extends JFrame implements KeyListener {
         }
     }
     
-    // Coin class - extended to include Item properties
-    private class Coin {
-        int x, y;
-        int size = 20;
-        Item item; // Associated treasure item
-        
-        public Coin(int x, int y) {
-            this.x = x;
-            this.y = y;
-            
-            // Assign a random treasure item to this coin
-            String[] itemTypes = {"Resources", "Dungeon_Props", "Esoteric", "Tools"};
-            String[] itemNames = {"Gold Nugget", "Ancient Relic", "Gemstone", "Magic Scroll", 
-                                "Silver Chalice", "Enchanted Sword", "Crystal Orb", "Golden Crown", 
-                                "Rare Spices", "Ancient Coin"};
-            
-            int randomIndex = new Random().nextInt(itemNames.length);
-            int randomTypeIndex = new Random().nextInt(itemTypes.length);
-            int value = 5 + new Random().nextInt(30); // Random value between 5-35
-            int weight = 2 + new Random().nextInt(18); // Random weight between 2-20
-            
-            // Create the item with the selected name and properties
-            String selectedItemName = itemNames[randomIndex];
-            this.item = new Item(selectedItemName, value, weight, itemTypes[randomTypeIndex]);
-        }
-    }
-    
-    // Enemy class
-    private class Enemy {
-        int x, y;
-        int width = 60; // Adjusted for sprite size
-        int height = 60; // Adjusted for sprite size
-        int speed = 2;
-        boolean movingRight = true;
-        boolean alive = true;
-        int animFrame = 0;
-        int animDelay = 0;
-        int totalFrames = 6; // Number of frames in the sprite sheet
-        
-        public Enemy(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-        
-        public void update() {
-            // Update position
-            if (movingRight) {
-                x += speed;
-                if (x > WINDOW_WIDTH - width) {
-                    movingRight = false;
-                }
-            } else {
-                x -= speed;
-                if (x < 0) {
-                    movingRight = true;
-                }
-            }
-            
-            // Update animation
-            animDelay++;
-            if (animDelay >= 5) { // Update animation every 5 frames
-                animDelay = 0;
-                animFrame = (animFrame + 1) % totalFrames;
-            }
-        }
-        
-        // Get the current frame from the sprite sheet
-        public BufferedImage getCurrentFrame() {
-            BufferedImage spriteSheet = movingRight ? orcRunImage : orcRunImage; // Use run animation for both directions
-            
-            if (spriteSheet == null) return null;
-            
-            int frameWidth = spriteSheet.getWidth() / totalFrames;
-            int frameHeight = spriteSheet.getHeight();
-            
-            // Extract the current frame from the sprite sheet
-            BufferedImage frame = spriteSheet.getSubimage(
-                animFrame * frameWidth, 0, frameWidth, frameHeight);
-            
-            // If moving left, flip the image horizontally
-            if (!movingRight) {
-                BufferedImage flippedFrame = new BufferedImage(
-                    frameWidth, frameHeight, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2d = flippedFrame.createGraphics();
-                g2d.drawImage(frame, frameWidth, 0, -frameWidth, frameHeight, null);
-                g2d.dispose();
-                return flippedFrame;
-            }
-            
-            return frame;
-        }
-    }
-    
     public static void main(String[] args) {
         // Use the system look and feel
         try {
@@ -923,7 +691,19 @@ public class SimpleMarioGame extends JFrame implements KeyListener {
             e.printStackTrace();
         }
         
+        // Pick the render mode: active rendering by default, Swing painting
+        // with "--swing" or -Dcave.render=swing
+        boolean activeRendering = !"swing".equalsIgnoreCase(System.getProperty("cave.render", "active"));
+        for (String arg : args) {
+            if (arg.equals("--swing")) {
+                activeRendering = false;
+            } else if (arg.equals("--active")) {
+                activeRendering = true;
+            }
+        }
+        
         // Start the game
-        SwingUtilities.invokeLater(() -> new SimpleMarioGame());
+        final boolean useActiveRendering = activeRendering;
+        SwingUtilities.invokeLater(() -> new SimpleMarioGame(useActiveRendering));
     }
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+import java.util.Arrays;
+
+/**
+ * Uniform grid broadphase for collision queries. The world is divided into
+ * square cells and each entity is listed in every cell its bounds touch, so a
+ * query only looks at entities in the cells it covers instead of all of them.
+ *
+ * Cells are hashed into a fixed table of buckets, which keeps memory bounded
+ * no matter how large the world is. Entities are identified by an int handle
+ * and their bounds live in primitive arrays; moving an entity only touches the
+ * buckets when it crosses into a different set of cells. Queries don't allocate.
+ */
+public class SpatialGrid {
+    /**
+     * Reusable list of handles found by a query
+     */
+    public static final class Results {
+        private int[] handles = new int[16];
+        private int size = 0;
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int index) {
+            return handles[index];
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void add(int handle) {
+            if (size == handles.length) {
+                handles = Arrays.copyOf(handles, size * 2);
+            }
+            handles[size++] = handle;
+        }
+    }
+
+    private final int cellSize;
+    private final int bucketMask;
+    private final int[][] buckets;
+    private final int[] bucketSizes;
+
+    // Per-handle entity data
+    private int[] entityX = new int[64];
+    private int[] entityY = new int[64];
+    private int[] entityWidth = new int[64];
+    private int[] entityHeight = new int[64];
+    private int[] entityLayer = new int[64];
+    private int[] entityData = new int[64];
+    private int[] cellX0 = new int[64];
+    private int[] cellY0 = new int[64];
+    private int[] cellX1 = new int[64];
+    private int[] cellY1 = new int[64];
+    private int[] queryStamp = new int[64];
+    private int currentStamp = 0;
+
+    // Handles are recycled through a free list
+    private int handleCount = 0;
+    private int[] freeHandles = new int[16];
+    private int freeCount = 0;
+    private int size = 0;
+
+    /**
+     * Creates a grid
+     * @param cellSize Side length of a cell; roughly the size of a typical entity works best
+     * @param bucketCount Number of hash buckets, rounded up to a power of two
+     */
+    public SpatialGrid(int cellSize, int bucketCount) {
+        this.cellSize = cellSize;
+        int tableSize = Integer.highestOneBit(Math.max(2, bucketCount - 1)) << 1;
+        this.bucketMask = tableSize - 1;
+        this.buckets = new int[tableSize][];
+        this.bucketSizes = new int[tableSize];
+    }
+
+    /**
+     * Adds an entity
+     * @param layer Bit mask of layers the entity is on; queries filter by layer
+     * @param data Caller data stored with the entity (e.g. an index into a list)
+     * @return The handle of the entity
+     */
+    public int insert(int layer, int data, int x, int y, int width, int height) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            handle = handleCount++;
+            ensureCapacity(handleCount);
+        }
+
+        entityLayer[handle] = layer;
+        entityData[handle] = data;
+        setBounds(handle, x, y, width, height);
+        cellX0[handle] = cell(x);
+        cellY0[handle] = cell(y);
+        cellX1[handle] = cell(x + width);
+        cellY1[handle] = cell(y + height);
+        addToCells(handle);
+        size++;
+        return handle;
+    }
+
+    /**
+     * Moves or resizes an entity. Only touches the buckets if the entity now
+     * covers different cells, so small moves are cheap.
+     */
+    public void update(int handle, int x, int y, int width, int height) {
+        setBounds(handle, x, y, width, height);
+
+        int x0 = cell(x);
+        int y0 = cell(y);
+        int x1 = cell(x + width);
+        int y1 = cell(y + height);
+        if (x0 == cellX0[handle] && y0 == cellY0[handle] && x1 == cellX1[handle] && y1 == cellY1[handle]) {
+            return;
+        }
+
+        removeFromCells(handle);
+        cellX0[handle] = x0;
+        cellY0[handle] = y0;
+        cellX1[handle] = x1;
+        cellY1[handle] = y1;
+        addToCells(handle);
+    }
+
+    /**
+     * Removes an entity; its handle may be reused by a later insert
+     */
+    public void remove(int handle) {
+        removeFromCells(handle);
+        entityLayer[handle] = 0;
+
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+        size--;
+    }
+
+    /**
+     * Removes every entity
+     */
+    public void clear() {
+        Arrays.fill(bucketSizes, 0);
+        Arrays.fill(entityLayer, 0, handleCount, 0);
+        handleCount = 0;
+        freeCount = 0;
+        size = 0;
+    }
+
+    public int getData(int handle) {
+        return entityData[handle];
+    }
+
+    public void setData(int handle, int data) {
+        entityData[handle] = data;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the entities on the given layers whose bounds touch or overlap a
+     * rectangle. This is a broadphase: callers apply their exact test to the
+     * candidates. Each entity is reported once, in no particular order.
+     * @param layerMask Layers to include
+     * @param results Receives the handles; cleared first
+     * @return The number of handles found
+     */
+    public int query(int layerMask, int x, int y, int width, int height, Results results) {
+        results.clear();
+
+        if (++currentStamp == 0) {
+            // Stamp wrapped around; forget every old stamp
+            Arrays.fill(queryStamp, 0);
+            currentStamp = 1;
+        }
+
+        int x0 = cell(x);
+        int y0 = cell(y);
+        int x1 = cell(x + width);
+        int y1 = cell(y + height);
+        int right = x + width;
+        int bottom = y + height;
+
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                int bucket = bucket(cx, cy);
+                int[] handles = buckets[bucket];
+                int count = bucketSizes[bucket];
+                for (int i = 0; i < count; i++) {
+                    int handle = handles[i];
+                    if (queryStamp[handle] == currentStamp) continue;
+                    queryStamp[handle] = currentStamp;
+
+                    if ((entityLayer[handle] & layerMask) != 0 &&
+                        entityX[handle] <= right && entityX[handle] + entityWidth[handle] >= x &&
+                        entityY[handle] <= bottom && entityY[handle] + entityHeight[handle] >= y) {
+                        results.add(handle);
+                    }
+                }
+            }
+        }
+        return results.size();
+    }
+
+    private void setBounds(int handle, int x, int y, int width, int height) {
+        entityX[handle] = x;
+        entityY[handle] = y;
+        entityWidth[handle] = width;
+        entityHeight[handle] = height;
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private int bucket(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & bucketMask;
+    }
+
+    private void addToCells(int handle) {
+        for (int cy = cellY0[handle]; cy <= cellY1[handle]; cy++) {
+            for (int cx = cellX0[handle]; cx <= cellX1[handle]; cx++) {
+                int bucket = bucket(cx, cy);
+                int[] handles = buckets[bucket];
+                int count = bucketSizes[bucket];
+                if (handles == null) {
+                    handles = buckets[bucket] = new int[4];
+                } else if (count == handles.length) {
+                    handles = buckets[bucket] = Arrays.copyOf(handles, count * 2);
+                }
+                handles[count] = handle;
+                bucketSizes[bucket] = count + 1;
+            }
+        }
+    }
+
+    private void removeFromCells(int handle) {
+        for (int cy = cellY0[handle]; cy <= cellY1[handle]; cy++) {
+            for (int cx = cellX0[handle]; cx <= cellX1[handle]; cx++) {
+                int bucket = bucket(cx, cy);
+                int[] handles = buckets[bucket];
+                int count = bucketSizes[bucket];
+                for (int i = 0; i < count; i++) {
+                    if (handles[i] == handle) {
+                        // Order within a bucket doesn't matter, so swap in the last one
+                        handles[i] = handles[count - 1];
+                        bucketSizes[bucket] = count - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entityX.length) return;
+        int newLength = Math.max(capacity, entityX.length * 2);
+        entityX = Arrays.copyOf(entityX, newLength);
+        entityY = Arrays.copyOf(entityY, newLength);
+        entityWidth = Arrays.copyOf(entityWidth, newLength);
+        entityHeight = Arrays.copyOf(entityHeight, newLength);
+        entityLayer = Arrays.copyOf(entityLayer, newLength);
+        entityData = Arrays.copyOf(entityData, newLength);
+        cellX0 = Arrays.copyOf(cellX0, newLength);
+        cellY0 = Arrays.copyOf(cellY0, newLength);
+        cellX1 = Arrays.copyOf(cellX1, newLength);
+        cellY1 = Arrays.copyOf(cellY1, newLength);
+        queryStamp = Arrays.copyOf(queryStamp, newLength);
+    }
+}
@@ -0,0 +1,125 @@
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds every animation frame of the game, sliced out of its sprite sheet and
+ * mirrored once at load time. Rendering only looks frames up, so drawing a
+ * sprite never creates an image.
+ */
+public class SpriteAtlas {
+    /**
+     * The frames of one animation, in both facings
+     */
+    public static class Animation {
+        private final BufferedImage[] right;
+        private final BufferedImage[] left;
+
+        private Animation(BufferedImage[] right, BufferedImage[] left) {
+            this.right = right;
+            this.left = left;
+        }
+
+        public int getFrameCount() {
+            return right.length;
+        }
+
+        /**
+         * Gets a shared frame; callers must not draw into it
+         * @param index The frame index, wrapped to the frame count
+         * @param facingRight True for the frame as drawn in the sheet, false for the mirrored one
+         * @return The frame image
+         */
+        public BufferedImage getFrame(int index, boolean facingRight) {
+            BufferedImage[] frames = facingRight ? right : left;
+            return frames[index % frames.length];
+        }
+    }
+
+    private final Map<String, Animation> animations = new HashMap<>();
+
+    /**
+     * Slices a horizontal sprite sheet into frames and stores them
+     * @param name The animation name
+     * @param sheet The sprite sheet
+     * @param frameCount The number of frames laid out left to right
+     * @return The stored animation, or null if the sheet is null
+     */
+    public Animation addSheet(String name, BufferedImage sheet, int frameCount) {
+        return addSheet(name, sheet, frameCount, 1);
+    }
+
+    /**
+     * Slices a horizontal sprite sheet into frames scaled to the size they are drawn at
+     * @param name The animation name
+     * @param sheet The sprite sheet
+     * @param frameCount The number of frames laid out left to right
+     * @param scale Size of the stored frames over their size in the sheet
+     * @return The stored animation, or null if the sheet is null
+     */
+    public Animation addSheet(String name, BufferedImage sheet, int frameCount, double scale) {
+        if (sheet == null) return null;
+
+        int frameWidth = sheet.getWidth() / frameCount;
+        int frameHeight = sheet.getHeight();
+        int width = Math.max(1, (int) Math.round(frameWidth * scale));
+        int height = Math.max(1, (int) Math.round(frameHeight * scale));
+
+        BufferedImage[] right = new BufferedImage[frameCount];
+        BufferedImage[] left = new BufferedImage[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            // Copy each frame into its own image rather than using getSubimage,
+            // so the frame doesn't keep the whole sheet's raster alive
+            right[i] = copyFrame(sheet, i * frameWidth, frameWidth, frameHeight, width, height, false);
+            left[i] = copyFrame(sheet, i * frameWidth, frameWidth, frameHeight, width, height, true);
+        }
+
+        Animation animation = new Animation(right, left);
+        animations.put(name, animation);
+        return animation;
+    }
+
+    /**
+     * Slices a sheet of square frames, working out the frame count from its size
+     * @param name The animation name
+     * @param sheet The sprite sheet
+     * @return The stored animation, or null if the sheet is null
+     */
+    public Animation addStrip(String name, BufferedImage sheet) {
+        if (sheet == null) return null;
+        return addSheet(name, sheet, Math.max(1, sheet.getWidth() / sheet.getHeight()));
+    }
+
+    /**
+     * Stores a single image as a one frame animation
+     * @param name The animation name
+     * @param image The image
+     * @return The stored animation, or null if the image is null
+     */
+    public Animation addImage(String name, BufferedImage image) {
+        return addSheet(name, image, 1);
+    }
+
+    /**
+     * @param name The animation name
+     * @return The animation, or null if none was loaded under that name
+     */
+    public Animation get(String name) {
+        return animations.get(name);
+    }
+
+    private static BufferedImage copyFrame(BufferedImage sheet, int x, int width, int height,
+                                           int frameWidth, int frameHeight, boolean mirror) {
+        BufferedImage frame = CompatibleImages.create(frameWidth, frameHeight, Transparency.TRANSLUCENT);
+        Graphics2D g2d = frame.createGraphics();
+        if (mirror) {
+            g2d.drawImage(sheet, frameWidth, 0, 0, frameHeight, x, 0, x + width, height, null);
+        } else {
+            g2d.drawImage(sheet, 0, 0, frameWidth, frameHeight, x, 0, x + width, height, null);
+        }
+        g2d.dispose();
+        return frame;
+    }
+}
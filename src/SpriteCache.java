@@ -0,0 +1,208 @@
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps sprite cells that were already cut out of their sheet and scaled to
+ * the size they are drawn at, so drawing one is a single unscaled blit.
+ *
+ * Entries are keyed by sheet, cell and target size. The cache holds at most a
+ * configurable number of bytes and evicts the least recently used entries
+ * beyond that. It can be used from any thread; when several threads ask for
+ * the same missing entry, only one of them builds it and the others wait.
+ */
+public class SpriteCache {
+    /**
+     * Identifies one cell of a sheet at one size
+     */
+    public static final class Key {
+        private final String sheet;
+        private final int cellX, cellY, cellWidth, cellHeight;
+        private final int width, height;
+
+        /**
+         * @param sheet Name of the sprite sheet
+         * @param cellX Left edge of the cell in the sheet
+         * @param cellY Top edge of the cell in the sheet
+         * @param cellWidth Width of the cell in the sheet
+         * @param cellHeight Height of the cell in the sheet
+         * @param width Width the cell is drawn at
+         * @param height Height the cell is drawn at
+         */
+        public Key(String sheet, int cellX, int cellY, int cellWidth, int cellHeight, int width, int height) {
+            this.sheet = sheet;
+            this.cellX = cellX;
+            this.cellY = cellY;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return cellX == k.cellX && cellY == k.cellY && cellWidth == k.cellWidth && cellHeight == k.cellHeight
+                   && width == k.width && height == k.height && sheet.equals(k.sheet);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = sheet.hashCode();
+            h = 31 * h + cellX;
+            h = 31 * h + cellY;
+            h = 31 * h + cellWidth;
+            h = 31 * h + cellHeight;
+            h = 31 * h + width;
+            h = 31 * h + height;
+            return h;
+        }
+
+        @Override
+        public String toString() {
+            return sheet + "[" + cellX + "," + cellY + " " + cellWidth + "x" + cellHeight + "]@" + width + "x" + height;
+        }
+    }
+
+    private final long maxBytes;
+
+    // Entries in least to most recently used order; guarded by this
+    private final LinkedHashMap<Key, BufferedImage> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    // Entries being built, so concurrent requests for the same one share the work
+    private final ConcurrentHashMap<Key, FutureTask<BufferedImage>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxBytes Most bytes of pixel data to keep
+     */
+    public SpriteCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached image for a key, building it on a miss
+     * @param key The sheet, cell and size
+     * @param loader Builds the image; may return null if it can't
+     * @return The image, or null if the loader returned null
+     */
+    public BufferedImage get(Key key, Callable<BufferedImage> loader) {
+        synchronized (this) {
+            BufferedImage image = entries.get(key);
+            if (image != null) {
+                hits++;
+                return image;
+            }
+            misses++;
+        }
+
+        // Build outside the lock; the first thread to get here runs the loader
+        FutureTask<BufferedImage> task = new FutureTask<>(loader);
+        FutureTask<BufferedImage> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+                BufferedImage image = task.get();
+                if (image != null) {
+                    put(key, image);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Reported to the caller below
+            } finally {
+                loading.remove(key, task);
+            }
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not build sprite " + key, e.getCause());
+        }
+    }
+
+    /**
+     * Adds an image, evicting the least recently used ones if over budget.
+     * Images larger than the whole budget are not kept.
+     */
+    public synchronized void put(Key key, BufferedImage image) {
+        long size = sizeOf(image);
+        if (size > maxBytes) return;
+
+        BufferedImage old = entries.put(key, image);
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<Key, BufferedImage>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, BufferedImage> entry = eldest.next();
+            bytes -= sizeOf(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return Approximate bytes of pixel data in an image
+     */
+    public static long sizeOf(BufferedImage image) {
+        int bytesPerPixel = (image.getColorModel().getPixelSize() + 7) / 8;
+        return (long) image.getWidth() * image.getHeight() * bytesPerPixel;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Counters and memory use on one line
+     */
+    public synchronized String getSummary() {
+        long requests = hits + misses;
+        return String.format("Sprite cache: %d entries, %d/%d KB, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                             entries.size(), bytes / 1024, maxBytes / 1024, hits, misses,
+                             requests == 0 ? 0.0 : 100.0 * hits / requests, evictions);
+    }
+}
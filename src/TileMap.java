@@ -0,0 +1,138 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The tiles of one LevelChunk: a grid of tile ids, one byte per 16 px cell,
+ * row by row from the top left. The grid is what the level is made of: the
+ * simulation lands the player on it and TileRenderer draws it.
+ *
+ * Rows are counted from the ground level up and down, so the floor top is a
+ * tile edge; the first row starts TOP pixels below the top of the world.
+ * Every change to a tile bumps the map's revision, which tells TileRenderer
+ * when the chunk's cached image is out of date.
+ */
+public class TileMap {
+    /** Width and height of a tile in pixels */
+    public static final int SIZE = 16;
+
+    public static final int COLUMNS = LevelChunk.WIDTH / SIZE;
+
+    /** World y of the top edge of the first row */
+    public static final int TOP = MarioSimulation.GROUND_LEVEL % SIZE;
+
+    public static final int ROWS = (MarioSimulation.WORLD_HEIGHT - TOP + SIZE - 1) / SIZE;
+
+    // Tile ids. Floors are earth with edges on the sides and the top, ledges are stone.
+    public static final byte EMPTY = 0;
+    public static final byte FLOOR_TOP_LEFT = 1;
+    public static final byte FLOOR_TOP = 2;
+    public static final byte FLOOR_TOP_RIGHT = 3;
+    public static final byte FLOOR_LEFT = 4;
+    public static final byte FLOOR = 5;
+    public static final byte FLOOR_RIGHT = 6;
+    public static final byte LEDGE = 7;
+
+    /** Number of tile ids */
+    public static final int TILE_COUNT = 8;
+
+    private final byte[] tiles = new byte[COLUMNS * ROWS];
+    private int revision = 0;
+
+    /**
+     * @return The tile at a cell, or EMPTY outside the map
+     */
+    public byte get(int column, int row) {
+        if (column < 0 || column >= COLUMNS || row < 0 || row >= ROWS) return EMPTY;
+        return tiles[row * COLUMNS + column];
+    }
+
+    /**
+     * Changes the tile at a cell
+     */
+    public void set(int column, int row, byte tile) {
+        int at = row * COLUMNS + column;
+        if (tiles[at] != tile) {
+            tiles[at] = tile;
+            revision++;
+        }
+    }
+
+    public boolean isSolid(int column, int row) {
+        return get(column, row) != EMPTY;
+    }
+
+    /**
+     * @return Whether a cell is a top the player can stand on: solid, with nothing solid above it
+     */
+    public boolean isSurface(int column, int row) {
+        return isSolid(column, row) && !isSolid(column, row - 1);
+    }
+
+    /**
+     * Fills a block of cells with floor tiles, edged on the left, right and top
+     */
+    public void fillFloor(int column, int row, int columns, int rows) {
+        for (int r = row; r < row + rows; r++) {
+            boolean top = r == row;
+            for (int c = column; c < column + columns; c++) {
+                byte tile;
+                if (c == column) {
+                    tile = top ? FLOOR_TOP_LEFT : FLOOR_LEFT;
+                } else if (c == column + columns - 1) {
+                    tile = top ? FLOOR_TOP_RIGHT : FLOOR_RIGHT;
+                } else {
+                    tile = top ? FLOOR_TOP : FLOOR;
+                }
+                set(c, r, tile);
+            }
+        }
+    }
+
+    /**
+     * Fills a block of cells with one tile
+     */
+    public void fill(int column, int row, int columns, int rows, byte tile) {
+        for (int r = row; r < row + rows; r++) {
+            for (int c = column; c < column + columns; c++) {
+                set(c, r, tile);
+            }
+        }
+    }
+
+    /**
+     * Replaces every tile with ones read from a buffer, row by row
+     */
+    public void read(ByteBuffer in) {
+        in.get(tiles);
+        revision++;
+    }
+
+    /**
+     * Writes every tile, row by row
+     */
+    public void write(DataOutput out) throws IOException {
+        out.write(tiles);
+    }
+
+    /**
+     * @return A number that changes whenever a tile does
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return The row a world y falls in; negative above the first row
+     */
+    public static int rowOf(int y) {
+        return Math.floorDiv(y - TOP, SIZE);
+    }
+
+    /**
+     * @return The world y of the top edge of a row
+     */
+    public static int rowTop(int row) {
+        return TOP + row * SIZE;
+    }
+}
@@ -0,0 +1,152 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Draws the tiles of SimpleMarioGame's level chunks.
+ *
+ * Each chunk's tiles are drawn once into an image of the chunk's size, and
+ * every frame after that the chunk is that one image copied to the screen.
+ * The image is drawn again only when the chunk's TileMap revision changes,
+ * so the level costs one drawImage per chunk in view however many tiles it
+ * has. Images of chunks that are no longer needed are reused for the next
+ * chunk instead of allocating a new one.
+ *
+ * Tiles are cut from the tilesets under Sprites Assets/Environment/Tilesets;
+ * without them they are drawn as plain colored squares.
+ */
+public class TileRenderer {
+    public static final String FLOOR_TILESET = "Sprites Assets/Environment/Tilesets/Wall_Tiles.png";
+    public static final String LEDGE_TILESET = "Sprites Assets/Environment/Tilesets/Floors_Tiles.png";
+
+    // Where each tile id is in its tileset, as x, y of the 16 px cell
+    private static final int[][] FLOOR_CELLS = {
+        {0, 256}, {16, 256}, {32, 256}, // Top left, top, top right
+        {0, 272}, {16, 272}, {32, 272}  // Left, middle, right
+    };
+    private static final int[] LEDGE_CELL = {272, 32};
+
+    private static final Color FLOOR_COLOR = new Color(139, 69, 19); // Brown
+    private static final Color LEDGE_COLOR = new Color(120, 110, 100); // Stone grey
+
+    private static final int IMAGE_WIDTH = LevelChunk.WIDTH;
+    private static final int IMAGE_HEIGHT = TileMap.ROWS * TileMap.SIZE;
+    // Unused images kept for reuse; a chunk's image is a few MB
+    private static final int MAX_SPARE = 2;
+
+    private static final class Cached {
+        final BufferedImage image;
+        LevelChunk chunk; // The chunk drawn; a new level has new chunks at the same index
+        int revision;
+
+        Cached(BufferedImage image) {
+            this.image = image;
+        }
+    }
+
+    // Tile images by id; null for EMPTY, or for all when there is no tileset
+    private final BufferedImage[] tileImages = new BufferedImage[TileMap.TILE_COUNT];
+    private final Map<Integer, Cached> cache = new HashMap<>();
+    private final ArrayDeque<BufferedImage> spare = new ArrayDeque<>();
+    private int rebuilds = 0;
+
+    /**
+     * Cuts the tile images out of the tilesets. Chunk images drawn before
+     * are drawn again with them.
+     * @param floors The floor tileset, may be null
+     * @param ledges The ledge tileset, may be null
+     */
+    public void setTilesets(BufferedImage floors, BufferedImage ledges) {
+        if (floors != null) {
+            for (int i = 0; i < FLOOR_CELLS.length; i++) {
+                tileImages[TileMap.FLOOR_TOP_LEFT + i] = cut(floors, FLOOR_CELLS[i]);
+            }
+        }
+        if (ledges != null) {
+            tileImages[TileMap.LEDGE] = cut(ledges, LEDGE_CELL);
+        }
+        for (Cached cached : cache.values()) {
+            cached.chunk = null;
+        }
+    }
+
+    private static BufferedImage cut(BufferedImage tileset, int[] cell) {
+        return CompatibleImages.toCompatible(tileset.getSubimage(cell[0], cell[1], TileMap.SIZE, TileMap.SIZE),
+                                             TileMap.SIZE, TileMap.SIZE);
+    }
+
+    /**
+     * Draws a chunk's tiles in world coordinates, from its cached image
+     */
+    public void draw(Graphics g, LevelChunk chunk) {
+        TileMap tiles = chunk.getTiles();
+        Cached cached = cache.get(chunk.getIndex());
+        if (cached == null) {
+            BufferedImage image = spare.isEmpty()
+                                  ? CompatibleImages.create(IMAGE_WIDTH, IMAGE_HEIGHT, Transparency.TRANSLUCENT)
+                                  : spare.pop();
+            cached = new Cached(image);
+            cache.put(chunk.getIndex(), cached);
+        }
+        if (cached.chunk != chunk || cached.revision != tiles.getRevision()) {
+            render(tiles, cached.image);
+            cached.chunk = chunk;
+            cached.revision = tiles.getRevision();
+            rebuilds++;
+        }
+        g.drawImage(cached.image, chunk.getX(), TileMap.TOP, null);
+    }
+
+    private void render(TileMap tiles, BufferedImage image) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+        g2d.setComposite(AlphaComposite.SrcOver);
+        for (int row = 0; row < TileMap.ROWS; row++) {
+            for (int column = 0; column < TileMap.COLUMNS; column++) {
+                byte tile = tiles.get(column, row);
+                if (tile == TileMap.EMPTY) continue;
+                int x = column * TileMap.SIZE;
+                int y = row * TileMap.SIZE;
+                if (tileImages[tile] != null) {
+                    g2d.drawImage(tileImages[tile], x, y, null);
+                } else {
+                    g2d.setColor(tile == TileMap.LEDGE ? LEDGE_COLOR : FLOOR_COLOR);
+                    g2d.fillRect(x, y, TileMap.SIZE, TileMap.SIZE);
+                }
+            }
+        }
+        g2d.dispose();
+    }
+
+    /**
+     * Lets go of the images of chunks outside a range, keeping a few for reuse
+     * @param first The first chunk still needed
+     * @param last The last chunk still needed
+     */
+    public void retain(int first, int last) {
+        Iterator<Map.Entry<Integer, Cached>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Cached> entry = it.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                if (spare.size() < MAX_SPARE) {
+                    spare.push(entry.getValue().image);
+                }
+                it.remove();
+            }
+        }
+    }
+
+    /** @return How many chunk images were drawn since the game started */
+    public int getRebuildCount() {
+        return rebuilds;
+    }
+
+    /** @return How many chunk images are held */
+    public int getCachedCount() {
+        return cache.size();
+    }
+}